@@ -14,5 +14,17 @@ public abstract class AbstractChatBenchmark {
     @Param({"llama3.2", "mistral", "codellama"}) //"phi3" is too large for most setups
     public String modelName;
 
+    // Resolved from OllamaEndpoint during setup; the default keeps direct calls (e.g. QualityReporter) working
+    protected String baseUrl = OllamaEndpoint.DEFAULT_BASE_URL;
+
     public abstract String chat(String prompt, String modelName);
+
+    /** The answer with the number of generated tokens the server reported, -1 when the framework does not expose it. */
+    public record Answer(String text, int outputTokens) {
+    }
+
+    /** Like {@link #chat(String, String)} but keeps the token usage; used by QualityReporter, not benchmarked. */
+    public Answer answer(String prompt, String modelName) {
+        return new Answer(chat(prompt, modelName), -1);
+    }
 }
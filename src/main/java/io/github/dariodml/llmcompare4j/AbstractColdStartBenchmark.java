@@ -0,0 +1,35 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Builder-to-first-response: each shot builds a new model (and with it a new HTTP client) and makes one call.
+ * benchmarkColdStart runs one shot per fresh JVM, so class loading and an interpreted first call are included;
+ * benchmarkWarmStart repeats the shot in a warmed-up JVM, leaving client bootstrap plus a new connection.
+ */
+@State(Scope.Thread)
+public abstract class AbstractColdStartBenchmark {
+
+    @Param({"chat", "embed"})
+    public String workload;
+
+    @Param({"llama3.2"})
+    public String modelName;
+
+    @Param({"all-minilm"})
+    public String embeddingModelName;
+
+    protected static final String CHAT_PROMPT = "Say hello.";
+    protected static final String EMBED_TEXT = "Short sentence for embedding.";
+
+    // Set from OllamaEndpoint in @Setup
+    protected String baseUrl = OllamaEndpoint.DEFAULT_BASE_URL;
+
+    @Setup(Level.Trial)
+    public void setupEndpoint(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+    }
+
+    /** Builds a new client for the workload and returns its first response. */
+    public abstract Object firstResponse();
+}
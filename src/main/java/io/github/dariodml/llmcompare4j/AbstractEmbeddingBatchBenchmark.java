@@ -0,0 +1,96 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Embeds {@code batchSize} chunks per request, the way an ingestion pipeline does, instead of one string per call.
+ * With {@code concurrentBatches} > 1 that many batches are in flight at once (one virtual thread each).
+ * Per-item latency, items/sec and bytes allocated per item are reported as secondary results
+ * (embed.per.item, embed.items.rate, embed.alloc.per.item) when {@link MetricsProfiler} is enabled.
+ */
+@State(Scope.Thread)
+public abstract class AbstractEmbeddingBatchBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Param({"all-minilm", "bge-m3"})
+    public String modelName;
+
+    // "ollama-http" = Ollama's /api/embed, "in-process-onnx" = ONNX model inside the JVM (all-minilm only, so the
+    // ONNX comparison is an explicit run: -p modelName=all-minilm -p backend=ollama-http,in-process-onnx)
+    @Param({InProcessEmbeddings.OLLAMA_HTTP})
+    public String backend = InProcessEmbeddings.OLLAMA_HTTP;
+
+    @Param({"1", "8", "32", "128", "512"})
+    public int batchSize;
+
+    @Param({"1"})
+    public int concurrentBatches;
+
+    // Set from OllamaEndpoint in @Setup
+    protected String baseUrl = OllamaEndpoint.DEFAULT_BASE_URL;
+
+    protected List<List<String>> batches;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setupBatches() {
+        List<String> chunks = SyntheticCorpus.load(List.of(), batchSize * concurrentBatches, "", 42);
+        batches = new ArrayList<>(concurrentBatches);
+        for (int i = 0; i < concurrentBatches; i++) {
+            batches.add(chunks.subList(i * batchSize, (i + 1) * batchSize));
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeExecutor() {
+        executor.close();
+    }
+
+    /** Embeds all texts with a single framework call. */
+    public abstract Object embedBatch(List<String> texts);
+
+    /** Sends every batch (concurrently if configured) and records the per-item metrics. */
+    protected List<Object> embedBatches() {
+        long start = System.nanoTime();
+        // The frameworks do part of the work on their own I/O threads, so allocation is measured JVM-wide
+        long allocatedAtStart = THREADS.getTotalThreadAllocatedBytes();
+
+        List<Object> results = new ArrayList<>(concurrentBatches);
+        if (concurrentBatches == 1) {
+            results.add(embedBatch(batches.get(0)));
+        } else {
+            List<Future<Object>> futures = new ArrayList<>(concurrentBatches);
+            for (List<String> batch : batches) {
+                futures.add(executor.submit(() -> embedBatch(batch)));
+            }
+            for (Future<Object> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Batch embedding failed", e.getCause());
+                }
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getTotalThreadAllocatedBytes() - allocatedAtStart;
+        int items = batchSize * concurrentBatches;
+        SecondaryMetrics.record("embed.per.item", "ms/item", elapsed / 1_000_000.0 / items);
+        SecondaryMetrics.record("embed.items.rate", "items/s", items / (elapsed / 1e9));
+        SecondaryMetrics.record("embed.alloc.per.item", "B/item", (double) allocated / items);
+        return results;
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.dariodml.llmcompare4j;
 
 import org.openjdk.jmh.annotations.*;
+import java.time.Duration;
 
 @State(Scope.Thread)
 public abstract class AbstractEmbeddingBenchmark {
@@ -15,5 +16,31 @@ public abstract class AbstractEmbeddingBenchmark {
     @Param({"all-minilm", "bge-m3"})
     public String modelName;
 
+    // "ollama-http" = Ollama's /api/embed, "in-process-onnx" = ONNX model inside the JVM (all-minilm only, so the
+    // ONNX comparison is an explicit run: -p modelName=all-minilm -p backend=ollama-http,in-process-onnx)
+    @Param({InProcessEmbeddings.OLLAMA_HTTP})
+    public String backend = InProcessEmbeddings.OLLAMA_HTTP;
+
+    // The parameters below are initialized because LoadBenchmark creates benchmarks without JMH
+
+    // > 0 = calls go through an EmbeddingGateway (single-flight + micro-batches of at most this many texts)
+    @Param({"0"})
+    public int gatewayBatchSize = 0;
+
+    // How long the first text of a micro-batch waits for more, only used with gatewayBatchSize > 0
+    @Param({"1000"})
+    public int gatewayMaxWaitMicros = 1000;
+
+    // Set from OllamaEndpoint in @Setup
+    protected String baseUrl = OllamaEndpoint.DEFAULT_BASE_URL;
+
     public abstract Object embed(String text, String modelName);
+
+    protected boolean gatewayEnabled() {
+        return gatewayBatchSize > 0;
+    }
+
+    protected Duration gatewayMaxWait() {
+        return Duration.ofNanos(gatewayMaxWaitMicros * 1000L);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,256 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Document ingestion the way a (nightly) re-index runs it: documents are streamed from files one at a time, split
+ * into chunks with the framework's splitter, and the chunks are embedded and stored in batches of
+ * {@code embedBatchSize}, with at most {@code concurrentBatches} batches in flight (one virtual thread each). When
+ * all of them are busy the reader blocks, so memory stays bounded however large the corpus is.
+ *
+ * <p>{@code mode=full} ingests everything into an empty store; {@code mode=incremental} starts from a store that
+ * already holds the previous version of the corpus and only re-embeds what changed, by content hash (see
+ * {@link IngestionManifest}). Documents/sec, chunks/sec and peak heap are reported as secondary results
+ * (ingest.docs.rate, ingest.chunks.rate, ingest.heap.peak) when {@link MetricsProfiler} is enabled.
+ *
+ * @param <S> the framework's store
+ * @param <C> the framework's chunk type
+ */
+@State(Scope.Thread)
+public abstract class AbstractIngestionBenchmark<S, C> {
+
+    @Param({"1000", "10000", "100000"})
+    public int documentCount;
+
+    // Directory with one text document per file; empty = seeded synthetic documents in target/ingest-corpus
+    @Param({""})
+    public String corpusDir;
+
+    // "full" = empty store, "incremental" = store with the previous version, only changes are re-embedded
+    @Param({"full", "incremental"})
+    public String mode;
+
+    // Share of documents that differ between the previous and the current version (incremental mode)
+    @Param({"0.1"})
+    public double changeRatio;
+
+    @Param({"256"})
+    public int chunkTokens;
+
+    // Only LangChain4j's recursive splitter overlaps chunks; Spring AI's TokenTextSplitter has no overlap
+    @Param({"32"})
+    public int chunkOverlapTokens;
+
+    @Param({"64"})
+    public int embedBatchSize;
+
+    @Param({"4"})
+    public int concurrentBatches;
+
+    @Param({"all-minilm"})
+    public String embeddingModelName;
+
+    // "ollama-http" = Ollama's /api/embed, "in-process-onnx" = ONNX model inside the JVM (all-minilm only, so the
+    // ONNX comparison is an explicit run: -p embeddingModelName=all-minilm -p backend=ollama-http,in-process-onnx)
+    @Param({InProcessEmbeddings.OLLAMA_HTTP})
+    public String backend;
+
+    // "inmemory" = the framework's own store, "offheap" = OffHeapVectorIndex, "hnsw" = HnswVectorIndex,
+    // "int8"/"binary" = QuantizedVectorIndex
+    @Param({VectorIndexes.FRAMEWORK_DEFAULT})
+    public String storeType;
+
+    // Set from OllamaEndpoint in @Setup
+    protected String baseUrl = OllamaEndpoint.DEFAULT_BASE_URL;
+
+    private Path previousVersion;
+    private Path currentVersion;
+    private ExecutorService executor;
+
+    protected S store;
+    protected IngestionManifest manifest;
+
+    /** A batch of chunks on its way to the store, with the document each chunk came from. */
+    private record Batch<C>(List<C> chunks, List<String> sources) {
+    }
+
+    /** What one ingestion pass did. */
+    protected record Pass(int documents, int skipped, int updated, int deleted, int chunks) {
+    }
+
+    @Setup(Level.Trial)
+    public void setupCorpus() {
+        Path documents = corpusDir.isBlank() ? SyntheticCorpus.writeDocuments(documentCount, 42) : Path.of(corpusDir);
+        if ("incremental".equals(mode)) {
+            previousVersion = documents;
+            currentVersion = SyntheticCorpus.writeChangedDocuments(documents, changeRatio, 43);
+        } else if ("full".equals(mode)) {
+            currentVersion = documents;
+        } else {
+            throw new IllegalArgumentException("Unknown ingestion mode: " + mode);
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /** Every shot starts from a new store, already holding the previous version in incremental mode. */
+    @Setup(Level.Iteration)
+    public void setupStore() {
+        store = newStore();
+        manifest = new IngestionManifest();
+        if (previousVersion != null) {
+            ingest(previousVersion);
+        }
+    }
+
+    /** Closes the shot's store when it holds off-heap memory or files (the project indexes). */
+    @TearDown(Level.Iteration)
+    public void closeStore() throws Exception {
+        if (store instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        store = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void closeExecutor() {
+        executor.close();
+    }
+
+    /** A new, empty store for the selected {@code storeType}. */
+    protected abstract S newStore();
+
+    /** Splits one document with the framework's splitter. */
+    protected abstract List<C> split(String source, String text);
+
+    /** Embeds the chunks and adds them to the store in one framework call; returns the chunk ids in order. */
+    protected abstract List<String> embedAndStore(S store, List<C> chunks);
+
+    protected abstract void remove(S store, List<String> ids);
+
+    /** Index behind the project-provided stores for the selected {@code storeType}. */
+    protected IntFunction<VectorIndex> indexFactory() {
+        return VectorIndexes.factory(storeType);
+    }
+
+    /** One measured pass over the current version of the corpus, with the rates and peak heap recorded. */
+    protected Pass ingestAndMeasure() {
+        try (MemoryProbe.PeakHeap heap = MemoryProbe.watchPeakHeap()) {
+            long start = System.nanoTime();
+            Pass pass = ingest(currentVersion);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            SecondaryMetrics.record("ingest.docs.rate", "docs/s", pass.documents() / seconds);
+            SecondaryMetrics.record("ingest.chunks.rate", "chunks/s", pass.chunks() / seconds);
+            SecondaryMetrics.record("ingest.heap.peak", "MB", heap.peakBytes() / 1024.0 / 1024.0);
+            SecondaryMetrics.record("ingest.chunks", "#", pass.chunks());
+            SecondaryMetrics.record("ingest.docs.skipped", "#", pass.skipped());
+            SecondaryMetrics.record("ingest.docs.updated", "#", pass.updated());
+            SecondaryMetrics.record("ingest.docs.deleted", "#", pass.deleted());
+            return pass;
+        }
+    }
+
+    /** Brings the store in line with the documents in {@code directory}. */
+    protected Pass ingest(Path directory) {
+        Semaphore inFlight = new Semaphore(concurrentBatches);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Set<String> seen = new HashSet<>();
+        int documents = 0;
+        int skipped = 0;
+        int updated = 0;
+        int chunks = 0;
+
+        List<C> batchChunks = new ArrayList<>(embedBatchSize);
+        List<String> batchSources = new ArrayList<>(embedBatchSize);
+        try (Stream<Path> files = Files.list(directory)) {
+            Iterator<Path> paths = files.filter(SyntheticCorpus::isDocument).iterator();
+            while (paths.hasNext() && failure.get() == null) {
+                Path path = paths.next();
+                // The file name is the document's identity, so the versions of a corpus can live in different directories
+                String source = path.getFileName().toString();
+                seen.add(source);
+                documents++;
+
+                byte[] content = Files.readAllBytes(path);
+                String hash = IngestionManifest.hash(content);
+                if (manifest.unchanged(source, hash)) {
+                    skipped++;
+                    continue;
+                }
+                List<String> stale = manifest.replace(source, hash);
+                if (!stale.isEmpty()) {
+                    remove(store, stale);
+                    updated++;
+                }
+
+                for (C chunk : split(source, new String(content, StandardCharsets.UTF_8))) {
+                    batchChunks.add(chunk);
+                    batchSources.add(source);
+                    chunks++;
+                    if (batchChunks.size() == embedBatchSize) {
+                        submit(new Batch<>(batchChunks, batchSources), inFlight, failure);
+                        batchChunks = new ArrayList<>(embedBatchSize);
+                        batchSources = new ArrayList<>(embedBatchSize);
+                    }
+                }
+            }
+            if (!batchChunks.isEmpty() && failure.get() == null) {
+                submit(new Batch<>(batchChunks, batchSources), inFlight, failure);
+            }
+            // Wait for the last batches: every permit back means nothing is in flight any more
+            inFlight.acquire(concurrentBatches);
+            inFlight.release(concurrentBatches);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read documents from " + directory, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("Ingestion failed", failure.get());
+        }
+
+        int deleted = 0;
+        for (String source : manifest.sources()) {
+            if (!seen.contains(source)) {
+                List<String> stale = manifest.remove(source);
+                if (!stale.isEmpty()) remove(store, stale);
+                deleted++;
+            }
+        }
+        return new Pass(documents, skipped, updated, deleted, chunks);
+    }
+
+    /** Blocks until a batch slot is free (the backpressure on the reader), then embeds the batch on its own thread. */
+    private void submit(Batch<C> batch, Semaphore inFlight, AtomicReference<Throwable> failure) throws InterruptedException {
+        inFlight.acquire();
+        executor.execute(() -> {
+            try {
+                List<String> ids = embedAndStore(store, batch.chunks());
+                for (int i = 0; i < ids.size(); i++) {
+                    manifest.addChunk(batch.sources().get(i), ids.get(i));
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+}
@@ -1,31 +1,91 @@
 package io.github.dariodml.llmcompare4j;
 
 import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 @State(Scope.Thread)
-public abstract class AbstractRagBenchmark {
+public abstract class AbstractRagBenchmark extends AbstractRetrievalBenchmark {
 
-    @Param({
-            "What implies that Java is platform independent?",
-            "How does garbage collection work?"
-    })
+    @Param({PLATFORM_PROMPT, GARBAGE_COLLECTION_PROMPT})
     public String prompt;
 
     @Param({"llama3.2", "mistral", "codellama"})
     public String modelName;
 
-    @Param({"all-minilm", "bge-m3"})
-    public String embeddingModelName;
+    // "on" = record per-stage time and allocations (stage.*) through CallStages, see LangChain4jStages/SpringAiStages
+    @Param({"off"})
+    public String stageBreakdown = "off";
 
-    // The knowledge base we will ingest into the Vector Store
-    protected final List<String> documents = List.of(
-            "Java is a high-level, class-based, object-oriented programming language that is designed to have as few implementation dependencies as possible.",
-            "It is a general-purpose programming language intended to let application developers write once, run anywhere (WORA), meaning that compiled Java code can run on all platforms that support Java without the need for recompilation.",
-            "Java applications are typically compiled to bytecode that can run on any Java virtual machine (JVM) regardless of the underlying computer architecture.",
-            "Garbage collection in Java is the process by which Java programs perform automatic memory management. Java programs compile to bytecode that can be run on a Java Virtual Machine, or JVM.",
-            "When Java programs run on the JVM, objects are created on the heap, which is a portion of memory dedicated to the program. Eventually, some objects will no longer be needed. The garbage collector finds these unused objects and deletes them to free up memory."
-    );
+    // "blocking" = the framework's RAG call (AiServices / ChatClient + QuestionAnswerAdvisor), "async" = ragAsync():
+    // retrieval on virtual threads, then a streamed answer (stream.ttft is the first-token latency)
+    @Param({"blocking"})
+    public String pipeline = "blocking";
+
+    // "on" = ragAsync() also runs a keyword retriever next to the query embedding and adds its hits to the context
+    @Param({"off"})
+    public String keywordRetrieval = "off";
+
+    // Runs the blocking retrieval steps of ragAsync(), so the caller's thread is never held
+    protected final ExecutorService retrievalExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // BM25 over the documents, built on first use by keywordMatches()
+    private Bm25Index documentIndex;
 
     public abstract String rag(String prompt, String modelName);
-}
\ No newline at end of file
+
+    @Override
+    public void closeResources() throws Exception {
+        try {
+            super.closeResources();
+        } finally {
+            retrievalExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Non-blocking RAG: embeds and searches the query (and runs the keyword retriever) concurrently, assembles the
+     * prompt once both are in and streams the answer. Cancelling the future stops the generation.
+     */
+    public abstract CompletableFuture<String> ragAsync(String prompt, String modelName);
+
+    /** The answer of the selected {@code pipeline}. */
+    protected String answer(String prompt) {
+        return "async".equals(pipeline) ? ragAsync(prompt, modelName).join() : rag(prompt, modelName);
+    }
+
+    protected boolean keywordRetrievalEnabled() {
+        return "on".equals(keywordRetrieval);
+    }
+
+    /** The {@code k} best BM25 matches among the documents; a lexical retriever that needs no embedding call. */
+    protected List<String> keywordMatches(String prompt, int k) {
+        if (documentIndex == null) {
+            documentIndex = new Bm25Index(documents);
+        }
+        return documentIndex.search(prompt, k).stream()
+                .map(hit -> documents.get(hit.ordinal()))
+                .collect(Collectors.toList());
+    }
+
+    /** The semantic hits followed by the keyword hits that are not among them. */
+    protected static List<String> mergeContents(List<String> semantic, List<String> keyword) {
+        Set<String> merged = new LinkedHashSet<>(semantic);
+        merged.addAll(keyword);
+        return new ArrayList<>(merged);
+    }
+
+    protected boolean stagesEnabled() {
+        return "on".equals(stageBreakdown);
+    }
+
+    /** The prompt for the next call: the {@code prompt} param, or a unique variant of it for non-repeats. */
+    protected String nextPrompt() {
+        return nextPrompt(prompt);
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RAG benchmark over a large corpus, split into separately measured phases:
+ * ingest (embed + store), retrieval (query embedding + similarity search) and generation (chat call with
+ * the retrieved context). Shows at which corpus size the in-memory stores become the bottleneck.
+ *
+ * <p>The prompt and the chat model are separate states that only the phases using them take, so JMH runs
+ * the ingest phase once per corpus and store, retrieval once per prompt and only generation per chat model.
+ */
+@State(Scope.Thread)
+public abstract class AbstractRagScalingBenchmark<S> extends AbstractRetrievalBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int corpusSize;
+
+    // One chunk per line; empty = seeded synthetic corpus
+    @Param({""})
+    public String corpusFile;
+
+    // Documents are embedded in batches so a 1M corpus never becomes a single request
+    protected static final int INGEST_BATCH_SIZE = 256;
+
+    protected static final String CONTEXT_TEMPLATE = """
+            Answer the question using the context below.
+
+            Context:
+            %s
+
+            Question: %s""";
+
+    // Context per prompt for the generation phase
+    private final Map<String, List<String>> retrievedContexts = new HashMap<>();
+
+    /** The question asked by the retrieval and generation phases. */
+    @State(Scope.Thread)
+    public static class Question {
+
+        @Param({PLATFORM_PROMPT, GARBAGE_COLLECTION_PROMPT})
+        public String prompt;
+    }
+
+    /** The chat model of the generation phase; each framework sets it up in its subclass. */
+    @State(Scope.Thread)
+    public abstract static class Generation {
+
+        @Param({"llama3.2", "mistral", "codellama"})
+        public String modelName;
+
+        /** Generation only: calls the chat model with the given context already in the prompt. */
+        public abstract String generate(String prompt, List<String> context);
+    }
+
+    protected List<String> corpus() {
+        return SyntheticCorpus.load(documents, corpusSize, corpusFile, 42);
+    }
+
+    /** Ingests the corpus into a new store; the ingest phase calls this once per shot. */
+    protected abstract S ingest(List<String> corpus);
+
+    /** Retrieval only: embeds the prompt and searches the store built during setup. */
+    public abstract List<String> retrieve(String prompt);
+
+    /** Ingests the corpus once for the retrieval phase and reports how much heap the store retains. */
+    protected S ingestAndMeasure(List<String> corpus) {
+        long before = MemoryProbe.usedHeapAfterGc();
+        long start = System.nanoTime();
+        S store = closeAfterTrial(ingest(corpus));
+        long elapsed = System.nanoTime() - start;
+        long retained = MemoryProbe.usedHeapAfterGc() - before;
+
+        SecondaryMetrics.recordForTrial("rag.ingest.time", "s", elapsed / 1e9);
+        SecondaryMetrics.recordForTrial("rag.store.heap", "MB", retained / 1024.0 / 1024.0);
+        SecondaryMetrics.recordForTrial("rag.store.bytes.per.chunk", "B/chunk", (double) retained / corpus.size());
+        return store;
+    }
+
+    /**
+     * The context the generation phase answers {@code prompt} with. It is always the same, so generation is measured
+     * on its own; it is retrieved on the first call, which falls in the warmup iteration.
+     */
+    protected List<String> retrievedContext(String prompt) {
+        return retrievedContexts.computeIfAbsent(prompt, this::retrieve);
+    }
+
+    protected static String context(List<String> chunks) {
+        return String.join("\n", chunks);
+    }
+}
@@ -0,0 +1,192 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+
+/**
+ * The embedding, store and retrieval half of the RAG benchmarks, without a chat model: {@link AbstractRagBenchmark}
+ * adds the chat params, while {@link AbstractRagScalingBenchmark} ingests and retrieves without them, so a large
+ * corpus is not embedded again for every chat model.
+ */
+@State(Scope.Thread)
+public abstract class AbstractRetrievalBenchmark {
+
+    // The benchmark prompts, which the documents answer
+    protected static final String PLATFORM_PROMPT = "What implies that Java is platform independent?";
+    protected static final String GARBAGE_COLLECTION_PROMPT = "How does garbage collection work?";
+
+    @Param({"all-minilm", "bge-m3"})
+    public String embeddingModelName;
+
+    // The parameters below are initialized because LoadBenchmark creates benchmarks without JMH
+
+    // "ollama-http" = Ollama's /api/embed, "in-process-onnx" = ONNX model inside the JVM (all-minilm only, so the
+    // ONNX comparison is an explicit run: -p embeddingModelName=all-minilm -p backend=ollama-http,in-process-onnx)
+    @Param({InProcessEmbeddings.OLLAMA_HTTP})
+    public String backend = InProcessEmbeddings.OLLAMA_HTTP;
+
+    // "inmemory" = the framework's own store, "offheap" = OffHeapVectorIndex, "hnsw" = HnswVectorIndex,
+    // "int8"/"binary" = QuantizedVectorIndex, "snapshot" = VectorSnapshot in target/snapshots (embedded once)
+    @Param({VectorIndexes.FRAMEWORK_DEFAULT})
+    public String storeType = VectorIndexes.FRAMEWORK_DEFAULT;
+
+    // HNSW settings, only used with storeType=hnsw
+    @Param({"16"})
+    public int hnswM = 16;
+
+    @Param({"100"})
+    public int hnswEfConstruction = 100;
+
+    @Param({"64"})
+    public int hnswEfSearch = 64;
+
+    // int8/binary settings: candidates rescored per result (0 = the quantization's default), and where the
+    // full-precision vectors live: "offheap" or "disk" (memory-mapped file)
+    @Param({"0"})
+    public int rescoreFactor = 0;
+
+    @Param({"offheap"})
+    public String fullPrecision = "offheap";
+
+    // "none", "memory" = EmbeddingCache on the heap, "disk" = EmbeddingCache backed by target/embedding-cache
+    @Param({"none"})
+    public String embeddingCache = "none";
+
+    @Param({"10000"})
+    public int embeddingCacheEntries = 10000;
+
+    // Share of calls that repeat the prompt; the others get a never-seen-before variant of it
+    @Param({"1.0"})
+    public double repeatRatio = 1.0;
+
+    // "dense" = vector search, "lexical" = Bm25Index only (no embedding call), "hybrid" = both fused by rank,
+    // "lexical-first" = BM25 alone when it finds enough documents, hybrid otherwise (see HybridRetrieval)
+    @Param({HybridRetrieval.DENSE})
+    public String retrieval = HybridRetrieval.DENSE;
+
+    private static final long EMBEDDING_CACHE_MAX_BYTES = 256L * 1024 * 1024;
+
+    // Which of the documents answer the benchmark prompts, for the retrieval hit rate
+    private static final Map<String, List<Integer>> RELEVANT_DOCUMENTS = Map.of(
+            PLATFORM_PROMPT, List.of(1, 2),
+            GARBAGE_COLLECTION_PROMPT, List.of(3, 4));
+
+    // The knowledge base we will ingest into the Vector Store
+    protected final List<String> documents = List.of(
+            "Java is a high-level, class-based, object-oriented programming language that is designed to have as few implementation dependencies as possible.",
+            "It is a general-purpose programming language intended to let application developers write once, run anywhere (WORA), meaning that compiled Java code can run on all platforms that support Java without the need for recompilation.",
+            "Java applications are typically compiled to bytecode that can run on any Java virtual machine (JVM) regardless of the underlying computer architecture.",
+            "Garbage collection in Java is the process by which Java programs perform automatic memory management. Java programs compile to bytecode that can be run on a Java Virtual Machine, or JVM.",
+            "When Java programs run on the JVM, objects are created on the heap, which is a portion of memory dedicated to the program. Eventually, some objects will no longer be needed. The garbage collector finds these unused objects and deletes them to free up memory."
+    );
+
+    // Set from OllamaEndpoint in @Setup
+    protected String baseUrl = OllamaEndpoint.DEFAULT_BASE_URL;
+
+    // Created by createEmbeddingCache(), null without a cache
+    protected EmbeddingCache cache;
+    // Stores holding off-heap memory, mapped files or temporary files (see closeAfterTrial)
+    private final List<AutoCloseable> trialResources = new ArrayList<>();
+    private final SplittableRandom promptRandom = new SplittableRandom(42);
+    private long uniquePrompts;
+
+    /** Index behind the project-provided stores for the selected {@code storeType}. */
+    protected IntFunction<VectorIndex> indexFactory() {
+        if ("hnsw".equals(storeType)) {
+            return VectorIndexes.hnsw(hnswM, hnswEfConstruction, hnswEfSearch);
+        }
+        if ("int8".equals(storeType) || "binary".equals(storeType)) {
+            QuantizedVectorIndex.Quantization quantization = VectorIndexes.quantization(storeType);
+            return VectorIndexes.quantized(quantization,
+                    rescoreFactor > 0 ? rescoreFactor : VectorIndexes.defaultRescoreFactor(quantization),
+                    "disk".equals(fullPrecision));
+        }
+        return VectorIndexes.factory(storeType);
+    }
+
+    /**
+     * Cache for the embedding decorators of the selected {@code embeddingCache} mode, or null for "none". The disk
+     * cache gets a directory per backend and server, since the keys only hold the model name and the text.
+     */
+    protected EmbeddingCache createEmbeddingCache(OllamaEndpoint endpoint) {
+        cache = switch (embeddingCache) {
+            case "none" -> null;
+            case "memory" -> new EmbeddingCache(embeddingCacheEntries, EMBEDDING_CACHE_MAX_BYTES, null);
+            case "disk" -> new EmbeddingCache(embeddingCacheEntries, EMBEDDING_CACHE_MAX_BYTES,
+                    WorkDirectory.resolve("embedding-cache", String.join("-", backend, embeddingSource(endpoint))));
+            default -> throw new IllegalArgumentException("Unknown embedding cache: " + embeddingCache);
+        };
+        return cache;
+    }
+
+    /**
+     * Snapshot file for the knowledge base as embedded by the selected model and backend. The server is part of the
+     * name because the stub's vectors are not the model's.
+     */
+    protected Path snapshotPath(String framework, OllamaEndpoint endpoint) {
+        return WorkDirectory.resolve("snapshots", String.join("-", framework, embeddingModelName, backend,
+                embeddingSource(endpoint), Integer.toHexString(documents.hashCode())) + ".snap");
+    }
+
+    /** Where the vectors come from: the server, or the stub with its dimensions. */
+    protected static String embeddingSource(OllamaEndpoint endpoint) {
+        return "stub".equals(endpoint.server) ? "stub" + endpoint.stubDimensions : endpoint.server;
+    }
+
+    protected boolean lexicalRetrievalEnabled() {
+        return !HybridRetrieval.DENSE.equals(retrieval);
+    }
+
+    /** Builds the BM25 index for the non-dense {@code retrieval} modes and reports its build time and size. */
+    protected Bm25Index lexicalIndex(List<String> texts) {
+        long start = System.nanoTime();
+        Bm25Index index = new Bm25Index(texts);
+        SecondaryMetrics.recordForTrial("bm25.build.time", "s", (System.nanoTime() - start) / 1e9);
+        SecondaryMetrics.recordForTrial("bm25.postings.bytes", "B", index.postingsBytes());
+        return index;
+    }
+
+    /** Records whether the retrieved context contains a document that answers {@code prompt}. */
+    protected void recordHitRate(String prompt, List<String> retrieved) {
+        List<Integer> relevant = RELEVANT_DOCUMENTS.get(prompt);
+        if (relevant == null) return;
+        boolean hit = relevant.stream().anyMatch(index -> retrieved.contains(documents.get(index)));
+        SecondaryMetrics.record("retrieval.hit.rate", "%", hit ? 100 : 0);
+    }
+
+    /** The prompt for the next call: {@code prompt}, or a unique variant of it for non-repeats. */
+    protected String nextPrompt(String prompt) {
+        if (repeatRatio >= 1.0 || promptRandom.nextDouble() < repeatRatio) {
+            return prompt;
+        }
+        return prompt + " (request " + ++uniquePrompts + ")";
+    }
+
+    @TearDown(Level.Iteration)
+    public void recordCacheMetrics() {
+        if (cache != null) {
+            cache.recordMetrics();
+        }
+    }
+
+    /** Registers {@code store} to be closed by {@link #closeResources()} if it is closeable; returns it. */
+    protected <T> T closeAfterTrial(T store) {
+        if (store instanceof AutoCloseable closeable) {
+            trialResources.add(closeable);
+        }
+        return store;
+    }
+
+    @TearDown(Level.Trial)
+    public void closeResources() throws Exception {
+        for (AutoCloseable resource : trialResources) {
+            resource.close();
+        }
+        trialResources.clear();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Chat or RAG calls behind a {@link SemanticCache}, driven by a Zipfian prompt workload: a few prompts are asked
+ * very often, most only rarely. Compare semanticCache=off/on for the throughput gain, and the semantic.cache.*
+ * secondary results (with {@link MetricsProfiler}) for hit rate, time saved and how stale the served answers are.
+ */
+@State(Scope.Thread)
+public abstract class AbstractSemanticCacheBenchmark {
+
+    @Param({"chat", "rag"})
+    public String workload;
+
+    @Param({"llama3.2"})
+    public String modelName;
+
+    @Param({"all-minilm"})
+    public String embeddingModelName;
+
+    @Param({"off", "on"})
+    public String semanticCache;
+
+    @Param({"0.95"})
+    public double similarityThreshold;
+
+    @Param({"300"})
+    public int ttlSeconds;
+
+    @Param({"1000"})
+    public int maxEntries;
+
+    @Param({"1000"})
+    public int distinctPrompts;
+
+    // 0 = uniform; around 1 is typical for user queries
+    @Param({"1.0"})
+    public double zipfExponent;
+
+    protected List<String> prompts;
+    protected SemanticCache cache;
+    private ZipfDistribution zipf;
+
+    @Setup(Level.Trial)
+    public void setupWorkload() {
+        prompts = SyntheticCorpus.load(List.of(), distinctPrompts, "", 7).stream()
+                .map(chunk -> "Explain this statement: " + chunk)
+                .collect(Collectors.toList());
+        zipf = new ZipfDistribution(distinctPrompts, zipfExponent, 42);
+    }
+
+    /** Chat or RAG call without the cache. */
+    protected abstract String generate(String prompt);
+
+    /** Embeds a prompt for the cache lookup. */
+    protected abstract float[] embed(String prompt);
+
+    protected SemanticCache createCache() {
+        return switch (semanticCache) {
+            case "off" -> null;
+            case "on" -> new SemanticCache(this::embed, similarityThreshold, Duration.ofSeconds(ttlSeconds), maxEntries);
+            default -> throw new IllegalArgumentException("Unknown semanticCache: " + semanticCache);
+        };
+    }
+
+    /** Asks the next prompt of the Zipfian workload, through the cache if enabled. */
+    protected String ask() {
+        String prompt = prompts.get(zipf.next());
+        return cache != null ? cache.answer(prompt, this::generate) : generate(prompt);
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Time-to-first-query after a restart: each shot runs in a fresh JVM and makes the knowledge base searchable,
+ * then answers one retrieval. {@code startup=reingest} embeds the corpus again (what the RAG benchmarks do in
+ * their setup), {@code json} loads the framework's own JSON persistence (InMemoryEmbeddingStore.fromFile /
+ * SimpleVectorStore.load) and {@code snapshot} maps a {@link VectorSnapshot}. The JSON file and the snapshot are
+ * written once per corpus in target/snapshots, by the warmup fork, so the measured forks all start from files on
+ * disk. Heap retained and RSS growth are reported as secondary results
+ * (startup.heap, startup.rss) when {@link MetricsProfiler} is enabled.
+ *
+ * @param <S> the framework's store
+ */
+@State(Scope.Thread)
+public abstract class AbstractSnapshotStartupBenchmark<S> {
+
+    @Param({"10000", "100000"})
+    public int corpusSize;
+
+    @Param({"reingest", "json", "snapshot"})
+    public String startup;
+
+    @Param({"all-minilm"})
+    public String embeddingModelName;
+
+    // "ollama-http" = Ollama's /api/embed, "in-process-onnx" = ONNX model inside the JVM (all-minilm only)
+    @Param({InProcessEmbeddings.OLLAMA_HTTP})
+    public String backend;
+
+    protected static final String FIRST_QUERY = "How does garbage collection work?";
+
+    // Documents are embedded in batches so a large corpus never becomes a single request
+    protected static final int INGEST_BATCH_SIZE = 256;
+
+    // Set from OllamaEndpoint in @Setup
+    protected String baseUrl = OllamaEndpoint.DEFAULT_BASE_URL;
+
+    protected List<String> corpus;
+    private Path jsonFile;
+    private Path snapshotFile;
+    private S store;
+    private long heapBefore;
+    private long rssBefore;
+
+    /** A new store holding the whole corpus, embedded now. */
+    protected abstract S reingest();
+
+    protected abstract void writeJson(S store, Path file);
+
+    protected abstract S loadJson(Path file);
+
+    protected abstract void writeSnapshot(Path file);
+
+    protected abstract S openSnapshot(Path file);
+
+    /** One retrieval: embeds the query and searches the store. */
+    protected abstract List<String> retrieve(S store, String query);
+
+    /**
+     * Loads the corpus and writes the file the selected {@code startup} mode reads, unless an earlier fork already
+     * did; called by the subclasses at the end of their setup, once the embedding model exists.
+     */
+    protected void prepare(String framework, OllamaEndpoint endpoint) {
+        corpus = SyntheticCorpus.load(List.of(), corpusSize, "", 42);
+        String source = "stub".equals(endpoint.server) ? "stub" + endpoint.stubDimensions : endpoint.server;
+        String name = String.join("-", "startup", framework, embeddingModelName, backend, source, String.valueOf(corpusSize));
+        jsonFile = WorkDirectory.resolve("snapshots", name + ".json");
+        snapshotFile = WorkDirectory.resolve("snapshots", name + ".snap");
+        try {
+            if ("json".equals(startup) && !Files.exists(jsonFile)) {
+                Files.createDirectories(jsonFile.getParent());
+                writeJson(reingest(), jsonFile);
+            } else if ("snapshot".equals(startup) && !Files.exists(snapshotFile)) {
+                writeSnapshot(snapshotFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create " + jsonFile.getParent(), e);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void recordBaseline() {
+        heapBefore = MemoryProbe.usedHeapAfterGc();
+        rssBefore = MemoryProbe.residentBytes();
+    }
+
+    /** Makes the store searchable the selected way and answers the first query. */
+    protected List<String> startAndQuery() {
+        store = switch (startup) {
+            case "reingest" -> reingest();
+            case "json" -> loadJson(jsonFile);
+            case "snapshot" -> openSnapshot(snapshotFile);
+            default -> throw new IllegalArgumentException("Unknown startup mode: " + startup);
+        };
+        return retrieve(store, FIRST_QUERY);
+    }
+
+    @TearDown(Level.Iteration)
+    public void recordMemory() throws Exception {
+        // RSS first: the GC below would otherwise return memory to the OS before it is read
+        long rss = MemoryProbe.residentBytes();
+        if (rss > 0 && rssBefore > 0) {
+            SecondaryMetrics.record("startup.rss", "MB", (rss - rssBefore) / 1024.0 / 1024.0);
+        }
+        SecondaryMetrics.record("startup.heap", "MB", (MemoryProbe.usedHeapAfterGc() - heapBefore) / 1024.0 / 1024.0);
+        if (store instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        store = null;
+    }
+}
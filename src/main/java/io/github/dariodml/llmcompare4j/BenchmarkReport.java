@@ -0,0 +1,466 @@
+package io.github.dariodml.llmcompare4j;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.github.dariodml.llmcompare4j.ResultStore.Metric;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.util.Statistics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Results of a benchmark run as flat rows keyed on every @Param, collected while the run is in progress
+ * (see {@link #streaming(OutputFormat)}) and exported as CSV, JSON and a self-contained HTML report with
+ * sortable tables, error bars and percentile charts. Rows only keep scores, not iteration data, and every
+ * finished benchmark is appended to the CSV right away, so a long sweep that dies halfway keeps its results.
+ */
+public class BenchmarkReport {
+
+    // Percentile suffix of the metrics SecondaryMetrics.recordNanos() reports, e.g. stream.itl.p99
+    private static final Pattern PERCENTILE = Pattern.compile("(.+)\\.(p\\d+(?:\\.\\d+)?)");
+    private static final double[] SAMPLE_PERCENTILES = {50, 90, 99, 99.9};
+    static final String NO_FRAMEWORK = "No framework";
+
+    /** One benchmark + params combination. */
+    public record Row(String benchmark, String group, String framework, String mode, Map<String, String> params,
+                      double score, double error, String unit, Map<String, Metric> metrics) {
+
+        public String key() {
+            return benchmark + " " + mode + " " + params;
+        }
+    }
+
+    private final Path csvFile;
+    private final List<Row> rows = Collections.synchronizedList(new ArrayList<>());
+
+    /** @param csvFile CSV that every finished benchmark is appended to (it is replaced at the first row) */
+    public BenchmarkReport(Path csvFile) {
+        this.csvFile = csvFile;
+    }
+
+    public List<Row> rows() {
+        synchronized (rows) {
+            return List.copyOf(rows);
+        }
+    }
+
+    public void add(RunResult result) {
+        add(result.getAggregatedResult());
+    }
+
+    public void add(BenchmarkResult result) {
+        BenchmarkParams params = result.getParams();
+        Result<?> primary = result.getPrimaryResult();
+        Map<String, String> paramValues = new TreeMap<>();
+        for (String key : params.getParamsKeys()) {
+            paramValues.put(key, params.getParam(key));
+        }
+
+        Map<String, Metric> metrics = new TreeMap<>();
+        // JMH declares the secondary results with the raw Result type, so they are read without naming it
+        result.getSecondaryResults().forEach((name, metric) -> {
+            if (Double.isNaN(metric.getScore())) return; // Text-only results, e.g. from the jfr profiler
+            metrics.put(name, new Metric(metric.getScore(), metric.getScoreError(), metric.getScoreUnit()));
+        });
+        // SampleTime keeps the full distribution, so its percentiles get their own chart
+        if ("sample".equals(params.getMode().shortLabel())) {
+            Statistics statistics = primary.getStatistics();
+            for (double percentile : SAMPLE_PERCENTILES) {
+                metrics.put("score.p" + formatPercentile(percentile),
+                        new Metric(statistics.getPercentile(percentile), Double.NaN, primary.getScoreUnit()));
+            }
+        }
+
+        Row row = new Row(params.getBenchmark(), group(params), framework(params), params.getMode().shortLabel(),
+                paramValues, primary.getScore(), primary.getScoreError(), primary.getScoreUnit(), metrics);
+        // Runners may finish benchmarks concurrently (ParallelRunner), the CSV header must stay the first line
+        synchronized (rows) {
+            appendCsv(row, rows.isEmpty());
+            rows.add(row);
+        }
+    }
+
+    /**
+     * Wraps JMH's console output so every benchmark is added to this report as soon as it finishes:
+     * {@code new Runner(options, report.streaming(OutputFormatFactory.createFormatInstance(System.out, verbosity)))}.
+     */
+    public OutputFormat streaming(OutputFormat delegate) {
+        return new OutputFormat() {
+            @Override
+            public void iteration(BenchmarkParams benchParams, IterationParams params, int iteration) {
+                delegate.iteration(benchParams, params, iteration);
+            }
+
+            @Override
+            public void iterationResult(BenchmarkParams benchParams, IterationParams params, int iteration, IterationResult data) {
+                delegate.iterationResult(benchParams, params, iteration, data);
+            }
+
+            @Override
+            public void startBenchmark(BenchmarkParams benchParams) {
+                delegate.startBenchmark(benchParams);
+            }
+
+            @Override
+            public void endBenchmark(BenchmarkResult result) {
+                delegate.endBenchmark(result);
+                if (result != null) {
+                    add(result);
+                }
+            }
+
+            @Override
+            public void startRun() {
+                delegate.startRun();
+            }
+
+            @Override
+            public void endRun(Collection<RunResult> result) {
+                delegate.endRun(result);
+            }
+
+            @Override
+            public void print(String s) {
+                delegate.print(s);
+            }
+
+            @Override
+            public void println(String s) {
+                delegate.println(s);
+            }
+
+            @Override
+            public void flush() {
+                delegate.flush();
+            }
+
+            @Override
+            public void close() {
+                delegate.close();
+            }
+
+            @Override
+            public void verbosePrintln(String s) {
+                delegate.verbosePrintln(s);
+            }
+
+            @Override
+            public void write(int b) {
+                delegate.write(b);
+            }
+
+            @Override
+            public void write(byte[] b) throws IOException {
+                delegate.write(b);
+            }
+        };
+    }
+
+    /**
+     * "LangChain4j" or "Spring AI", with the variant (streaming, in-process ONNX) the benchmark uses. The index and
+     * store benchmarks that run without either framework (HnswIndexBenchmark, QuantizedIndexBenchmark,
+     * VectorStoreBenchmark) are labelled {@value #NO_FRAMEWORK}.
+     */
+    static String framework(BenchmarkParams params) {
+        String benchmarkClass = params.getBenchmark();
+        String framework;
+        if (benchmarkClass.contains(".LangChain4j")) {
+            framework = "LangChain4j";
+        } else if (benchmarkClass.contains(".SpringAi")) {
+            framework = "Spring AI";
+        } else {
+            framework = NO_FRAMEWORK;
+        }
+        if (benchmarkClass.contains("Streaming")) {
+            framework += " (streaming)";
+        }
+        if (params.getParamsKeys().contains("backend")
+                && InProcessEmbeddings.IN_PROCESS_ONNX.equals(params.getParam("backend"))) {
+            framework += " (onnx)";
+        }
+        return framework;
+    }
+
+    /** The benchmark without its framework prefix, so both frameworks end up in the same chart. */
+    static String group(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        String method = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+        return method.replaceFirst("^(LangChain4j|SpringAi)", "") + " [" + params.getMode().shortLabel() + "]";
+    }
+
+    private void appendCsv(Row row, boolean first) {
+        List<String> lines = new ArrayList<>();
+        if (first) {
+            lines.add("benchmark,framework,mode,params,metric,score,error,unit");
+        }
+        String prefix = csv(row.benchmark()) + "," + csv(row.framework()) + "," + row.mode() + "," + csv(paramString(row.params())) + ",";
+        lines.add(prefix + "score," + row.score() + "," + row.error() + "," + csv(row.unit()));
+        row.metrics().forEach((name, metric) ->
+                lines.add(prefix + csv(name) + "," + metric.score() + "," + metric.error() + "," + csv(metric.unit())));
+        try {
+            Files.write(csvFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    first ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Error writing " + csvFile + ": " + e.getMessage());
+        }
+    }
+
+    public void writeJson(Path file) throws IOException {
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), rows());
+    }
+
+    /** Writes the HTML report; the charts of the benchmark groups are rendered in parallel. */
+    public void writeHtml(Path file) throws IOException {
+        Map<String, List<Row>> groups = new TreeMap<>();
+        for (Row row : rows()) {
+            groups.computeIfAbsent(row.group(), key -> new ArrayList<>()).add(row);
+        }
+        List<String> sections = groups.entrySet().parallelStream()
+                .map(group -> section(group.getKey(), group.getValue()))
+                .toList();
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("""
+                    <!DOCTYPE html><html><head><meta charset="utf-8"><title>LLMCompare4j Benchmark Report</title><style>
+                    body{font:13px sans-serif;margin:16px;color:#222} h2{margin-top:32px;border-bottom:1px solid #ccc}
+                    table{border-collapse:collapse;margin:8px 0} th,td{border:1px solid #ddd;padding:3px 6px;text-align:left}
+                    th{background:#f3f3f3;cursor:pointer;user-select:none} td.n{text-align:right;font-variant-numeric:tabular-nums}
+                    .constant{color:#666} svg text{font:11px sans-serif}
+                    </style><script>
+                    function sortTable(th){const table=th.closest('table'),body=table.tBodies[0],i=[...th.parentNode.children].indexOf(th);
+                    const asc=th.dataset.asc!=='true';th.dataset.asc=asc;const rows=[...body.rows];
+                    rows.sort((a,b)=>{const x=a.cells[i].dataset.v??a.cells[i].textContent,y=b.cells[i].dataset.v??b.cells[i].textContent;
+                    const p=parseFloat(x),q=parseFloat(y);const c=(!isNaN(p)&&!isNaN(q))?p-q:x.localeCompare(y);return asc?c:-c;});
+                    rows.forEach(r=>body.appendChild(r));}
+                    </script></head><body><h1>LLMCompare4j Benchmark Report</h1>
+                    """);
+            out.write("<p>" + rows().size() + " results in " + groups.size() + " benchmark groups. Click a column header to sort.</p>\n");
+            for (String section : sections) {
+                out.write(section);
+            }
+            out.write("</body></html>\n");
+        }
+    }
+
+    private static String section(String group, List<Row> rows) {
+        // Params that are the same for every row are shown once; the others label the rows
+        Set<String> keys = new TreeSet<>();
+        rows.forEach(row -> keys.addAll(row.params().keySet()));
+        Map<String, String> constant = new TreeMap<>();
+        List<String> varying = new ArrayList<>();
+        for (String key : keys) {
+            Set<String> values = new LinkedHashSet<>();
+            rows.forEach(row -> values.add(row.params().getOrDefault(key, "")));
+            if (values.size() == 1) constant.put(key, values.iterator().next());
+            else varying.add(key);
+        }
+
+        StringBuilder html = new StringBuilder();
+        html.append("<h2>").append(escape(group)).append("</h2>\n");
+        if (!constant.isEmpty()) {
+            html.append("<p class=\"constant\">").append(escape(paramString(constant))).append("</p>\n");
+        }
+
+        List<String> labels = rows.stream().map(row -> label(row, varying)).toList();
+        html.append(barChart(labels, rows.stream().map(Row::score).toList(), rows.stream().map(Row::error).toList(),
+                rows.get(0).unit()));
+        html.append(percentileCharts(rows, labels));
+        html.append(table(rows, varying));
+        return html.toString();
+    }
+
+    private static String label(Row row, List<String> varying) {
+        StringBuilder label = new StringBuilder(row.framework());
+        for (String key : varying) {
+            label.append(", ").append(key).append('=').append(row.params().getOrDefault(key, ""));
+        }
+        return label.toString();
+    }
+
+    private static String table(List<Row> rows, List<String> varying) {
+        Set<String> metricNames = new TreeSet<>();
+        rows.forEach(row -> metricNames.addAll(row.metrics().keySet()));
+
+        StringBuilder html = new StringBuilder("<table><thead><tr><th onclick=\"sortTable(this)\">Framework</th>");
+        for (String key : varying) {
+            html.append("<th onclick=\"sortTable(this)\">").append(escape(key)).append("</th>");
+        }
+        html.append("<th onclick=\"sortTable(this)\">Score</th><th onclick=\"sortTable(this)\">± Error</th><th>Unit</th>");
+        for (String metric : metricNames) {
+            html.append("<th onclick=\"sortTable(this)\">").append(escape(metric)).append("</th>");
+        }
+        html.append("</tr></thead><tbody>\n");
+        for (Row row : rows) {
+            html.append("<tr><td>").append(escape(row.framework())).append("</td>");
+            for (String key : varying) {
+                html.append("<td>").append(escape(row.params().getOrDefault(key, ""))).append("</td>");
+            }
+            html.append(number(row.score())).append(number(row.error())).append("<td>").append(escape(row.unit())).append("</td>");
+            for (String metric : metricNames) {
+                Metric value = row.metrics().get(metric);
+                html.append(value != null ? number(value.score()) : "<td></td>");
+            }
+            html.append("</tr>\n");
+        }
+        return html.append("</tbody></table>\n").toString();
+    }
+
+    /** Horizontal bars (one per row, so large param sweeps stay readable) with ± error whiskers. */
+    private static String barChart(List<String> labels, List<Double> values, List<Double> errors, String unit) {
+        double max = 0;
+        for (int i = 0; i < values.size(); i++) {
+            double error = Double.isFinite(errors.get(i)) ? errors.get(i) : 0;
+            if (Double.isFinite(values.get(i))) max = Math.max(max, values.get(i) + error);
+        }
+        int labelWidth = labelWidth(labels);
+        int barWidth = 560;
+        int rowHeight = 18;
+        int height = labels.size() * rowHeight + 30;
+
+        StringBuilder svg = new StringBuilder();
+        svg.append(String.format(Locale.ROOT, "<svg width=\"%d\" height=\"%d\">", labelWidth + barWidth + 90, height));
+        for (int i = 0; i < labels.size(); i++) {
+            double value = values.get(i);
+            if (!Double.isFinite(value)) continue;
+            int y = i * rowHeight + 4;
+            double width = max > 0 ? value / max * barWidth : 0;
+            svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" text-anchor=\"end\">%s</text>",
+                    labelWidth - 6, y + 12, escape(labels.get(i))));
+            svg.append(String.format(Locale.ROOT, "<rect x=\"%d\" y=\"%d\" width=\"%.1f\" height=\"14\" fill=\"%s\"><title>%s: %s %s</title></rect>",
+                    labelWidth, y, width, color(labels.get(i)), escape(labels.get(i)), format(value), escape(unit)));
+            double error = errors.get(i);
+            if (Double.isFinite(error) && max > 0) {
+                double from = labelWidth + Math.max(0, value - error) / max * barWidth;
+                double to = labelWidth + (value + error) / max * barWidth;
+                svg.append(String.format(Locale.ROOT,
+                        "<path d=\"M%.1f %d V%d M%.1f %d H%.1f M%.1f %d V%d\" stroke=\"#222\" fill=\"none\"/>",
+                        from, y + 2, y + 12, from, y + 7, to, to, y + 2, y + 12));
+            }
+            svg.append(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%d\">%s</text>",
+                    labelWidth + Math.max(width, 0) + 8 + (Double.isFinite(error) && max > 0 ? error / max * barWidth : 0),
+                    y + 12, format(value)));
+        }
+        svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\">%s</text>", labelWidth, height - 6, escape(unit)));
+        return svg.append("</svg>\n").toString();
+    }
+
+    /** One chart per metric that is reported as percentiles (e.g. stream.itl.p50/p90/p99), one bar per percentile. */
+    private static String percentileCharts(List<Row> rows, List<String> labels) {
+        Map<String, Set<String>> percentilesByMetric = new TreeMap<>();
+        for (Row row : rows) {
+            for (String name : row.metrics().keySet()) {
+                Matcher matcher = PERCENTILE.matcher(name);
+                if (matcher.matches()) {
+                    percentilesByMetric.computeIfAbsent(matcher.group(1), key -> new TreeSet<>(BenchmarkReport::comparePercentiles))
+                            .add(matcher.group(2));
+                }
+            }
+        }
+
+        StringBuilder html = new StringBuilder();
+        percentilesByMetric.forEach((metric, percentiles) -> {
+            List<String> chartLabels = new ArrayList<>();
+            List<Double> values = new ArrayList<>();
+            List<Double> errors = new ArrayList<>();
+            String unit = "";
+            for (int i = 0; i < rows.size(); i++) {
+                for (String percentile : percentiles) {
+                    Metric value = rows.get(i).metrics().get(metric + "." + percentile);
+                    if (value == null) continue;
+                    chartLabels.add(labels.get(i) + " " + percentile);
+                    values.add(value.score());
+                    errors.add(value.error());
+                    unit = value.unit();
+                }
+            }
+            html.append("<h3>").append(escape(metric)).append(" percentiles</h3>\n")
+                    .append(barChart(chartLabels, values, errors, unit));
+        });
+        return html.toString();
+    }
+
+    private static int comparePercentiles(String a, String b) {
+        return Double.compare(Double.parseDouble(a.substring(1)), Double.parseDouble(b.substring(1)));
+    }
+
+    private static int labelWidth(List<String> labels) {
+        int longest = labels.stream().mapToInt(String::length).max().orElse(10);
+        return Math.min(900, 40 + longest * 6);
+    }
+
+    private static String color(String label) {
+        if (label.startsWith("LangChain4j")) return label.contains("(") ? "#7fb3d5" : "#2e86c1";
+        if (label.startsWith("Spring AI")) return label.contains("(") ? "#82e0aa" : "#28b463";
+        return "#999";
+    }
+
+    private static String number(double value) {
+        return Double.isFinite(value)
+                ? "<td class=\"n\" data-v=\"" + value + "\">" + format(value) + "</td>"
+                : "<td class=\"n\" data-v=\"\"></td>";
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, Math.abs(value) >= 100 ? "%.1f" : "%.4g", value);
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? Integer.toString((int) percentile) : Double.toString(percentile);
+    }
+
+    private static String paramString(Map<String, String> params) {
+        StringBuilder text = new StringBuilder();
+        params.forEach((key, value) -> text.append(text.isEmpty() ? "" : "; ").append(key).append('=').append(value));
+        return text.toString();
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        return value.contains(",") || value.contains("\"") || value.contains("\n")
+                ? "\"" + value.replace("\"", "\"\"") + "\""
+                : value;
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /** Writes the JSON and HTML report next to the CSV (same name, other extension). */
+    public void writeAll() {
+        String base = csvFile.getFileName().toString().replaceFirst("\\.csv$", "");
+        Path json = csvFile.resolveSibling(base + ".json");
+        Path html = csvFile.resolveSibling(base + ".html");
+        try {
+            writeJson(json);
+            writeHtml(html);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the benchmark report", e);
+        }
+        System.out.println("Report saved as: " + csvFile.toAbsolutePath() + ", " + json.toAbsolutePath() + ", " + html.toAbsolutePath());
+    }
+}
@@ -3,121 +3,255 @@ package io.github.dariodml.llmcompare4j;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
-import org.jfree.chart.axis.CategoryAxis;
 import org.jfree.chart.axis.CategoryLabelPositions;
 import org.jfree.chart.labels.StandardCategoryItemLabelGenerator;
 import org.jfree.chart.plot.CategoryPlot;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.renderer.category.BarRenderer;
 import org.jfree.data.category.DefaultCategoryDataset;
-import org.openjdk.jmh.results.Result;
-import org.openjdk.jmh.results.RunResult;
-import java.awt.*;
+import io.github.dariodml.llmcompare4j.ResultStore.Metric;
+import java.awt.*; // for Font
 import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
-import java.util.Collection;
-import java.awt.*; // for Font
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 public class BenchmarkVisualizer {
 
-    public static void createChart(Collection<RunResult> results) {
+    // Params that are shown through the series (framework variant) instead of the category label
+    private static final Set<String> SERIES_PARAMS = Set.of("backend");
+    // Longer param values (prompts, texts) are cut off in the category label; the HTML report has them in full
+    private static final int CATEGORY_VALUE_LENGTH = 30;
+
+    public static void createChart(List<BenchmarkReport.Row> rows) {
         // Create datasets for all categories
-        Map<String, DefaultCategoryDataset> datasets = new HashMap<>();
+        Map<String, DefaultCategoryDataset> datasets = new LinkedHashMap<>();
         datasets.put("Chat", new DefaultCategoryDataset());
         datasets.put("Embedding", new DefaultCategoryDataset());
         datasets.put("RAG", new DefaultCategoryDataset());
         datasets.put("Memory", new DefaultCategoryDataset());
+        datasets.put("Streaming", new DefaultCategoryDataset());
+        datasets.put("Batch", new DefaultCategoryDataset());
+        datasets.put("Tokens", new DefaultCategoryDataset());
+        datasets.put("Overhead", new DefaultCategoryDataset());
 
-        for (RunResult result : results) {
-            // 1. Collect data
-            double score = result.getPrimaryResult().getScore();
-            String benchmarkClass = result.getParams().getBenchmark();
+        // 1. Sort the rows into charts; each category only has to tell apart the rows of its own chart
+        Map<String, List<BenchmarkReport.Row>> rowsByType = new LinkedHashMap<>();
+        for (BenchmarkReport.Row row : rows) {
+            String type = type(row);
+            if (type != null) {
+                rowsByType.computeIfAbsent(type, key -> new ArrayList<>()).add(row);
+            }
+        }
 
-            String modelName = result.getParams().getParam("modelName");
-            String prompt = result.getParams().getParam("prompt");
+        rowsByType.forEach((type, typeRows) -> {
+            Set<String> varying = varyingParams(typeRows);
+            boolean severalGroups = typeRows.stream().map(BenchmarkReport.Row::group).distinct().count() > 1;
+            for (BenchmarkReport.Row row : typeRows) {
+                // 2. Collect data
+                double score = row.score();
+                String framework = row.framework();
+                String category = category(row, varying, severalGroups);
 
-            // Determine framework (LangChain4j vs Spring AI)
-            String framework = benchmarkClass.contains("LangChain") ? "LangChain4j" : "Spring AI";
+                // Batch embedding: compare the time per embedded item across batch sizes
+                if (type.equals("Batch")) {
+                    Metric perItem = row.metrics().get("embed.per.item");
+                    String concurrentBatches = row.params().get("concurrentBatches");
+                    double perItemMillis = perItem != null ? perItem.score()
+                            : score / Integer.parseInt(row.params().get("batchSize")) / Integer.parseInt(concurrentBatches);
+                    datasets.get("Batch").addValue(perItemMillis, framework, category);
+                    continue;
+                }
 
-            // Shorten prompt for readability on the axis
-            String shortPrompt = (prompt != null && prompt.length() > 25) ? prompt.substring(0, 25) + "..." : prompt;
-            String category = modelName + " (" + shortPrompt + ")";
+                // Token throughput and client overhead, reported by the chat and RAG benchmarks (see ModelUsage)
+                Metric tokenRate = row.metrics().get("model.tokens.rate");
+                Metric overhead = row.metrics().get("model.client.overhead");
 
-            // 2. Determine type (Chat, Embedding, or RAG)
-            String type;
-            if (benchmarkClass.contains("Embedding")) {
-                type = "Embedding";
-            } else if (benchmarkClass.contains("Rag")) {
-                type = "RAG";
-            } else {
-                type = "Chat";
-            }
+                // Add score to the appropriate dataset (Chat/Embedding/RAG)
+                datasets.get(type).addValue(score, framework, category);
 
-            // Add score to the appropriate dataset (Chat/Embedding/RAG)
-            datasets.get(type).addValue(score, framework, category);
+                // 3. Add memory usage
+                Metric memoryResult = row.metrics().get("gc.alloc.rate.norm");
+                if (memoryResult != null) {
+                    double memoryInMB = memoryResult.score() / 1024.0 / 1024.0;
+                    String memoryCategory = type + ": " + category;
+                    datasets.get("Memory").addValue(memoryInMB, framework, memoryCategory);
+                }
 
-            // 3. Add memory usage
-            Result memoryResult = result.getSecondaryResults().get("gc.alloc.rate.norm");
-            if (memoryResult != null) {
-                double memoryInMB = memoryResult.getScore() / 1024.0 / 1024.0;
-                String memoryCategory = type + ": " + category;
-                datasets.get("Memory").addValue(memoryInMB, framework, memoryCategory);
+                // 4. Add tokens per second and the time spent outside the model server
+                if (tokenRate != null) {
+                    datasets.get("Tokens").addValue(tokenRate.score(), framework, type + ": " + category);
+                }
+                if (overhead != null) {
+                    datasets.get("Overhead").addValue(overhead.score(), framework, type + ": " + category);
+                }
+
+                // 5. Add streaming latencies (time-to-first-token and inter-token gaps)
+                Metric ttft = row.metrics().get("stream.ttft");
+                if (ttft != null) {
+                    datasets.get("Streaming").addValue(ttft.score(), framework + " TTFT", category);
+                    for (String percentile : new String[]{"p50", "p99"}) {
+                        Metric gap = row.metrics().get("stream.itl." + percentile);
+                        if (gap != null) {
+                            datasets.get("Streaming").addValue(gap.score(), framework + " inter-token " + percentile, category);
+                        }
+                    }
+                }
             }
-        }
+        });
 
-        // Generate a chart for each type
-        for (Map.Entry<String, DefaultCategoryDataset> entry : datasets.entrySet()) {
+        // Generate a chart for each type; rendering is independent per chart, so they are rendered in parallel
+        datasets.entrySet().parallelStream().forEach(entry -> {
             String type = entry.getKey();
             DefaultCategoryDataset dataset = entry.getValue();
 
-            if (dataset.getColumnCount() == 0) continue;
+            if (dataset.getColumnCount() == 0) return;
 
             // Labels configured based on type
             String valueLabel;
             if (type.equals("Memory")) {
                 valueLabel = "Memory Allocation (MB/op) - Lower is better";
-            } else if (type.equals("Embedding")) {
+            } else if (type.equals("Embedding") || type.equals("Streaming")) {
                 valueLabel = "Time (milliseconds) - Lower is better";
+            } else if (type.equals("Batch")) {
+                valueLabel = "Time per item (milliseconds) - Lower is better";
+            } else if (type.equals("Tokens")) {
+                valueLabel = "Generated tokens per second (wall clock) - Higher is better";
+            } else if (type.equals("Overhead")) {
+                valueLabel = "Client overhead: wall time minus server time (milliseconds) - Lower is better";
             } else {
                 valueLabel = "Time (seconds) - Lower is better";
             }
 
-            JFreeChart barChart = ChartFactory.createBarChart(
-                    "LLM " + type + " Benchmark",
-                    "Model & Input",
-                    valueLabel,
-                    dataset,
-                    PlotOrientation.VERTICAL,
-                    true, true, false);
+            // Set formatting (e.g. 2 decimals for Memory, 3 for time)
+            DecimalFormat format = type.equals("Memory") || type.equals("Streaming") || type.equals("Tokens") || type.equals("Overhead")
+                    ? new DecimalFormat("0.00") : new DecimalFormat("0.000");
+            saveBarChart("LLM " + type + " Benchmark", "Model & Input", valueLabel, dataset,
+                    "benchmark_resultaten_" + type.toLowerCase() + ".png", format);
+        });
+    }
 
-            // 4. FORMATTING: Rotate labels and show values
-            CategoryPlot plot = (CategoryPlot) barChart.getPlot();
+    /** Chat, Embedding, RAG or Batch; null for the index, store and startup benchmarks, which only get a report section. */
+    private static String type(BenchmarkReport.Row row) {
+        String benchmarkClass = row.benchmark();
+        if (row.params().containsKey("batchSize")) {
+            return "Batch";
+        } else if (benchmarkClass.contains("Embedding")) {
+            return "Embedding";
+        } else if (benchmarkClass.contains("Rag")) {
+            return "RAG";
+        } else if (benchmarkClass.contains("Chat")) {
+            return "Chat";
+        }
+        return null;
+    }
 
-            // X-axis labels at an angle (45 degrees)
-            CategoryAxis domainAxis = plot.getDomainAxis();
-            domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_45);
+    /** The @Params that are not the same in every row, so constant params (and long prompts) stay off the axis. */
+    private static Set<String> varyingParams(List<BenchmarkReport.Row> rows) {
+        Map<String, Set<String>> values = new TreeMap<>();
+        for (BenchmarkReport.Row row : rows) {
+            row.params().forEach((key, value) -> values.computeIfAbsent(key, k -> new HashSet<>()).add(value));
+        }
+        Set<String> varying = new TreeSet<>();
+        values.forEach((key, distinct) -> {
+            boolean everyRow = rows.stream().allMatch(row -> row.params().containsKey(key));
+            if (!SERIES_PARAMS.contains(key) && (distinct.size() > 1 || !everyRow)) {
+                varying.add(key);
+            }
+        });
+        return varying;
+    }
 
-            // Show values ABOVE the bars
-            BarRenderer renderer = (BarRenderer) plot.getRenderer();
-            renderer.setDefaultItemLabelsVisible(true);
+    private static String category(BenchmarkReport.Row row, Set<String> varying, boolean severalGroups) {
+        StringBuilder category = new StringBuilder(severalGroups ? row.group() : "");
+        row.params().forEach((key, value) -> {
+            if (!varying.contains(key)) return;
+            String label = value.length() > CATEGORY_VALUE_LENGTH ? value.substring(0, CATEGORY_VALUE_LENGTH - 3) + "..." : value;
+            category.append(category.isEmpty() ? "" : " | ").append(label);
+        });
+        // A chart with a single combination still needs a label
+        return category.isEmpty() ? row.group() : category.toString();
+    }
 
-            // Set formatting (e.g. 2 decimals for Memory, 3 for time)
-            DecimalFormat format = type.equals("Memory") ? new DecimalFormat("0.00") : new DecimalFormat("0.000");
-            renderer.setDefaultItemLabelGenerator(new StandardCategoryItemLabelGenerator("{2}", format));
-
-            // Ensure the label has a readable font
-            renderer.setDefaultItemLabelFont(new Font("SansSerif", Font.PLAIN, 10));
-
-            try {
-                File chartFile = new File("benchmark_resultaten_" + type.toLowerCase() + ".png");
-                ChartUtils.saveChartAsPNG(chartFile, barChart, 1200, 800);
-                System.out.println(type + " Chart saved as: " + chartFile.getAbsolutePath());
-            } catch (IOException e) {
-                System.err.println("Error saving " + type + " chart: " + e.getMessage());
+    public static void createLoadChart(List<LoadBenchmark.LoadResult> results) {
+        DefaultCategoryDataset throughput = new DefaultCategoryDataset();
+        DefaultCategoryDataset latency = new DefaultCategoryDataset();
+
+        for (LoadBenchmark.LoadResult result : results) {
+            String category = result.workload() + " " + result.model() + " (" + result.concurrency() + " threads)";
+            throughput.addValue(result.throughput(), result.framework(), category);
+            latency.addValue(result.percentileMillis(50), result.framework() + " p50", category);
+            latency.addValue(result.percentileMillis(99), result.framework() + " p99", category);
+            latency.addValue(result.percentileMillis(99.9), result.framework() + " p99.9", category);
+        }
+
+        if (throughput.getColumnCount() == 0) return;
+        saveBarChart("LLM Load Benchmark - Throughput", "Throughput (ops/s) - Higher is better",
+                throughput, "benchmark_resultaten_load.png", new DecimalFormat("0.0"));
+        saveBarChart("LLM Load Benchmark - Latency Percentiles", "Latency (milliseconds) - Lower is better",
+                latency, "benchmark_resultaten_load_latency.png", new DecimalFormat("0.00"));
+    }
+
+    public static void createReplayChart(List<TraceReplay.ReplayResult> results) {
+        DefaultCategoryDataset latency = new DefaultCategoryDataset();
+
+        for (TraceReplay.ReplayResult result : results) {
+            String category = result.type() + " " + result.model();
+            latency.addValue(TraceReplay.ReplayResult.millis(result.serviceTimes(), 99), result.framework() + " service p99", category);
+            latency.addValue(TraceReplay.ReplayResult.millis(result.queueDelays(), 99), result.framework() + " queueing p99", category);
+            latency.addValue(TraceReplay.ReplayResult.millis(result.responseTimes(), 50), result.framework() + " response p50", category);
+            latency.addValue(TraceReplay.ReplayResult.millis(result.responseTimes(), 99), result.framework() + " response p99", category);
+        }
+
+        if (latency.getColumnCount() == 0) return;
+        saveBarChart("LLM Trace Replay - Latency", "Request Type & Model", "Latency (milliseconds) - Lower is better",
+                latency, "benchmark_resultaten_replay.png", new DecimalFormat("0.00"));
+    }
+
+    private static void saveBarChart(String title, String valueLabel, DefaultCategoryDataset dataset,
+                                     String fileName, DecimalFormat format) {
+        saveBarChart(title, "Workload, Model & Concurrency", valueLabel, dataset, fileName, format);
+    }
+
+    private static void saveBarChart(String title, String categoryLabel, String valueLabel, DefaultCategoryDataset dataset,
+                                     String fileName, DecimalFormat format) {
+        JFreeChart barChart = ChartFactory.createBarChart(
+                title,
+                categoryLabel,
+                valueLabel,
+                dataset,
+                PlotOrientation.VERTICAL,
+                true, true, false);
+
+        CategoryPlot plot = (CategoryPlot) barChart.getPlot();
+        plot.getDomainAxis().setCategoryLabelPositions(CategoryLabelPositions.UP_45);
+
+        BarRenderer renderer = (BarRenderer) plot.getRenderer();
+        renderer.setDefaultItemLabelsVisible(true);
+        renderer.setDefaultItemLabelGenerator(new StandardCategoryItemLabelGenerator("{2}", format));
+        renderer.setDefaultItemLabelFont(new Font("SansSerif", Font.PLAIN, 10));
+
+        try {
+            File chartFile = new File(fileName);
+            // Grow with the param matrix instead of squeezing every bar into a fixed 1200x800
+            int bars = dataset.getColumnCount() * dataset.getRowCount();
+            int longestLabel = 0;
+            for (Object column : dataset.getColumnKeys()) {
+                longestLabel = Math.max(longestLabel, column.toString().length());
             }
+            int width = Math.max(1200, bars * 28 + 200);
+            int height = 600 + Math.min(longestLabel, 200) * 5;
+            ChartUtils.saveChartAsPNG(chartFile, barChart, width, height);
+            System.out.println(title + " chart saved as: " + chartFile.getAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Error saving " + title + " chart: " + e.getMessage());
         }
     }
 }
\ No newline at end of file
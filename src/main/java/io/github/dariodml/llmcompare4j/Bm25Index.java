@@ -0,0 +1,267 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-process BM25 inverted index over a fixed list of texts. Lexical retrieval needs no embedding call, so it
+ * answers in microseconds and finds exact terms (names, flags, error codes) a dense model can blur.
+ * <p>
+ * Everything is kept in primitive arrays: an open-addressing term dictionary ({@code String[]} to {@code int}),
+ * and one {@code byte[]} with every posting list, each stored as (doc-ID gap, term frequency) pairs in variable-length
+ * encoding. Doc IDs are ascending, so most gaps fit in one byte. A query walks the posting lists of its terms
+ * document-at-a-time and keeps the best {@code k} in a {@link TopK}, so searching allocates nothing per document.
+ */
+public class Bm25Index {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_TERM_LENGTH = 2;
+
+    // Term dictionary: open addressing, linear probing; ids are assigned in order of first appearance
+    private String[] keys;
+    private int[] ids;
+    private int termCount;
+
+    // Per term: where its postings start in the postings array, and in how many documents it occurs
+    private final int[] postingsStart;
+    private final int[] docFrequencies;
+    private byte[] postings;
+    private int postingsLength;
+
+    // Per document: k1 * (1 - b + b * length / average length), the length part of the BM25 denominator
+    private final float[] lengthNorms;
+    private final int size;
+
+    public Bm25Index(List<String> texts) {
+        size = texts.size();
+        keys = new String[1024];
+        ids = new int[1024];
+
+        // 1. Tokenize every document once into term ids; the postings are appended per term, so doc IDs stay ascending
+        int[][] termDocs = new int[256][];
+        int[][] termFreqs = new int[256][];
+        int[] termPostings = new int[256];
+        int[] lengths = new int[size];
+        long totalLength = 0;
+        for (int doc = 0; doc < size; doc++) {
+            int[] terms = tokenize(texts.get(doc), true);
+            lengths[doc] = terms.length;
+            totalLength += terms.length;
+            Arrays.sort(terms);
+            for (int i = 0; i < terms.length; ) {
+                int term = terms[i];
+                int frequency = 0;
+                while (i < terms.length && terms[i] == term) {
+                    frequency++;
+                    i++;
+                }
+                if (term >= termDocs.length) {
+                    int capacity = Math.max(term + 1, termDocs.length * 2);
+                    termDocs = Arrays.copyOf(termDocs, capacity);
+                    termFreqs = Arrays.copyOf(termFreqs, capacity);
+                    termPostings = Arrays.copyOf(termPostings, capacity);
+                }
+                if (termDocs[term] == null) {
+                    termDocs[term] = new int[4];
+                    termFreqs[term] = new int[4];
+                } else if (termPostings[term] == termDocs[term].length) {
+                    termDocs[term] = Arrays.copyOf(termDocs[term], termPostings[term] * 2);
+                    termFreqs[term] = Arrays.copyOf(termFreqs[term], termPostings[term] * 2);
+                }
+                termDocs[term][termPostings[term]] = doc;
+                termFreqs[term][termPostings[term]] = frequency;
+                termPostings[term]++;
+            }
+        }
+
+        // 2. Compress: every posting list becomes (gap, frequency) varints in one shared array
+        postingsStart = new int[termCount + 1];
+        docFrequencies = new int[termCount];
+        postings = new byte[Math.max(16, termCount * 8)];
+        for (int term = 0; term < termCount; term++) {
+            postingsStart[term] = postingsLength;
+            docFrequencies[term] = termPostings[term];
+            int previous = 0;
+            for (int i = 0; i < termPostings[term]; i++) {
+                writeVarInt(termDocs[term][i] - previous);
+                writeVarInt(termFreqs[term][i]);
+                previous = termDocs[term][i];
+            }
+            termDocs[term] = null;
+            termFreqs[term] = null;
+        }
+        postingsStart[termCount] = postingsLength;
+        postings = Arrays.copyOf(postings, postingsLength);
+
+        float averageLength = size == 0 ? 1f : Math.max(1f, (float) totalLength / size);
+        lengthNorms = new float[size];
+        for (int doc = 0; doc < size; doc++) {
+            lengthNorms[doc] = K1 * (1 - B + B * lengths[doc] / averageLength);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int terms() {
+        return termCount;
+    }
+
+    /** Bytes of the compressed posting lists. */
+    public long postingsBytes() {
+        return postingsLength;
+    }
+
+    /** The {@code k} best matching documents by BM25 score; documents sharing no term with the query are never returned. */
+    public List<VectorIndex.Hit> search(String query, int k) {
+        int[] terms = distinct(tokenize(query, false));
+        int count = terms.length;
+        // Cursor per query term: position in postings, postings left, current doc and its frequency
+        int[] positions = new int[count];
+        int[] remaining = new int[count];
+        int[] docs = new int[count];
+        int[] frequencies = new int[count];
+        float[] idfs = new float[count];
+        for (int i = 0; i < count; i++) {
+            int term = terms[i];
+            positions[i] = postingsStart[term];
+            remaining[i] = docFrequencies[term];
+            idfs[i] = (float) Math.log(1 + (size - docFrequencies[term] + 0.5) / (docFrequencies[term] + 0.5));
+            docs[i] = -1;
+            advance(i, positions, remaining, docs, frequencies);
+        }
+
+        TopK top = new TopK(k);
+        while (true) {
+            // 1. The next document is the smallest one any cursor is on
+            int doc = Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                if (docs[i] < doc) doc = docs[i];
+            }
+            if (doc == Integer.MAX_VALUE) break;
+
+            // 2. Sum the contributions of the terms on that document and move their cursors on
+            float score = 0f;
+            for (int i = 0; i < count; i++) {
+                if (docs[i] != doc) continue;
+                int tf = frequencies[i];
+                score += idfs[i] * tf * (K1 + 1) / (tf + lengthNorms[doc]);
+                advance(i, positions, remaining, docs, frequencies);
+            }
+            if (score > top.threshold()) {
+                top.offer(doc, score);
+            }
+        }
+        return top.toHits();
+    }
+
+    private void advance(int cursor, int[] positions, int[] remaining, int[] docs, int[] frequencies) {
+        if (remaining[cursor] == 0) {
+            docs[cursor] = Integer.MAX_VALUE;
+            return;
+        }
+        int position = positions[cursor];
+        int gap = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = postings[position++];
+            gap |= (b & 0x7f) << shift;
+            if (b >= 0) break;
+        }
+        int frequency = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = postings[position++];
+            frequency |= (b & 0x7f) << shift;
+            if (b >= 0) break;
+        }
+        // The first gap of a list is the doc ID itself
+        docs[cursor] = docs[cursor] < 0 ? gap : docs[cursor] + gap;
+        frequencies[cursor] = frequency;
+        positions[cursor] = position;
+        remaining[cursor]--;
+    }
+
+    /**
+     * Term ids of the lower-cased letter/digit runs of at least two characters. While building, new terms are added
+     * to the dictionary; a query skips terms the index has never seen.
+     */
+    private int[] tokenize(String text, boolean add) {
+        int[] terms = new int[16];
+        int count = 0;
+        int length = text.length();
+        for (int start = 0; start < length; ) {
+            while (start < length && !Character.isLetterOrDigit(text.charAt(start))) start++;
+            int end = start;
+            while (end < length && Character.isLetterOrDigit(text.charAt(end))) end++;
+            if (end - start >= MIN_TERM_LENGTH) {
+                String term = text.substring(start, end).toLowerCase(Locale.ROOT);
+                int id = add ? idOrAdd(term) : id(term);
+                if (id >= 0) {
+                    if (count == terms.length) terms = Arrays.copyOf(terms, count * 2);
+                    terms[count++] = id;
+                }
+            }
+            start = end;
+        }
+        return Arrays.copyOf(terms, count);
+    }
+
+    private int id(String term) {
+        int mask = keys.length - 1;
+        for (int slot = term.hashCode() & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot].equals(term)) return ids[slot];
+        }
+        return -1;
+    }
+
+    private int idOrAdd(String term) {
+        int mask = keys.length - 1;
+        int slot = term.hashCode() & mask;
+        for (; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot].equals(term)) return ids[slot];
+        }
+        keys[slot] = term;
+        ids[slot] = termCount;
+        if (++termCount * 2 > keys.length) {
+            rehash();
+        }
+        return termCount - 1;
+    }
+
+    private void rehash() {
+        String[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new String[oldKeys.length * 2];
+        ids = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+            int slot = oldKeys[i].hashCode() & mask;
+            while (keys[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            ids[slot] = oldIds[i];
+        }
+    }
+
+    private void writeVarInt(int value) {
+        if (postings.length - postingsLength < 5) {
+            postings = Arrays.copyOf(postings, postings.length * 2);
+        }
+        while ((value & ~0x7f) != 0) {
+            postings[postingsLength++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        postings[postingsLength++] = (byte) value;
+    }
+
+    private static int[] distinct(int[] terms) {
+        Arrays.sort(terms);
+        int count = 0;
+        for (int i = 0; i < terms.length; i++) {
+            if (i == 0 || terms[i] != terms[i - 1]) terms[count++] = terms[i];
+        }
+        return Arrays.copyOf(terms, count);
+    }
+}
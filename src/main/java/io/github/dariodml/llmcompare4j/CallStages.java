@@ -0,0 +1,111 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-stage breakdown of one framework call (retrieval, embedding, prompt augmentation, request mapping,
+ * HTTP exchange, response mapping). The framework hooks in {@link LangChain4jStages} and {@link SpringAiStages}
+ * open a stage when the call enters it; when it closes, the stage's <em>self</em> time and allocated bytes
+ * (its total minus the nested stages) are recorded as secondary metrics {@code stage.<name>.time} (ms) and
+ * {@code stage.<name>.alloc} (bytes), averaged per occurrence. Stages that occur once per call therefore add
+ * up to the whole call, and {@code stage.call} is what the framework spends outside every hooked stage
+ * (proxying, content extraction).
+ *
+ * <p>Stages are only recorded inside {@link #call()}, so hooks that also fire during setup (e.g. embeddings
+ * during ingestion) stay silent. Allocations are read from the calling thread's allocation counter, so work
+ * the HTTP client does on its own threads (the JDK client's selector thread) is not included. The
+ * stack of open stages is preallocated, but recording a closed stage goes through {@link SecondaryMetrics} and
+ * boxes its values; that cost is charged to neither the stage nor the enclosing stages.
+ */
+public final class CallStages {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final Map<String, String[]> METRIC_NAMES = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Frames> FRAMES = ThreadLocal.withInitial(Frames::new);
+
+    private static final Stage NO_STAGE = () -> { };
+
+    private CallStages() {
+    }
+
+    /**
+     * A stage that is closed at the end of a try-with-resources block. The block never references it, so callers
+     * suppress the {@code try} lint.
+     */
+    public interface Stage extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /** Opens the root stage {@code call}; nested stages are only recorded while it is open. */
+    public static Stage call() {
+        return FRAMES.get().push("call");
+    }
+
+    /** Opens a stage nested in the innermost open one, or does nothing outside {@link #call()}. */
+    public static Stage open(String name) {
+        Frames frames = FRAMES.get();
+        return frames.depth == 0 ? NO_STAGE : frames.push(name);
+    }
+
+    /**
+     * Closes the innermost open stage and opens {@code name} in its place, for hooks that only see a boundary
+     * (e.g. a listener called between request mapping and the HTTP exchange) rather than a whole stage.
+     */
+    public static void next(String name) {
+        Frames frames = FRAMES.get();
+        if (frames.depth <= 1) return; // Only the root (or nothing) is open
+        frames.pop();
+        frames.push(name);
+    }
+
+    private static final class Frames implements Stage {
+        private static final int MAX_DEPTH = 32;
+
+        private final String[] names = new String[MAX_DEPTH];
+        private final long[] startNanos = new long[MAX_DEPTH];
+        private final long[] startBytes = new long[MAX_DEPTH];
+        private final long[] childNanos = new long[MAX_DEPTH];
+        private final long[] childBytes = new long[MAX_DEPTH];
+        private int depth;
+
+        private Frames push(String name) {
+            if (depth == MAX_DEPTH) throw new IllegalStateException("Stages nested deeper than " + MAX_DEPTH);
+            names[depth] = name;
+            childNanos[depth] = 0;
+            childBytes[depth] = 0;
+            startBytes[depth] = THREADS.getCurrentThreadAllocatedBytes();
+            startNanos[depth] = System.nanoTime();
+            depth++;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            pop();
+        }
+
+        private void pop() {
+            long endNanos = System.nanoTime();
+            long endBytes = THREADS.getCurrentThreadAllocatedBytes();
+            int frame = --depth;
+
+            String[] metrics = METRIC_NAMES.computeIfAbsent(names[frame],
+                    name -> new String[]{"stage." + name + ".time", "stage." + name + ".alloc"});
+            SecondaryMetrics.record(metrics[0], "ms", (endNanos - startNanos[frame] - childNanos[frame]) / 1_000_000.0);
+            SecondaryMetrics.record(metrics[1], "B", endBytes - startBytes[frame] - childBytes[frame]);
+
+            // Charge the whole child, including the recording above, to the parent's nested stages
+            if (frame > 0) {
+                childNanos[frame - 1] += System.nanoTime() - startNanos[frame];
+                childBytes[frame - 1] += THREADS.getCurrentThreadAllocatedBytes() - startBytes[frame];
+            }
+            names[frame] = null;
+        }
+    }
+}
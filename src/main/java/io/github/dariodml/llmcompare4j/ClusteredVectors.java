@@ -0,0 +1,47 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.util.SplittableRandom;
+
+/**
+ * Seeded Gaussian clusters for the index benchmarks: like real embeddings they have neighbourhood structure,
+ * unlike uniform random vectors where every point is about equally far from every other one.
+ */
+final class ClusteredVectors {
+
+    private final SplittableRandom random;
+    private final float[][] centers;
+
+    ClusteredVectors(int dimensions, int clusters, long seed) {
+        random = new SplittableRandom(seed);
+        centers = new float[clusters][];
+        for (int i = 0; i < clusters; i++) {
+            centers[i] = around(new float[dimensions], 1);
+        }
+    }
+
+    /** Vectors around randomly picked cluster centers. */
+    float[][] vectors(int count) {
+        float[][] vectors = new float[count][];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = around(centers[random.nextInt(centers.length)], 1);
+        }
+        return vectors;
+    }
+
+    /** Queries close to, but not exactly on, randomly picked vectors. */
+    float[][] queries(float[][] vectors, int count) {
+        float[][] queries = new float[count][];
+        for (int i = 0; i < count; i++) {
+            queries[i] = around(vectors[random.nextInt(vectors.length)], 0.5);
+        }
+        return queries;
+    }
+
+    private float[] around(float[] center, double spread) {
+        float[] vector = new float[center.length];
+        for (int i = 0; i < center.length; i++) {
+            vector[i] = center[i] + (float) (random.nextGaussian() * spread);
+        }
+        return vector;
+    }
+}
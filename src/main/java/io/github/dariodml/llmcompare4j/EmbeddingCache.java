@@ -0,0 +1,313 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded embedding cache shared by {@link LangChain4jCachingEmbeddingModel} and {@link SpringAiCachingEmbeddingModel}.
+ * Keys are the model name plus a SHA-256 of the text, so an entry is only reused for the exact same input.
+ *
+ * <p>Eviction follows W-TinyLFU (the policy behind Caffeine): new entries land in a small LRU window, and an
+ * entry leaving the window only enters the main segmented LRU if a count-min sketch says it is used more often
+ * than the entry it would evict. One-off queries therefore cannot flush out the frequently repeated ones.
+ * The cache is bounded by entry count and by (estimated) bytes. With a directory it also writes every vector
+ * to disk and reads misses back from there, so re-ingestion in a new JVM still skips the embedding call. A file
+ * whose length does not match the vectors seen so far is treated as a miss, so give each backend and server its
+ * own directory.
+ */
+public class EmbeddingCache {
+
+    // Estimated heap cost of an entry on top of the vector: key string, map node, array header
+    private static final int ENTRY_OVERHEAD = 160;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Path directory;
+
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final LinkedHashMap<String, float[]> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, float[]> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, float[]> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long bytes;
+    // Length of the vectors put or read so far, 0 until the first one
+    private volatile int dimensions;
+
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+    private long reportedHits;
+    private long reportedDiskHits;
+    private long reportedMisses;
+    private long reportedEvictions;
+
+    /**
+     * @param maxEntries maximum number of vectors kept in memory
+     * @param maxBytes   maximum estimated heap used by the cached vectors
+     * @param directory  directory for the persistent copy, or null for memory only
+     */
+    public EmbeddingCache(int maxEntries, long maxBytes, Path directory) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be positive but was " + maxEntries);
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+        this.windowCapacity = Math.max(1, maxEntries / 100);
+        this.protectedCapacity = (int) ((maxEntries - windowCapacity) * 0.8);
+        this.sketch = new FrequencySketch(maxEntries);
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create embedding cache directory " + directory, e);
+            }
+        }
+    }
+
+    /** Cache key for a text embedded by the given model. */
+    public static String key(String modelName, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return modelName + "-" + HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /** The cached vector, or null on a miss. */
+    public float[] get(String key) {
+        float[] vector;
+        synchronized (this) {
+            sketch.increment(key);
+            vector = lookup(key);
+            if (vector != null) {
+                hits++;
+                return vector;
+            }
+        }
+
+        vector = directory != null ? readFromDisk(key) : null;
+        synchronized (this) {
+            if (vector == null) {
+                misses++;
+                return null;
+            }
+            diskHits++;
+            insert(key, vector);
+            if (dimensions == 0) dimensions = vector.length;
+        }
+        return vector;
+    }
+
+    public void put(String key, float[] vector) {
+        synchronized (this) {
+            sketch.increment(key);
+            if (lookup(key) == null) {
+                insert(key, vector);
+            }
+            if (dimensions == 0) dimensions = vector.length;
+        }
+        if (directory != null) {
+            writeToDisk(key, vector);
+        }
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Records the hit rate and evictions since the previous call as secondary metrics
+     * (embed.cache.hit.rate, embed.cache.disk.hit.rate, embed.cache.evictions) plus the current size.
+     */
+    public synchronized void recordMetrics() {
+        long lookups = (hits - reportedHits) + (diskHits - reportedDiskHits) + (misses - reportedMisses);
+        if (lookups > 0) {
+            SecondaryMetrics.record("embed.cache.hit.rate", "%", 100.0 * (hits - reportedHits) / lookups);
+            if (directory != null) {
+                SecondaryMetrics.record("embed.cache.disk.hit.rate", "%", 100.0 * (diskHits - reportedDiskHits) / lookups);
+            }
+        }
+        SecondaryMetrics.record("embed.cache.evictions", "#", evictions - reportedEvictions);
+        SecondaryMetrics.record("embed.cache.entries", "#", size());
+        SecondaryMetrics.record("embed.cache.memory", "MB", bytes / 1024.0 / 1024.0);
+        reportedHits = hits;
+        reportedDiskHits = diskHits;
+        reportedMisses = misses;
+        reportedEvictions = evictions;
+    }
+
+    private float[] lookup(String key) {
+        float[] vector = window.get(key);
+        if (vector != null) return vector;
+
+        vector = protectedSegment.get(key);
+        if (vector != null) return vector;
+
+        // A second hit promotes an entry from probation to the protected segment
+        vector = probation.remove(key);
+        if (vector != null) {
+            protectedSegment.put(key, vector);
+            if (protectedSegment.size() > protectedCapacity) {
+                Map.Entry<String, float[]> demoted = removeEldest(protectedSegment);
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+        return vector;
+    }
+
+    private void insert(String key, float[] vector) {
+        window.put(key, vector);
+        bytes += weight(vector);
+
+        if (window.size() > windowCapacity) {
+            Map.Entry<String, float[]> candidate = removeEldest(window);
+            if (size() < maxEntries) {
+                probation.put(candidate.getKey(), candidate.getValue());
+            } else {
+                admitOrReject(candidate);
+            }
+        }
+        while (bytes > maxBytes && size() > 0) {
+            evict(victimSegment());
+        }
+    }
+
+    /** TinyLFU admission: the window's eldest entry replaces the main victim only if it is used more often. */
+    private void admitOrReject(Map.Entry<String, float[]> candidate) {
+        LinkedHashMap<String, float[]> victims = victimSegment();
+        String victim = victims.keySet().iterator().next();
+        if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+            evict(victims);
+            probation.put(candidate.getKey(), candidate.getValue());
+        } else {
+            bytes -= weight(candidate.getValue());
+            evictions++;
+        }
+    }
+
+    private LinkedHashMap<String, float[]> victimSegment() {
+        if (!probation.isEmpty()) return probation;
+        if (!protectedSegment.isEmpty()) return protectedSegment;
+        return window;
+    }
+
+    private void evict(LinkedHashMap<String, float[]> segment) {
+        bytes -= weight(removeEldest(segment).getValue());
+        evictions++;
+    }
+
+    private static Map.Entry<String, float[]> removeEldest(LinkedHashMap<String, float[]> segment) {
+        Iterator<Map.Entry<String, float[]>> eldest = segment.entrySet().iterator();
+        Map.Entry<String, float[]> entry = eldest.next();
+        eldest.remove();
+        return entry;
+    }
+
+    private static long weight(float[] vector) {
+        return ENTRY_OVERHEAD + (long) vector.length * Float.BYTES;
+    }
+
+    private float[] readFromDisk(String key) {
+        Path file = directory.resolve(key + ".bin");
+        if (!Files.exists(file)) return null;
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            int length = bytes.length / Float.BYTES;
+            if (bytes.length == 0 || bytes.length % Float.BYTES != 0 || (dimensions != 0 && length != dimensions)) {
+                // Deleted, so put() writes the vector of this cache in its place
+                System.err.println("Discarding cached embedding " + file + " of " + bytes.length + " bytes"
+                        + (dimensions != 0 ? ", expected " + dimensions + " floats" : ""));
+                Files.deleteIfExists(file);
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            float[] vector = new float[length];
+            buffer.asFloatBuffer().get(vector);
+            return vector;
+        } catch (IOException e) {
+            System.err.println("Error reading cached embedding " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, float[] vector) {
+        Path file = directory.resolve(key + ".bin");
+        if (Files.exists(file)) return;
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        try {
+            // Write to a temp file first so a concurrent reader never sees a half-written vector
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temp, buffer.array());
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Error writing cached embedding " + file + ": " + e.getMessage());
+        }
+    }
+
+    /** Count-min sketch with 4-bit counters that are halved periodically, so old popularity fades. */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maxEntries) {
+            int width = Integer.highestOneBit(Math.max(16, maxEntries) * 2 - 1);
+            counters = new byte[DEPTH][width];
+            mask = width - 1;
+            sampleSize = 10 * Math.max(16, maxEntries);
+        }
+
+        void increment(String key) {
+            int hash = spread(key.hashCode());
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(hash, row);
+                if (counters[row][index] < 15) counters[row][index]++;
+            }
+            if (++additions == sampleSize) {
+                for (byte[] row : counters) {
+                    for (int i = 0; i < row.length; i++) row[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int frequency = Integer.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counters[row][index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * (0x9E3779B9 + 2 * row + 1);
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            hash ^= hash >>> 11;
+            return hash;
+        }
+    }
+}
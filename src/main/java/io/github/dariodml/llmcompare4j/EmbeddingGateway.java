@@ -0,0 +1,162 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Request coalescing in front of an embedding model, shared by {@link LangChain4jBatchingEmbeddingModel} and
+ * {@link SpringAiBatchingEmbeddingModel}. Concurrent callers get a future per text; the gateway
+ * <ul>
+ *     <li>dedupes identical texts that are already in flight (single-flight): they share one embedding</li>
+ *     <li>merges the remaining texts into micro-batches of at most {@code maxBatchSize}, sent once the batch is
+ *     full or {@code maxWait} after its first text arrived, whichever comes first</li>
+ * </ul>
+ * Batches are sent from virtual threads, so several can be in flight at once. A longer wait gives fuller batches
+ * and fewer round trips, but every text in the batch pays for it in latency. The batch size and the share of
+ * coalesced texts are reported as gateway.batch.size and gateway.coalesced.
+ */
+public class EmbeddingGateway implements AutoCloseable {
+
+    private final Function<List<String>, List<float[]>> embedAll;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+
+    private final Map<String, CompletableFuture<float[]>> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition arrived = lock.newCondition();
+    private final List<Request> pending = new ArrayList<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread flusher;
+    private long firstPendingAt;
+    private boolean closed;
+
+    /**
+     * @param embedAll     embeds a batch with one model call, returning the vectors in input order
+     * @param maxBatchSize maximum number of texts per call
+     * @param maxWait      how long the first text of a batch waits for others; zero sends whatever is pending
+     */
+    public EmbeddingGateway(Function<List<String>, List<float[]>> embedAll, int maxBatchSize, Duration maxWait) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be positive but was " + maxBatchSize);
+        this.embedAll = embedAll;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.flusher = Thread.ofPlatform().daemon().name("embedding-gateway").start(this::flushLoop);
+    }
+
+    /** The embedding of {@code text}; cancelling the returned future does not affect other callers of the same text. */
+    public CompletableFuture<float[]> embed(String text) {
+        CompletableFuture<float[]> created = new CompletableFuture<>();
+        CompletableFuture<float[]> shared = inFlight.putIfAbsent(text, created);
+        SecondaryMetrics.record("gateway.coalesced", "%", shared != null ? 100 : 0);
+        if (shared != null) {
+            return shared.copy();
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                inFlight.remove(text, created);
+                created.completeExceptionally(new IllegalStateException("Embedding gateway is closed"));
+            } else {
+                if (pending.isEmpty()) firstPendingAt = System.nanoTime();
+                pending.add(new Request(text, created));
+                arrived.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return created.copy();
+    }
+
+    /** Embeds all texts through the gateway and waits for them; the vectors are in input order. */
+    public List<float[]> embedAll(List<String> texts) {
+        List<CompletableFuture<float[]>> futures = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            futures.add(embed(text));
+        }
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (CompletableFuture<float[]> future : futures) {
+            vectors.add(future.join());
+        }
+        return vectors;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            arrived.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        senders.close();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<Request> batch;
+            lock.lock();
+            try {
+                // 1. Wait for the batch to fill up, or for its first text to have waited long enough
+                while (!closed) {
+                    if (pending.isEmpty()) {
+                        arrived.awaitUninterruptibly();
+                        continue;
+                    }
+                    long waitLeft = firstPendingAt + maxWaitNanos - System.nanoTime();
+                    if (pending.size() >= maxBatchSize || waitLeft <= 0) break;
+                    arrived.awaitNanos(waitLeft);
+                }
+                if (closed && pending.isEmpty()) return;
+
+                // 2. Take one batch; whatever is left starts the next window now
+                List<Request> head = pending.subList(0, Math.min(maxBatchSize, pending.size()));
+                batch = new ArrayList<>(head);
+                head.clear();
+                firstPendingAt = System.nanoTime();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            senders.execute(() -> send(batch));
+        }
+    }
+
+    private void send(List<Request> batch) {
+        SecondaryMetrics.record("gateway.batch.size", "texts/batch", batch.size());
+        try {
+            List<float[]> vectors = embedAll.apply(batch.stream().map(Request::text).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                done(batch.get(i)).complete(vectors.get(i));
+            }
+        } catch (RuntimeException e) {
+            for (Request request : batch) {
+                done(request).completeExceptionally(e);
+            }
+        }
+    }
+
+    /** Leaves the in-flight map first, so a caller woken by the result cannot join a request that is already done. */
+    private CompletableFuture<float[]> done(Request request) {
+        inFlight.remove(request.text(), request.future());
+        return request.future();
+    }
+
+    private record Request(String text, CompletableFuture<float[]> future) {
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency/recall trade-off of {@link HnswVectorIndex}: query latency is the primary score, while
+ * index.build.time and recall@k (against exact search with {@link OffHeapVectorIndex}) are reported as
+ * secondary results when {@link MetricsProfiler} is enabled. Vectors are seeded Gaussian clusters
+ * ({@link ClusteredVectors}). The graph is built once per size, m and efConstruction and kept in
+ * target/hnsw; every efSearch fork searches that same graph. index.build.time is only reported by the
+ * fork that built it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, warmups = 0, jvmArgsAppend = {"-Xmx8g", "--add-modules=jdk.incubator.vector"})
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class HnswIndexBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"384"})
+    public int dimensions;
+
+    @Param({"8", "16", "32"})
+    public int m;
+
+    @Param({"100", "200"})
+    public int efConstruction;
+
+    @Param({"16", "64", "256"})
+    public int efSearch;
+
+    @Param({"10"})
+    public int topK;
+
+    private static final int QUERIES = 100;
+    private static final int CLUSTERS = 1000;
+    private static final long SEED = 42;
+
+    private float[][] queries;
+    private HnswVectorIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ClusteredVectors clusters = new ClusteredVectors(dimensions, CLUSTERS, SEED);
+        float[][] vectors = clusters.vectors(size);
+        queries = clusters.queries(vectors, QUERIES);
+
+        // 1. Build the graph once per (size, dimensions, m, efConstruction) and data set; efSearch only affects
+        //    queries, so the forks for the other efSearch values load the graph instead of rebuilding it. The file
+        //    format version is part of the name, so a graph from an older HnswVectorIndex is never loaded
+        String name = String.join("-", "graph-v" + HnswVectorIndex.VERSION, String.valueOf(size),
+                String.valueOf(dimensions), String.valueOf(m), String.valueOf(efConstruction),
+                "c" + CLUSTERS, "s" + SEED);
+        Path graphFile = WorkDirectory.resolve("hnsw", name + ".hnsw");
+        try {
+            if (!Files.exists(graphFile)) {
+                long start = System.nanoTime();
+                HnswVectorIndex built = new HnswVectorIndex(dimensions, m, efConstruction, efSearch);
+                for (float[] vector : vectors) {
+                    built.add(vector);
+                }
+                SecondaryMetrics.recordForTrial("index.build.time", "s", (System.nanoTime() - start) / 1e9);
+                Files.createDirectories(graphFile.getParent());
+                built.write(graphFile);
+            }
+            long start = System.nanoTime();
+            index = HnswVectorIndex.read(graphFile, efSearch);
+            SecondaryMetrics.recordForTrial("index.load.time", "s", (System.nanoTime() - start) / 1e9);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not prepare HNSW graph " + graphFile, e);
+        }
+
+        // 2. Compare against exact search; ordinals match because both indexes number vectors in insert order
+        try (OffHeapVectorIndex exact = new OffHeapVectorIndex(dimensions)) {
+            for (float[] vector : vectors) {
+                exact.add(vector);
+            }
+            SecondaryMetrics.recordForTrial("recall@" + topK, "%", 100 * recall(exact));
+        }
+    }
+
+    @Benchmark
+    public List<VectorIndex.Hit> benchmarkSearch() {
+        next = (next + 1) % QUERIES;
+        return index.search(queries[next], topK, -1);
+    }
+
+    private double recall(VectorIndex exact) {
+        long found = 0;
+        long expected = 0;
+        for (float[] query : queries) {
+            Set<Integer> truth = new HashSet<>();
+            for (VectorIndex.Hit hit : exact.search(query, topK, -1)) {
+                truth.add(hit.ordinal());
+            }
+            for (VectorIndex.Hit hit : index.search(query, topK, -1)) {
+                if (truth.contains(hit.ordinal())) found++;
+            }
+            expected += truth.size();
+        }
+        return (double) found / expected;
+    }
+}
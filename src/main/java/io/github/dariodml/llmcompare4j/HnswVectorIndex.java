@@ -0,0 +1,490 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest-neighbour index (Hierarchical Navigable Small World graph, Malkov & Yashunin).
+ * Search cost grows roughly logarithmically with the number of vectors instead of linearly, at the price
+ * of recall below 100%. Tuning:
+ * <ul>
+ *     <li>{@code m}: neighbours per node (2 * m on the bottom layer); more = better recall, more memory</li>
+ *     <li>{@code efConstruction}: candidate list size while inserting; more = better graph, slower build</li>
+ *     <li>{@code efSearch}: candidate list size while searching; more = better recall, slower queries</li>
+ * </ul>
+ * Removed vectors stay in the graph for navigation but are never returned.
+ */
+public class HnswVectorIndex implements VectorIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAGIC = 0x484e5357; // "HNSW"
+    // Part of the cached graph names in HnswIndexBenchmark; bump it when the file layout or the graph build changes
+    static final int VERSION = 1;
+
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet removed = new BitSet();
+
+    private float[][] vectors = new float[INITIAL_CAPACITY][];
+    // links[node][level] = {count, neighbour...}
+    private int[][][] links = new int[INITIAL_CAPACITY][][];
+    private int count;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswVectorIndex(int dimensions, int m, int efConstruction, int efSearch) {
+        if (m < 2) throw new IllegalArgumentException("m must be at least 2 but was " + m);
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count - removed.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        float[] normalized = VectorMath.normalize(vector);
+        lock.writeLock().lock();
+        try {
+            int node = count;
+            if (node == vectors.length) {
+                vectors = Arrays.copyOf(vectors, node * 2);
+                links = Arrays.copyOf(links, node * 2);
+            }
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            vectors[node] = normalized;
+            links[node] = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                links[node][l] = new int[maxConnections(l) + 1];
+            }
+            count++;
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return node;
+            }
+
+            // 1. Greedy descent through the layers above the new node's level
+            int nearest = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                nearest = greedyClosest(normalized, nearest, l);
+            }
+
+            // 2. On each of its own layers, connect the node to the best candidates found
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                Candidates candidates = searchLayer(normalized, nearest, efConstruction, l);
+                candidates.sortDescending();
+                int[] selected = selectNeighbours(candidates, m);
+                for (int neighbour : selected) {
+                    connect(node, neighbour, l);
+                    connect(neighbour, node, l);
+                }
+                nearest = candidates.nodes[0];
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(int ordinal) {
+        lock.writeLock().lock();
+        try {
+            removed.set(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public float[] vector(int ordinal) {
+        lock.readLock().lock();
+        try {
+            return vectors[ordinal].clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Hit> search(float[] query, int k, double minScore) {
+        float[] normalized = VectorMath.normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) return List.of();
+            int nearest = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                nearest = greedyClosest(normalized, nearest, l);
+            }
+            Candidates candidates = searchLayer(normalized, nearest, Math.max(efSearch, k), 0);
+
+            TopK top = new TopK(k);
+            for (int i = 0; i < candidates.size; i++) {
+                int node = candidates.nodes[i];
+                float score = candidates.scores[i];
+                if (score >= minScore && !removed.get(node)) {
+                    top.offer(node, score);
+                }
+            }
+            return top.toHits();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the graph to {@code path}, so other JVMs can {@link #read} it instead of rebuilding it. The file only
+     * replaces {@code path} once it is complete.
+     */
+    public void write(Path path) {
+        Path partial = path.resolveSibling(path.getFileName() + ".partial");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial), 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dimensions);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(count);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            long[] removedWords = removed.toLongArray();
+            out.writeInt(removedWords.length);
+            for (long word : removedWords) {
+                out.writeLong(word);
+            }
+
+            ByteBuffer vector = ByteBuffer.allocate(dimensions * Float.BYTES);
+            for (int node = 0; node < count; node++) {
+                vector.clear();
+                vector.asFloatBuffer().put(vectors[node]);
+                out.write(vector.array());
+                out.writeInt(links[node].length);
+                for (int[] neighbours : links[node]) {
+                    for (int i = 0; i <= neighbours[0]; i++) {
+                        out.writeInt(neighbours[i]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException("Could not write HNSW graph " + partial, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not publish HNSW graph " + path, e);
+        }
+    }
+
+    /**
+     * Reads a graph written by {@link #write}. {@code efSearch} only affects queries, so one graph serves every
+     * value; vectors added afterwards get their levels from a fresh random sequence.
+     */
+    public static HnswVectorIndex read(Path path, int efSearch) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 20))) {
+            if (in.readInt() != MAGIC) throw new IllegalArgumentException("Not an HNSW graph: " + path);
+            int version = in.readInt();
+            if (version != VERSION) throw new IllegalArgumentException("Unsupported HNSW graph version " + version);
+            HnswVectorIndex index = new HnswVectorIndex(in.readInt(), in.readInt(), in.readInt(), efSearch);
+            int count = in.readInt();
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            long[] removedWords = new long[in.readInt()];
+            for (int i = 0; i < removedWords.length; i++) {
+                removedWords[i] = in.readLong();
+            }
+            index.removed.or(BitSet.valueOf(removedWords));
+
+            int capacity = Math.max(INITIAL_CAPACITY, count);
+            index.vectors = new float[capacity][];
+            index.links = new int[capacity][][];
+            byte[] vector = new byte[index.dimensions * Float.BYTES];
+            for (int node = 0; node < count; node++) {
+                in.readFully(vector);
+                index.vectors[node] = new float[index.dimensions];
+                ByteBuffer.wrap(vector).asFloatBuffer().get(index.vectors[node]);
+                int levels = in.readInt();
+                index.links[node] = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int[] neighbours = new int[index.maxConnections(l) + 1];
+                    neighbours[0] = in.readInt();
+                    for (int i = 1; i <= neighbours[0]; i++) {
+                        neighbours[i] = in.readInt();
+                    }
+                    index.links[node][l] = neighbours;
+                }
+            }
+            index.count = count;
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read HNSW graph " + path, e);
+        }
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float currentScore = VectorMath.dot(query, vectors[current]);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float score = VectorMath.dot(query, vectors[neighbours[i]]);
+                if (score > currentScore) {
+                    currentScore = score;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** Best-first search of one layer, keeping the {@code ef} closest nodes found. */
+    private Candidates searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(count);
+        Candidates results = new Candidates(ef);
+        ScoreQueue frontier = new ScoreQueue();
+
+        float startScore = VectorMath.dot(query, vectors[start]);
+        visited.set(start);
+        results.offer(start, startScore);
+        frontier.push(start, startScore);
+
+        while (!frontier.isEmpty()) {
+            float score = frontier.peekScore();
+            if (results.isFull() && score < results.worst()) break;
+            int node = frontier.pop();
+
+            int[] neighbours = links[node][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) continue;
+                visited.set(neighbour);
+                float neighbourScore = VectorMath.dot(query, vectors[neighbour]);
+                if (!results.isFull() || neighbourScore > results.worst()) {
+                    results.offer(neighbour, neighbourScore);
+                    frontier.push(neighbour, neighbourScore);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: a candidate is kept only if it is closer to the base node than to every
+     * neighbour kept so far, which spreads the links in different directions instead of one dense cluster.
+     */
+    private int[] selectNeighbours(Candidates sorted, int max) {
+        int[] selected = new int[Math.min(max, sorted.size)];
+        int size = 0;
+        for (int i = 0; i < sorted.size && size < selected.length; i++) {
+            int candidate = sorted.nodes[i];
+            boolean diverse = true;
+            for (int j = 0; j < size && diverse; j++) {
+                diverse = VectorMath.dot(vectors[candidate], vectors[selected[j]]) < sorted.scores[i];
+            }
+            if (diverse) selected[size++] = candidate;
+        }
+        return Arrays.copyOf(selected, size);
+    }
+
+    private void connect(int node, int neighbour, int level) {
+        int[] neighbours = links[node][level];
+        int max = maxConnections(level);
+        if (neighbours[0] < max) {
+            neighbours[++neighbours[0]] = neighbour;
+            return;
+        }
+
+        // Full: re-select among the existing links plus the new one
+        Candidates candidates = new Candidates(max + 1);
+        for (int i = 1; i <= neighbours[0]; i++) {
+            candidates.offer(neighbours[i], VectorMath.dot(vectors[node], vectors[neighbours[i]]));
+        }
+        candidates.offer(neighbour, VectorMath.dot(vectors[node], vectors[neighbour]));
+        candidates.sortDescending();
+        int[] selected = selectNeighbours(candidates, max);
+        neighbours[0] = selected.length;
+        System.arraycopy(selected, 0, neighbours, 1, selected.length);
+    }
+
+    /** Bounded set of the best-scoring nodes seen, as a min-heap so the worst one is evicted first. */
+    private static final class Candidates {
+        private final int[] nodes;
+        private final float[] scores;
+        private int size;
+
+        Candidates(int capacity) {
+            nodes = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        boolean isFull() {
+            return size == nodes.length;
+        }
+
+        float worst() {
+            return scores[0];
+        }
+
+        void offer(int node, float score) {
+            if (!isFull()) {
+                nodes[size] = node;
+                scores[size] = score;
+                int i = size++;
+                while (i > 0 && scores[(i - 1) >>> 1] > scores[i]) {
+                    swap(i, (i - 1) >>> 1);
+                    i = (i - 1) >>> 1;
+                }
+            } else if (score > scores[0]) {
+                nodes[0] = node;
+                scores[0] = score;
+                int i = 0;
+                while (true) {
+                    int left = 2 * i + 1;
+                    if (left >= size) break;
+                    int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+                    if (scores[i] <= scores[smallest]) break;
+                    swap(i, smallest);
+                    i = smallest;
+                }
+            }
+        }
+
+        /** Heap sort in place: afterwards the arrays are ordered by descending score and no longer a heap. */
+        void sortDescending() {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                int i = 0;
+                while (true) {
+                    int left = 2 * i + 1;
+                    if (left >= end) break;
+                    int smallest = left + 1 < end && scores[left + 1] < scores[left] ? left + 1 : left;
+                    if (scores[i] <= scores[smallest]) break;
+                    swap(i, smallest);
+                    i = smallest;
+                }
+            }
+        }
+
+        private void swap(int a, int b) {
+            int node = nodes[a];
+            nodes[a] = nodes[b];
+            nodes[b] = node;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    /** Unbounded max-heap of nodes still to expand, best first. */
+    private static final class ScoreQueue {
+        private int[] nodes = new int[64];
+        private float[] scores = new float[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            nodes[i] = node;
+            scores[i] = score;
+            while (i > 0 && scores[(i - 1) >>> 1] < scores[i]) {
+                swap(i, (i - 1) >>> 1);
+                i = (i - 1) >>> 1;
+            }
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            nodes[0] = nodes[size];
+            scores[0] = scores[size];
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) break;
+                int largest = left + 1 < size && scores[left + 1] > scores[left] ? left + 1 : left;
+                if (scores[i] >= scores[largest]) break;
+                swap(i, largest);
+                i = largest;
+            }
+            return top;
+        }
+
+        private void swap(int a, int b) {
+            int node = nodes[a];
+            nodes[a] = nodes[b];
+            nodes[b] = node;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared JMH state holding one keep-alive HTTP client (JDK HttpClient) that all Spring AI Ollama clients of a
+ * benchmark can use, instead of every OllamaApi creating its own. LangChain4j 0.35 builds a private OkHttp client
+ * per model and offers no way to inject one, so it cannot use this transport.
+ *
+ * <p>Pool size and keep-alive are JVM-wide settings of the JDK client, read when the first HttpClient is created,
+ * so they apply to every client in the benchmark JVM. HTTP/2 is attempted with an h2c upgrade and silently falls
+ * back to HTTP/1.1 when the server (like Ollama) does not support it.
+ */
+@State(Scope.Benchmark)
+public class HttpTransport {
+
+    @Param({"HTTP_1_1"}) // or "HTTP_2"
+    public String httpVersion;
+
+    @Param({"0"}) // max idle connections kept per host, 0 = unbounded (JDK default)
+    public int poolSize;
+
+    @Param({"30"})
+    public int keepAliveSeconds;
+
+    private ExecutorService executor;
+    private HttpClient httpClient;
+
+    @Setup(Level.Trial)
+    public void start() {
+        System.setProperty("jdk.httpclient.connectionPoolSize", Integer.toString(poolSize));
+        System.setProperty("jdk.httpclient.keepalive.timeout", Integer.toString(keepAliveSeconds));
+
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpClient = newHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (httpClient != null) {
+            httpClient.close();
+            httpClient = null;
+        }
+        if (executor != null) {
+            executor.close();
+            executor = null;
+        }
+    }
+
+    public HttpClient httpClient() {
+        return httpClient;
+    }
+
+    /**
+     * A client with the same settings as the shared one but its own connections, for a model that should not share
+     * them; the caller closes it.
+     */
+    public HttpClient newHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.valueOf(httpVersion))
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(executor)
+                .build();
+    }
+
+    /** A new builder on the shared client, for OllamaApi.builder().restClientBuilder(...). */
+    public RestClient.Builder restClientBuilder() {
+        return restClientBuilder(httpClient);
+    }
+
+    /** A new builder on the shared client, for OllamaApi.builder().webClientBuilder(...). */
+    public WebClient.Builder webClientBuilder() {
+        return webClientBuilder(httpClient);
+    }
+
+    /** A new builder on {@code client}, for OllamaApi.builder().restClientBuilder(...). */
+    public static RestClient.Builder restClientBuilder(HttpClient client) {
+        return RestClient.builder().requestFactory(new JdkClientHttpRequestFactory(client));
+    }
+
+    /** A new builder on {@code client}, for OllamaApi.builder().webClientBuilder(...). */
+    public static WebClient.Builder webClientBuilder(HttpClient client) {
+        return WebClient.builder().clientConnector(new JdkClientHttpConnector(client));
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * LangChain4j {@link ContentRetriever} for the {@link HybridRetrieval} modes: {@link Bm25Index} over the same
+ * segments as the embedding store, the dense retriever, or both fused by rank.
+ */
+public class HybridContentRetriever implements ContentRetriever {
+
+    private final Bm25Index bm25;
+    private final List<TextSegment> segments;
+    private final ContentRetriever dense;
+    private final String mode;
+    private final int maxResults;
+
+    /**
+     * @param segments   the segments in the order {@code bm25} was built from
+     * @param dense      vector retriever; should return {@link HybridRetrieval#CANDIDATES_PER_RESULT} times
+     *                   {@code maxResults} results in the hybrid modes, so fusion has candidates to choose from
+     */
+    public HybridContentRetriever(Bm25Index bm25, List<TextSegment> segments, ContentRetriever dense,
+                                  String mode, int maxResults) {
+        this.bm25 = bm25;
+        this.segments = segments;
+        this.dense = dense;
+        this.mode = mode;
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        if (HybridRetrieval.DENSE.equals(mode)) {
+            return dense.retrieve(query);
+        }
+
+        // 1. Lexical candidates; enough of them and lexical-first is done without an embedding call
+        List<TextSegment> lexical = new ArrayList<>();
+        for (VectorIndex.Hit hit : bm25.search(query.text(), maxResults * HybridRetrieval.CANDIDATES_PER_RESULT)) {
+            lexical.add(segments.get(hit.ordinal()));
+        }
+        if (!HybridRetrieval.needsDense(mode, lexical.size(), maxResults)) {
+            return toContents(lexical.subList(0, Math.min(maxResults, lexical.size())));
+        }
+
+        // 2. Dense candidates, fused with the lexical ones by rank
+        List<TextSegment> semantic = dense.retrieve(query).stream()
+                .map(Content::textSegment)
+                .collect(Collectors.toList());
+        return toContents(HybridRetrieval.fuse(lexical, semantic, maxResults));
+    }
+
+    private static List<Content> toContents(List<TextSegment> segments) {
+        return segments.stream()
+                .map(Content::from)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retrieval modes of the RAG benchmarks and the reciprocal rank fusion behind the hybrid mode, shared by
+ * {@link HybridContentRetriever} (LangChain4j) and {@link HybridRetrievalAdvisor} (Spring AI).
+ * <ul>
+ *     <li>{@code dense}: vector search only (query embedding + similarity search)</li>
+ *     <li>{@code lexical}: {@link Bm25Index} only, no embedding call</li>
+ *     <li>{@code hybrid}: both, fused by rank</li>
+ *     <li>{@code lexical-first}: BM25 alone when it finds enough documents, hybrid otherwise; a keyword
+ *     pre-filter that skips the embedding call for queries with enough exact terms</li>
+ * </ul>
+ */
+public final class HybridRetrieval {
+
+    public static final String DENSE = "dense";
+    public static final String LEXICAL = "lexical";
+    public static final String HYBRID = "hybrid";
+    public static final String LEXICAL_FIRST = "lexical-first";
+
+    /** The usual RRF constant: dampens the difference between the first few ranks. */
+    static final int RRF_K = 60;
+
+    /** Results taken from each retriever before fusion, per result returned. */
+    static final int CANDIDATES_PER_RESULT = 5;
+
+    private HybridRetrieval() {
+    }
+
+    /** Whether the retrieval mode needs the vector store at all for this many BM25 hits. */
+    static boolean needsDense(String mode, int lexicalHits, int maxResults) {
+        return switch (mode) {
+            case DENSE, HYBRID -> true;
+            case LEXICAL -> false;
+            case LEXICAL_FIRST -> lexicalHits < maxResults;
+            default -> throw new IllegalArgumentException("Unknown retrieval mode: " + mode);
+        };
+    }
+
+    /**
+     * Reciprocal rank fusion: every item scores {@code 1 / (RRF_K + rank)} per ranking it appears in, so items both
+     * retrievers rank high win without having to compare BM25 scores with cosine similarities.
+     */
+    static <T> List<T> fuse(List<T> first, List<T> second, int maxResults) {
+        Map<T, Double> scores = new HashMap<>();
+        addRanks(scores, first);
+        addRanks(scores, second);
+        List<T> fused = new ArrayList<>(scores.keySet());
+        fused.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        return fused.subList(0, Math.min(maxResults, fused.size()));
+    }
+
+    private static <T> void addRanks(Map<T, Double> scores, List<T> ranking) {
+        for (int rank = 0; rank < ranking.size(); rank++) {
+            scores.merge(ranking.get(rank), 1.0 / (RRF_K + rank + 1), Double::sum);
+        }
+    }
+}
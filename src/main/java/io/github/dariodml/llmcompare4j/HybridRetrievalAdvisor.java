@@ -0,0 +1,120 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Spring AI advisor for the {@link HybridRetrieval} modes, a drop-in for {@link QuestionAnswerAdvisor}: it
+ * retrieves with {@link Bm25Index}, the vector store or both fused by rank, and augments the user message with
+ * QuestionAnswerAdvisor's default template. The retrieved documents are put in the advise context under the same
+ * key. {@link #retrieve(String)} is the retrieval alone.
+ */
+public class HybridRetrievalAdvisor implements BaseAdvisor {
+
+    private final Bm25Index bm25;
+    private final List<Document> documents;
+    private final VectorStore vectorStore;
+    private final String mode;
+    private final int topK;
+    private final double similarityThreshold;
+
+    /** @param documents the documents in the order {@code bm25} was built from */
+    public HybridRetrievalAdvisor(Bm25Index bm25, List<Document> documents, VectorStore vectorStore,
+                                  String mode, int topK, double similarityThreshold) {
+        this.bm25 = bm25;
+        this.documents = documents;
+        this.vectorStore = vectorStore;
+        this.mode = mode;
+        this.topK = topK;
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    public List<Document> retrieve(String query) {
+        if (HybridRetrieval.DENSE.equals(mode)) {
+            return search(query, topK);
+        }
+
+        // 1. Lexical candidates; enough of them and lexical-first is done without an embedding call
+        List<Document> lexical = new ArrayList<>();
+        for (VectorIndex.Hit hit : bm25.search(query, topK * HybridRetrieval.CANDIDATES_PER_RESULT)) {
+            lexical.add(documents.get(hit.ordinal()));
+        }
+        if (!HybridRetrieval.needsDense(mode, lexical.size(), topK)) {
+            return lexical.subList(0, Math.min(topK, lexical.size()));
+        }
+
+        // 2. Dense candidates, fused with the lexical ones by rank; by id, as the store returns new instances
+        List<Document> semantic = search(query, topK * HybridRetrieval.CANDIDATES_PER_RESULT);
+        Map<String, Document> byId = new HashMap<>();
+        semantic.forEach(document -> byId.put(document.getId(), document));
+        lexical.forEach(document -> byId.put(document.getId(), document));
+        return HybridRetrieval.fuse(ids(lexical), ids(semantic), topK).stream()
+                .map(byId::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest request, AdvisorChain chain) {
+        String query = request.prompt().getUserMessage().getText();
+        List<Document> retrieved = retrieve(query);
+        return request.mutate()
+                .prompt(request.prompt().augmentUserMessage(augment(query, retrieved.stream()
+                        .map(Document::getText)
+                        .collect(Collectors.toList()))))
+                .context(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS, retrieved)
+                .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse response, AdvisorChain chain) {
+        return response;
+    }
+
+    @Override
+    public int getOrder() {
+        return 0; // QuestionAnswerAdvisor's default order
+    }
+
+    private List<Document> search(String query, int k) {
+        return vectorStore.similaritySearch(SearchRequest.builder()
+                .query(query)
+                .topK(k)
+                .similarityThreshold(similarityThreshold)
+                .build());
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream()
+                .map(Document::getId)
+                .collect(Collectors.toList());
+    }
+
+    /** The user message QuestionAnswerAdvisor builds with its default template. */
+    static String augment(String query, List<String> contents) {
+        return query + """
+
+
+                Context information is below, surrounded by ---------------------
+
+                ---------------------
+                %s
+                ---------------------
+
+                Given the context and provided history information and not prior knowledge,
+                reply to the user comment. If the answer is not in the context, inform
+                the user that you can't answer the question.
+                """.formatted(String.join(System.lineSeparator(), contents));
+    }
+}
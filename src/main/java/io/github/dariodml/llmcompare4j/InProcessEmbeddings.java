@@ -0,0 +1,107 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2q.AllMiniLmL6V2QuantizedEmbeddingModel;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-process ONNX embedding models, the alternative to the HTTP hop to Ollama ({@code backend=in-process-onnx}).
+ * One ONNX session per model is shared by the whole JVM, so running a benchmark with {@code -t N} shows how the
+ * session scales across threads. Loading it records embed.model.load.time, embed.model.heap and embed.model.rss
+ * as trial metrics.
+ */
+final class InProcessEmbeddings {
+
+    static final String OLLAMA_HTTP = "ollama-http";
+    static final String IN_PROCESS_ONNX = "in-process-onnx";
+
+    private static final Map<String, dev.langchain4j.model.embedding.EmbeddingModel> MODELS = new ConcurrentHashMap<>();
+
+    private InProcessEmbeddings() {
+    }
+
+    static boolean isInProcess(String backend) {
+        return switch (backend) {
+            case OLLAMA_HTTP -> false;
+            case IN_PROCESS_ONNX -> true;
+            default -> throw new IllegalArgumentException("Unknown embedding backend: " + backend);
+        };
+    }
+
+    /** The shared ONNX model for the Ollama model name, loading it on first use. */
+    static dev.langchain4j.model.embedding.EmbeddingModel langChain4j(String modelName) {
+        return MODELS.computeIfAbsent(modelName, InProcessEmbeddings::load);
+    }
+
+    /** The same ONNX session behind Spring AI's EmbeddingModel interface. */
+    static EmbeddingModel springAi(String modelName) {
+        return new SpringAiAdapter(langChain4j(modelName));
+    }
+
+    private static dev.langchain4j.model.embedding.EmbeddingModel load(String modelName) {
+        // Only all-MiniLM ships as an in-process model; bge-m3 and friends need Ollama
+        if (!modelName.startsWith("all-minilm")) {
+            throw new IllegalArgumentException("No in-process ONNX model for " + modelName + ", only all-minilm runs with backend="
+                    + IN_PROCESS_ONNX + "; use backend=" + OLLAMA_HTTP + " for this model");
+        }
+
+        long heapBefore = MemoryProbe.usedHeapAfterGc();
+        long rssBefore = MemoryProbe.residentBytes();
+        long start = System.nanoTime();
+        dev.langchain4j.model.embedding.EmbeddingModel model = new AllMiniLmL6V2QuantizedEmbeddingModel();
+        // The first inference finishes initializing the session, so it counts towards the cold start
+        model.embed("warm-up");
+        long elapsed = System.nanoTime() - start;
+
+        SecondaryMetrics.recordForTrial("embed.model.load.time", "ms", elapsed / 1_000_000.0);
+        SecondaryMetrics.recordForTrial("embed.model.heap", "MB", (MemoryProbe.usedHeapAfterGc() - heapBefore) / 1024.0 / 1024.0);
+        if (rssBefore >= 0) {
+            // Resident memory includes the native ONNX Runtime allocations the heap figure cannot see
+            SecondaryMetrics.recordForTrial("embed.model.rss", "MB", (MemoryProbe.residentBytes() - rssBefore) / 1024.0 / 1024.0);
+        }
+        return model;
+    }
+
+    private static final class SpringAiAdapter implements EmbeddingModel {
+
+        private final dev.langchain4j.model.embedding.EmbeddingModel model;
+
+        private SpringAiAdapter(dev.langchain4j.model.embedding.EmbeddingModel model) {
+            this.model = model;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<TextSegment> segments = request.getInstructions().stream()
+                    .map(TextSegment::from)
+                    .collect(Collectors.toList());
+            List<dev.langchain4j.data.embedding.Embedding> vectors = model.embedAll(segments).content();
+
+            List<Embedding> embeddings = new ArrayList<>(vectors.size());
+            for (int i = 0; i < vectors.size(); i++) {
+                embeddings.add(new Embedding(vectors.get(i).vector(), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return model.embed(document.getText()).content().vector();
+        }
+
+        @Override
+        public int dimensions() {
+            return model.dimension();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What an ingestion pass put into a store: per source document its content hash and the ids of its chunks.
+ * The next pass skips documents with the same hash, removes the old chunks of changed ones before adding the new
+ * chunks, and removes the chunks of documents that disappeared. Chunk ids are added from the embedding threads.
+ */
+final class IngestionManifest {
+
+    private record Entry(String hash, List<String> chunkIds) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+    }
+
+    boolean unchanged(String source, String hash) {
+        Entry entry = entries.get(source);
+        return entry != null && entry.hash().equals(hash);
+    }
+
+    /** Starts a new version of the document and returns the chunk ids of the previous one (empty when new). */
+    List<String> replace(String source, String hash) {
+        Entry previous = entries.put(source, new Entry(hash, new ArrayList<>()));
+        return previous != null ? previous.chunkIds() : List.of();
+    }
+
+    void addChunk(String source, String chunkId) {
+        List<String> chunkIds = entries.get(source).chunkIds();
+        synchronized (chunkIds) {
+            chunkIds.add(chunkId);
+        }
+    }
+
+    /** Forgets the document and returns the ids of its chunks. */
+    List<String> remove(String source) {
+        Entry previous = entries.remove(source);
+        return previous != null ? previous.chunkIds() : List.of();
+    }
+
+    Set<String> sources() {
+        return Set.copyOf(entries.keySet());
+    }
+
+    int chunkCount() {
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            synchronized (entry.chunkIds()) {
+                count += entry.chunkIds().size();
+            }
+        }
+        return count;
+    }
+}
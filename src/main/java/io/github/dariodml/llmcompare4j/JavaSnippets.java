@@ -0,0 +1,145 @@
+package io.github.dariodml.llmcompare4j;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the Java code blocks in a model's markdown answer and checks whether they compile, in memory with the
+ * JDK's compiler. Snippets that are only methods or statements are wrapped in a class with the common
+ * java.util imports first, since that is how models usually answer "write a Java function".
+ */
+final class JavaSnippets {
+
+    // Any fenced block with its info string, so the closing fence of an xml or bash block is never taken for an opening one
+    private static final Pattern CODE_BLOCK = Pattern.compile("```[ \\t]*([^\\s`]*)[^\\n`]*\\R(.*?)```", Pattern.DOTALL);
+    private static final Pattern TYPE_DECLARATION = Pattern.compile("\\b(class|interface|enum|record)\\s+\\w+");
+    private static final Pattern PUBLIC_TYPE = Pattern.compile("public\\s+(?:(?:final|abstract|sealed)\\s+)*(?:class|interface|enum|record)\\s+(\\w+)");
+    private static final String DEFAULT_IMPORTS = "import java.util.*; import java.util.function.*; import java.util.stream.*;\n";
+
+    /** Whether the code compiled, and the first error when it did not. */
+    record CompileResult(boolean compiles, String error) {
+    }
+
+    private JavaSnippets() {
+    }
+
+    /** The fenced code blocks tagged java or untagged, in order. */
+    static List<String> codeBlocks(String markdown) {
+        List<String> blocks = new ArrayList<>();
+        Matcher matcher = CODE_BLOCK.matcher(markdown);
+        while (matcher.find()) {
+            String language = matcher.group(1);
+            if (language.isEmpty() || language.equalsIgnoreCase("java")) {
+                blocks.add(matcher.group(2));
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Compiles each block of one answer in its own task, since answers often show several versions of the same class
+     * (two {@code public class Main} blocks would clash in one task). When a block only fails on its own, the blocks
+     * are compiled together once more, because a block may use a type that another one declares. Null when there is
+     * no code.
+     */
+    static CompileResult compile(String markdown) {
+        List<String> blocks = codeBlocks(markdown);
+        if (blocks.isEmpty()) return null;
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return new CompileResult(false, "No Java compiler available (running on a JRE?)");
+        }
+
+        List<JavaFileObject> sources = new ArrayList<>();
+        CompileResult failure = null;
+        for (int i = 0; i < blocks.size(); i++) {
+            JavaFileObject source = source(i, blocks.get(i));
+            sources.add(source);
+            CompileResult block = compile(compiler, List.of(source));
+            if (failure == null && !block.compiles()) {
+                failure = new CompileResult(false, blocks.size() > 1 ? "block " + (i + 1) + ", " + block.error() : block.error());
+            }
+        }
+        if (failure == null || (sources.size() > 1 && compile(compiler, sources).compiles())) {
+            return new CompileResult(true, null);
+        }
+        return failure;
+    }
+
+    private static CompileResult compile(JavaCompiler compiler, List<JavaFileObject> sources) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (DiscardingFileManager fileManager = new DiscardingFileManager(compiler.getStandardFileManager(diagnostics, null, null))) {
+            boolean compiles = compiler.getTask(null, fileManager, diagnostics, List.of("-proc:none", "-nowarn"), null, sources).call();
+            String error = diagnostics.getDiagnostics().stream()
+                    .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                    .map(diagnostic -> "line " + diagnostic.getLineNumber() + ": " + diagnostic.getMessage(null))
+                    .findFirst()
+                    .orElse(null);
+            return new CompileResult(compiles, error);
+        } catch (IOException e) {
+            return new CompileResult(false, e.getMessage());
+        }
+    }
+
+    private static JavaFileObject source(int index, String code) {
+        StringBuilder imports = new StringBuilder(DEFAULT_IMPORTS);
+        StringBuilder body = new StringBuilder();
+        for (String line : code.lines().toList()) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("package ")) continue; // Every snippet goes into the unnamed package
+            (trimmed.startsWith("import ") ? imports : body).append(line).append('\n');
+        }
+
+        String className;
+        String unit;
+        Matcher publicType = PUBLIC_TYPE.matcher(body);
+        if (publicType.find()) {
+            className = publicType.group(1);
+            unit = imports + body.toString();
+        } else if (TYPE_DECLARATION.matcher(body).find()) {
+            className = "Snippet" + index;
+            unit = imports + body.toString();
+        } else {
+            className = "Snippet" + index;
+            unit = imports + "class " + className + " {\n" + body + "}\n";
+        }
+        return new SimpleJavaFileObject(URI.create("string:///" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return unit;
+            }
+        };
+    }
+
+    /** Throws the class files away, the check only needs the diagnostics. */
+    private static final class DiscardingFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private DiscardingFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return OutputStream.nullOutputStream();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package io.github.dariodml.llmcompare4j;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.JavaFlightRecorderProfiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * CPU samples and lock contention read from a JFR recording made by JMH's {@code jfr} profiler.
+ * {@link FlameGraphs} turns every recording into collapsed stacks and a flame graph next to the .jfr file,
+ * {@link #writeReport(Path)} summarizes the hot methods and contended locks per framework.
+ */
+public class JfrProfile {
+
+    private static final int MAX_STACK_DEPTH = 128;
+
+    // Collapsed stacks ("root;...;leaf" -> samples), the format used by flamegraph.pl and async-profiler
+    private final Map<String, Long> stacks = new HashMap<>();
+    private final Map<String, Long> selfSamples = new HashMap<>();
+    // Monitor or park blocker class -> {events, total nanos}
+    private final Map<String, long[]> locks = new HashMap<>();
+    private long samples;
+
+    public static JfrProfile read(Path jfrFile) {
+        JfrProfile profile = new JfrProfile();
+        try (RecordingFile recording = new RecordingFile(jfrFile)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                switch (event.getEventType().getName()) {
+                    case "jdk.ExecutionSample" -> profile.addSample(event.getStackTrace());
+                    case "jdk.JavaMonitorEnter" -> {
+                        String monitor = className(event.getClass("monitorClass"));
+                        if (!monitor.startsWith("jdk.jfr.")) { // The recorder's own locks, e.g. while it is stopped
+                            profile.addLock("monitor " + monitor, event);
+                        }
+                    }
+                    case "jdk.ThreadPark" -> {
+                        // Only parks on a lock; condition waits are mostly idle pool threads waiting for work
+                        String blocker = className(event.getClass("parkedClass"));
+                        if (blocker.startsWith("java.util.concurrent.locks.") && !blocker.contains("ConditionObject")) {
+                            profile.addLock("park " + blocker, event);
+                        }
+                    }
+                    default -> { }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + jfrFile, e);
+        }
+        return profile;
+    }
+
+    private void addSample(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) return;
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        StringBuilder stack = new StringBuilder();
+        // JFR lists the leaf first, collapsed stacks start at the root
+        for (int i = Math.min(frames.size(), MAX_STACK_DEPTH) - 1; i >= 0; i--) {
+            if (!stack.isEmpty()) stack.append(';');
+            stack.append(methodName(frames.get(i)));
+        }
+        stacks.merge(stack.toString(), 1L, Long::sum);
+        selfSamples.merge(methodName(frames.get(0)), 1L, Long::sum);
+        samples++;
+    }
+
+    private void addLock(String name, RecordedEvent event) {
+        long[] totals = locks.computeIfAbsent(name, key -> new long[2]);
+        totals[0]++;
+        totals[1] += event.getDuration().toNanos();
+    }
+
+    private void merge(JfrProfile other) {
+        other.stacks.forEach((stack, count) -> stacks.merge(stack, count, Long::sum));
+        other.selfSamples.forEach((method, count) -> selfSamples.merge(method, count, Long::sum));
+        other.locks.forEach((name, totals) -> {
+            long[] merged = locks.computeIfAbsent(name, key -> new long[2]);
+            merged[0] += totals[0];
+            merged[1] += totals[1];
+        });
+        samples += other.samples;
+    }
+
+    private static String methodName(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+
+    private static String className(RecordedClass recordedClass) {
+        return recordedClass != null ? recordedClass.getName() : "unknown";
+    }
+
+    public void writeCollapsed(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        new TreeMap<>(stacks).forEach((stack, count) -> lines.add(stack + " " + count));
+        Files.write(file, lines);
+    }
+
+    /** A self-contained HTML flame graph (no JavaScript needed), widths proportional to the samples. */
+    public void writeFlameGraph(Path file, String title) throws IOException {
+        Node root = new Node("all");
+        stacks.forEach((stack, count) -> {
+            Node node = root;
+            node.samples += count;
+            for (String frame : stack.split(";")) {
+                node = node.children.computeIfAbsent(frame, Node::new);
+                node.samples += count;
+            }
+        });
+
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>").append(escape(title)).append("</title><style>")
+                .append("body{font:12px monospace;margin:8px} .f{display:flex;flex-direction:column-reverse}")
+                .append(" .n{display:flex;flex-direction:column-reverse;min-width:0}")
+                .append(" .n>.l{background:#f4a261;border:1px solid #fff;overflow:hidden;white-space:nowrap;height:16px;padding:0 2px}")
+                .append(" .n>.c{display:flex}")
+                .append("</style></head><body><h3>").append(escape(title)).append(" (").append(samples).append(" samples)</h3>")
+                .append("<div class=\"f\">");
+        appendNode(html, root, root.samples, 0);
+        html.append("</div></body></html>");
+        Files.writeString(file, html);
+    }
+
+    private static void appendNode(StringBuilder html, Node node, long parentSamples, int depth) {
+        double width = 100.0 * node.samples / Math.max(1, parentSamples);
+        // Frames below 0.1% of their parent are too narrow to read and only bloat the file
+        if (width < 0.1 || depth > MAX_STACK_DEPTH) return;
+        String label = node.name + " (" + node.samples + ")";
+        html.append("<div class=\"n\" style=\"width:").append(String.format("%.3f", width)).append("%\">")
+                .append("<div class=\"l\" title=\"").append(escape(label)).append("\">").append(escape(label)).append("</div>")
+                .append("<div class=\"c\">");
+        node.children.values().stream()
+                .sorted(Comparator.comparing((Node child) -> child.name))
+                .forEach(child -> appendNode(html, child, node.samples, depth + 1));
+        html.append("</div></div>");
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * Reads every profile.jfr below {@code directory} (one sub-directory per benchmark and params, as written by
+     * JMH) and writes profile-report.md with the hottest methods and most contended locks per framework and
+     * per benchmark.
+     */
+    public static Path writeReport(Path directory) throws IOException {
+        Map<String, JfrProfile> byFramework = new TreeMap<>();
+        Map<String, JfrProfile> byBenchmark = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path jfr : files.filter(file -> file.getFileName().toString().endsWith(".jfr")).toList()) {
+                String benchmark = jfr.getParent().getFileName().toString();
+                JfrProfile profile = read(jfr);
+                byBenchmark.put(benchmark, profile);
+                byFramework.computeIfAbsent(framework(benchmark), key -> new JfrProfile()).merge(profile);
+            }
+        }
+
+        StringBuilder report = new StringBuilder("# Profile Report\n");
+        byFramework.forEach((framework, profile) -> profile.appendSummary(report, "## " + framework, 15, 10));
+        byBenchmark.forEach((benchmark, profile) -> profile.appendSummary(report, "### " + benchmark, 5, 3));
+
+        Path file = directory.resolve("profile-report.md");
+        Files.writeString(file, report);
+        return file;
+    }
+
+    private static String framework(String benchmarkId) {
+        if (benchmarkId.contains(".LangChain4j")) return "LangChain4j";
+        if (benchmarkId.contains(".SpringAi")) return "Spring AI";
+        return "Other";
+    }
+
+    private void appendSummary(StringBuilder report, String heading, int methods, int lockCount) {
+        report.append('\n').append(heading).append("\n\nHot methods (self time, ").append(samples).append(" samples):\n\n");
+        selfSamples.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(methods)
+                .forEach(entry -> report.append(String.format("- %5.1f%% %s%n", 100.0 * entry.getValue() / Math.max(1, samples), entry.getKey())));
+
+        report.append("\nLock contention (blocked monitor enters and lock parks above the JFR threshold):\n\n");
+        if (locks.isEmpty()) report.append("- none\n");
+        locks.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[1]).reversed())
+                .limit(lockCount)
+                .forEach(entry -> report.append(String.format("- %10.1f ms in %d events: %s%n",
+                        entry.getValue()[1] / 1_000_000.0, entry.getValue()[0], entry.getKey())));
+    }
+
+    private static final class Node {
+        private final String name;
+        private final Map<String, Node> children = new LinkedHashMap<>();
+        private long samples;
+
+        private Node(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Post-processor for JMH's jfr profiler ({@code -prof jfr:postProcessor=io.github.dariodml.llmcompare4j.JfrProfile$FlameGraphs}):
+     * writes collapsed-cpu.txt and flame-cpu.html next to each recording.
+     */
+    public static class FlameGraphs implements JavaFlightRecorderProfiler.PostProcessor {
+
+        @Override
+        public List<File> postProcess(BenchmarkParams benchmarkParams, File jfrFile) {
+            JfrProfile profile = read(jfrFile.toPath());
+            Path collapsed = jfrFile.toPath().resolveSibling("collapsed-cpu.txt");
+            Path flameGraph = jfrFile.toPath().resolveSibling("flame-cpu.html");
+            try {
+                profile.writeCollapsed(collapsed);
+                profile.writeFlameGraph(flameGraph, benchmarkParams.id());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write flame graph for " + jfrFile, e);
+            }
+            return List.of(collapsed.toFile(), flameGraph.toFile());
+        }
+    }
+}
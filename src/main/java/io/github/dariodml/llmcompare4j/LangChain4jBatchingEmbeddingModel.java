@@ -0,0 +1,51 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/** LangChain4j {@link EmbeddingModel} that sends its texts through an {@link EmbeddingGateway} to the delegate. */
+public class LangChain4jBatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingGateway gateway;
+
+    public LangChain4jBatchingEmbeddingModel(EmbeddingModel delegate, int maxBatchSize, Duration maxWait) {
+        this.delegate = delegate;
+        this.gateway = new EmbeddingGateway(texts -> delegate.embedAll(texts.stream()
+                        .map(TextSegment::from)
+                        .collect(Collectors.toList())).content().stream()
+                .map(Embedding::vector)
+                .collect(Collectors.toList()), maxBatchSize, maxWait);
+    }
+
+    /** Non-blocking variant of {@link #embed(String)}. */
+    public CompletableFuture<Embedding> embedAsync(String text) {
+        return gateway.embed(text).thenApply(Embedding::from);
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return Response.from(gateway.embedAll(textSegments.stream()
+                        .map(TextSegment::text)
+                        .collect(Collectors.toList())).stream()
+                .map(Embedding::from)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public void close() {
+        gateway.close();
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** LangChain4j {@link EmbeddingModel} decorator that only sends texts missing from the {@link EmbeddingCache}. */
+public class LangChain4jCachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final String modelName;
+    private final EmbeddingCache cache;
+
+    public LangChain4jCachingEmbeddingModel(EmbeddingModel delegate, String modelName, EmbeddingCache cache) {
+        this.delegate = delegate;
+        this.modelName = modelName;
+        this.cache = cache;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        Embedding[] embeddings = new Embedding[textSegments.size()];
+        String[] keys = new String[textSegments.size()];
+        List<TextSegment> misses = new ArrayList<>();
+        List<Integer> missIndexes = new ArrayList<>();
+
+        // 1. Serve what we can from the cache
+        for (int i = 0; i < textSegments.size(); i++) {
+            keys[i] = EmbeddingCache.key(modelName, textSegments.get(i).text());
+            float[] cached = cache.get(keys[i]);
+            if (cached != null) {
+                embeddings[i] = Embedding.from(cached);
+            } else {
+                misses.add(textSegments.get(i));
+                missIndexes.add(i);
+            }
+        }
+
+        // 2. Embed the misses in one call and remember them
+        if (!misses.isEmpty()) {
+            List<Embedding> computed = delegate.embedAll(misses).content();
+            for (int i = 0; i < computed.size(); i++) {
+                int index = missIndexes.get(i);
+                embeddings[index] = computed.get(i);
+                cache.put(keys[index], computed.get(i).vector());
+            }
+        }
+        return Response.from(List.of(embeddings));
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+}
@@ -1,6 +1,9 @@
 package io.github.dariodml.llmcompare4j;
 
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.output.Response;
 import org.openjdk.jmh.annotations.*;
 import java.util.concurrent.TimeUnit;
 
@@ -17,21 +20,25 @@ public class LangChain4jChatBenchmark extends AbstractChatBenchmark {
 
     private OllamaChatModel createModel(String modelNameToUse) {
         return OllamaChatModel.builder()
-                .baseUrl("http://localhost:11434")
+                .baseUrl(baseUrl)
                 .modelName(modelNameToUse)
                 .temperature(0.7)
                 .build();
     }
 
     @Setup(Level.Trial)
-    public void setupModel() {
+    public void setupModel(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
         model = createModel(modelName);
         activeModelName = modelName;
     }
 
     @Benchmark
+    @SuppressWarnings("try")
     public String benchmarkChat() {
-        return chat(prompt, modelName);
+        try (ModelUsage usage = ModelUsage.start()) {
+            return answer(prompt, modelName).text();
+        }
     }
 
     @Override
@@ -43,4 +50,18 @@ public class LangChain4jChatBenchmark extends AbstractChatBenchmark {
         }
         return model.generate(prompt);
     }
+
+    @Override
+    public Answer answer(String prompt, String modelName) {
+        if (model == null || activeModelName == null || !activeModelName.equals(modelName)) {
+            this.model = createModel(modelName);
+            this.activeModelName = modelName;
+        }
+        Response<AiMessage> response = model.generate(UserMessage.from(prompt));
+        Integer tokens = response.tokenUsage() != null ? response.tokenUsage().outputTokenCount() : null;
+        if (response.tokenUsage() != null) {
+            ModelUsage.tokens(response.tokenUsage().inputTokenCount(), tokens);
+        }
+        return new Answer(response.content().text(), tokens != null ? tokens : -1);
+    }
 }
\ No newline at end of file
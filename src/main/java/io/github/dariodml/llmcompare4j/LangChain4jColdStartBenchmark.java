@@ -0,0 +1,45 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class LangChain4jColdStartBenchmark extends AbstractColdStartBenchmark {
+
+    @Benchmark
+    @Fork(value = 5, warmups = 0) // Every fork is a fresh JVM, so each sample is a true cold start
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public Object benchmarkColdStart() {
+        return firstResponse();
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    public Object benchmarkWarmStart() {
+        return firstResponse();
+    }
+
+    @Override
+    public Object firstResponse() {
+        if (workload.equals("embed")) {
+            return OllamaEmbeddingModel.builder()
+                    .baseUrl(baseUrl)
+                    .modelName(embeddingModelName)
+                    .build()
+                    .embed(EMBED_TEXT);
+        }
+        return OllamaChatModel.builder()
+                .baseUrl(baseUrl)
+                .modelName(modelName)
+                .temperature(0.7)
+                .build()
+                .generate(CHAT_PROMPT);
+    }
+}
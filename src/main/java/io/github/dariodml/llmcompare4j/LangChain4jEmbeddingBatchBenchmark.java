@@ -0,0 +1,45 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import org.openjdk.jmh.annotations.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class LangChain4jEmbeddingBatchBenchmark extends AbstractEmbeddingBatchBenchmark {
+
+    private EmbeddingModel model;
+
+    @Setup(Level.Trial)
+    public void setupModel(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+        model = InProcessEmbeddings.isInProcess(backend)
+                ? InProcessEmbeddings.langChain4j(modelName)
+                : OllamaEmbeddingModel.builder()
+                        .baseUrl(baseUrl)
+                        .modelName(modelName)
+                        .build();
+    }
+
+    @Benchmark
+    public Object benchmarkEmbeddingBatch() {
+        return embedBatches();
+    }
+
+    @Override
+    public Object embedBatch(List<String> texts) {
+        // embedAll sends the whole list as one multi-input /api/embed request
+        List<TextSegment> segments = texts.stream()
+                .map(TextSegment::from)
+                .collect(Collectors.toList());
+        return model.embedAll(segments).content();
+    }
+}
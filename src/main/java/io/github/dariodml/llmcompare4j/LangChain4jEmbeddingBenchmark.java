@@ -1,7 +1,6 @@
 package io.github.dariodml.llmcompare4j;
 
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.onnx.allminilml6v2q.AllMiniLmL6V2QuantizedEmbeddingModel;
 import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
 import org.openjdk.jmh.annotations.*;
 import java.util.concurrent.TimeUnit;
@@ -16,21 +15,32 @@ public class LangChain4jEmbeddingBenchmark extends AbstractEmbeddingBenchmark {
 
     private EmbeddingModel model;
 
-    @Setup(Level.Iteration)
-    public void setupModel() {
+    @Setup(Level.Trial) // Client construction is measured separately by the ColdStart benchmarks
+    public void setupModel(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
         model = createModel(modelName);
+        if (gatewayEnabled()) {
+            model = new LangChain4jBatchingEmbeddingModel(model, gatewayBatchSize, gatewayMaxWait());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeGateway() {
+        if (model instanceof LangChain4jBatchingEmbeddingModel gateway) {
+            gateway.close();
+        }
     }
 
     private EmbeddingModel createModel(String name) {
         // LangChain4j Special Feature: Run All-MiniLM in-process (Pure Java/ONNX)
-        // This avoids the HTTP overhead of Ollama for this specific model. Much faster than MiniLm with Ollama.
-//        if (name.startsWith("all-minilm")) {
-//            return new AllMiniLmL6V2QuantizedEmbeddingModel();
-//        }
+        // This avoids the HTTP overhead of Ollama for this specific model.
+        if (InProcessEmbeddings.isInProcess(backend)) {
+            return InProcessEmbeddings.langChain4j(name);
+        }
 
-        // For other models (like bge-m3), use Ollama
+        // Otherwise (and for models like bge-m3), use Ollama
         return OllamaEmbeddingModel.builder()
-                .baseUrl("http://localhost:11434")
+                .baseUrl(baseUrl)
                 .modelName(name)
                 .build();
     }
@@ -0,0 +1,153 @@
+package io.github.dariodml.llmcompare4j;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.Tokenizer;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1) // A single shot already ingests the whole corpus
+public class LangChain4jIngestionBenchmark extends AbstractIngestionBenchmark<EmbeddingStore<TextSegment>, TextSegment> {
+
+    private EmbeddingModel embeddingModel;
+    private DocumentSplitter splitter;
+
+    @Setup(Level.Trial)
+    public void setup(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+
+        embeddingModel = InProcessEmbeddings.isInProcess(backend)
+                ? InProcessEmbeddings.langChain4j(embeddingModelName)
+                : OllamaEmbeddingModel.builder()
+                        .baseUrl(baseUrl)
+                        .modelName(embeddingModelName)
+                        .build();
+
+        splitter = DocumentSplitters.recursive(chunkTokens, chunkOverlapTokens, new Cl100kTokenizer());
+    }
+
+    @Benchmark
+    public Object benchmarkIngest() {
+        return ingestAndMeasure();
+    }
+
+    @Override
+    protected EmbeddingStore<TextSegment> newStore() {
+        return VectorIndexes.FRAMEWORK_DEFAULT.equals(storeType)
+                ? new InMemoryEmbeddingStore<>()
+                : new VectorIndexEmbeddingStore(indexFactory());
+    }
+
+    @Override
+    protected List<TextSegment> split(String source, String text) {
+        return splitter.split(Document.from(text, Metadata.from("source", source)));
+    }
+
+    @Override
+    protected List<String> embedAndStore(EmbeddingStore<TextSegment> store, List<TextSegment> chunks) {
+        // What EmbeddingStoreIngestor does after splitting, but its ingest() does not return the ids we need for updates
+        List<Embedding> embeddings = embeddingModel.embedAll(chunks).content();
+        return store.addAll(embeddings, chunks);
+    }
+
+    @Override
+    protected void remove(EmbeddingStore<TextSegment> store, List<String> ids) {
+        store.removeAll(ids);
+    }
+
+    /**
+     * Counts tokens with cl100k_base, the encoding Spring AI's TokenTextSplitter uses, so both splitters cut
+     * chunks of the same size. LangChain4j 0.35 only ships tokenizers in its OpenAI module. The splitters only count
+     * text; messages and tools are counted by their text too, without the per-message overhead of a chat API.
+     */
+    private static final class Cl100kTokenizer implements Tokenizer {
+
+        private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+        @Override
+        public int estimateTokenCountInText(String text) {
+            return text == null ? 0 : ENCODING.countTokens(text);
+        }
+
+        @Override
+        public int estimateTokenCountInMessage(ChatMessage message) {
+            if (message instanceof UserMessage user) {
+                int tokens = estimateTokenCountInText(user.name());
+                for (Content content : user.contents()) {
+                    if (content instanceof TextContent text) tokens += estimateTokenCountInText(text.text());
+                }
+                return tokens;
+            }
+            if (message instanceof AiMessage ai) {
+                return estimateTokenCountInText(ai.text())
+                        + (ai.hasToolExecutionRequests() ? estimateTokenCountInToolExecutionRequests(ai.toolExecutionRequests()) : 0);
+            }
+            if (message instanceof SystemMessage system) {
+                return estimateTokenCountInText(system.text());
+            }
+            if (message instanceof ToolExecutionResultMessage result) {
+                return estimateTokenCountInText(result.toolName()) + estimateTokenCountInText(result.text());
+            }
+            return 0;
+        }
+
+        @Override
+        public int estimateTokenCountInMessages(Iterable<ChatMessage> messages) {
+            int tokens = 0;
+            for (ChatMessage message : messages) {
+                tokens += estimateTokenCountInMessage(message);
+            }
+            return tokens;
+        }
+
+        @Override
+        public int estimateTokenCountInToolSpecifications(Iterable<ToolSpecification> toolSpecifications) {
+            int tokens = 0;
+            for (ToolSpecification specification : toolSpecifications) {
+                tokens += estimateTokenCountInText(specification.name()) + estimateTokenCountInText(specification.description());
+                if (specification.parameters() != null) {
+                    for (Map.Entry<String, Map<String, Object>> property : specification.parameters().properties().entrySet()) {
+                        tokens += estimateTokenCountInText(property.getKey()) + estimateTokenCountInText(property.getValue().toString());
+                    }
+                }
+            }
+            return tokens;
+        }
+
+        @Override
+        public int estimateTokenCountInToolExecutionRequests(Iterable<ToolExecutionRequest> toolExecutionRequests) {
+            int tokens = 0;
+            for (ToolExecutionRequest request : toolExecutionRequests) {
+                tokens += estimateTokenCountInText(request.name()) + estimateTokenCountInText(request.arguments());
+            }
+            return tokens;
+        }
+    }
+}
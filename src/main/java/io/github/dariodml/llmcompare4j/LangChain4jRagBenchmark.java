@@ -1,19 +1,28 @@
 package io.github.dariodml.llmcompare4j;
 
 import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.StreamingResponseHandler;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.ollama.OllamaChatModel;
 import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaStreamingChatModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.DefaultRetrievalAugmentor;
+import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.query.Query;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
 import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import org.openjdk.jmh.annotations.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -31,58 +40,219 @@ public class LangChain4jRagBenchmark extends AbstractRagBenchmark {
 
     private Assistant assistant;
 
+    // Used by ragAsync() only
+    private OllamaStreamingChatModel streamingChatModel;
+    private ContentRetriever searchRetriever;
+    private ContentRetriever contentRetriever;
+
     @Setup(Level.Trial)
-    public void setup() {
+    public void setup(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+
         // 1. CHAT MODEL
         ChatLanguageModel chatModel = OllamaChatModel.builder()
-                .baseUrl("http://localhost:11434")
+                .baseUrl(baseUrl)
                 .modelName(modelName)
                 .temperature(0.7)
+                .listeners(stagesEnabled()
+                        ? List.of(ModelUsage.langChain4jListener(), LangChain4jStages.listener())
+                        : List.of(ModelUsage.langChain4jListener()))
                 .build();
 
         // 2. EMBEDDING MODEL
-        EmbeddingModel embeddingModel = OllamaEmbeddingModel.builder()
-                .baseUrl("http://localhost:11434")
-                .modelName(embeddingModelName)
-                .build();
-
-        // 3. EMBEDDING STORE
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingModel embeddingModel = InProcessEmbeddings.isInProcess(backend)
+                ? InProcessEmbeddings.langChain4j(embeddingModelName)
+                : OllamaEmbeddingModel.builder()
+                        .baseUrl(baseUrl)
+                        .modelName(embeddingModelName)
+                        .build();
 
-        // 4. INGESTOR (Core API)
-        EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-                .embeddingModel(embeddingModel)
-                .embeddingStore(embeddingStore)
-                .build();
+        EmbeddingCache embeddingCache = createEmbeddingCache(endpoint);
+        if (embeddingCache != null) {
+            embeddingModel = new LangChain4jCachingEmbeddingModel(embeddingModel, embeddingModelName, embeddingCache);
+        }
+        if (stagesEnabled()) {
+            chatModel = LangChain4jStages.chatModel(chatModel);
+            embeddingModel = LangChain4jStages.embeddingModel(embeddingModel);
+        }
 
+        // 3. EMBEDDING STORE
         List<Document> docs = documents.stream()
                 .map(Document::from)
                 .collect(Collectors.toList());
 
-        ingestor.ingest(docs);
+        EmbeddingStore<TextSegment> embeddingStore;
+        if (VectorIndexes.SNAPSHOT.equals(storeType)) {
+            // 4. SNAPSHOT: only the first run embeds the documents, later trials map the file
+            SnapshotEmbeddingStore snapshot = SnapshotEmbeddingStore.openOrWrite(snapshotPath("langchain4j", endpoint),
+                    embeddingModel, docs.stream().map(Document::toTextSegment).collect(Collectors.toList()));
+            embeddingStore = closeAfterTrial(snapshot);
+        } else {
+            embeddingStore = VectorIndexes.FRAMEWORK_DEFAULT.equals(storeType)
+                    ? new InMemoryEmbeddingStore<>()
+                    : closeAfterTrial(new VectorIndexEmbeddingStore(indexFactory()));
+
+            // 4. INGESTOR (Core API)
+            EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
+                    .embeddingModel(embeddingModel)
+                    .embeddingStore(embeddingStore)
+                    .build();
 
-        // 5. CONTENT RETRIEVER (Core API)
-        ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
+            ingestor.ingest(docs);
+        }
+
+        // 5. CONTENT RETRIEVER (Core API), behind BM25 for the lexical and hybrid retrieval modes
+        contentRetriever = EmbeddingStoreContentRetriever.builder()
                 .embeddingStore(embeddingStore)
                 .embeddingModel(embeddingModel)
-                .maxResults(2)
+                .maxResults(lexicalRetrievalEnabled() ? 2 * HybridRetrieval.CANDIDATES_PER_RESULT : 2)
                 .minScore(0.5)
                 .build();
+        if (lexicalRetrievalEnabled()) {
+            contentRetriever = new HybridContentRetriever(lexicalIndex(documents),
+                    docs.stream().map(Document::toTextSegment).collect(Collectors.toList()),
+                    contentRetriever, retrieval, 2);
+        }
 
         // 6. AI SERVICE (No chat memory to match Spring AI - pure RAG with context retrieval)
-        this.assistant = AiServices.builder(Assistant.class)
-                .chatLanguageModel(chatModel)
-                .contentRetriever(contentRetriever)
+        AiServices<Assistant> aiServices = AiServices.builder(Assistant.class)
+                .chatLanguageModel(chatModel);
+        if (stagesEnabled()) {
+            // The same augmentor AiServices builds for contentRetriever(), with stage hooks around it
+            aiServices.retrievalAugmentor(LangChain4jStages.retrievalAugmentor(DefaultRetrievalAugmentor.builder()
+                    .contentRetriever(LangChain4jStages.contentRetriever(contentRetriever))
+                    .build()));
+        } else {
+            aiServices.contentRetriever(contentRetriever);
+        }
+        this.assistant = aiServices.build();
+
+        // 7. STREAMING CHAT MODEL for ragAsync(), which does the retrieval itself
+        streamingChatModel = OllamaStreamingChatModel.builder()
+                .baseUrl(baseUrl)
+                .modelName(modelName)
+                .temperature(0.7)
+                .listeners(stagesEnabled()
+                        ? List.of(ModelUsage.langChain4jListener(), LangChain4jStages.listener())
+                        : List.of(ModelUsage.langChain4jListener()))
                 .build();
+        searchRetriever = stagesEnabled() ? LangChain4jStages.contentRetriever(contentRetriever) : contentRetriever;
     }
 
     @Benchmark
+    @SuppressWarnings("try")
     public String benchmarkRag() {
-        return rag(prompt, modelName);
+        try (ModelUsage usage = ModelUsage.start()) {
+            return answer(nextPrompt());
+        }
     }
 
     @Override
+    @SuppressWarnings("try")
     public String rag(String prompt, String modelName) {
+        if (stagesEnabled()) {
+            try (CallStages.Stage call = CallStages.call()) {
+                return assistant.chat(prompt);
+            }
+        }
         return assistant.chat(prompt);
     }
-}
\ No newline at end of file
+
+    @Override
+    public CompletableFuture<String> ragAsync(String prompt, String modelName) {
+        TokenTimer timer = new TokenTimer();
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        // The generation completes on OkHttp's thread, so the usage of this call is handed to it
+        ModelUsage usage = ModelUsage.current();
+
+        // 1. Retrieval (query embedding + vector search, BM25 or both) and keyword retrieval at the same time
+        CompletableFuture<List<String>> semantic = CompletableFuture.supplyAsync(() -> search(prompt), retrievalExecutor);
+        CompletableFuture<List<String>> keyword = keywordRetrievalEnabled()
+                ? CompletableFuture.supplyAsync(() -> keywordMatches(prompt, 2), retrievalExecutor)
+                : CompletableFuture.completedFuture(List.of());
+
+        // 2. Prompt assembly as soon as both are in, then 3. the streamed generation
+        semantic.thenCombine(keyword, AbstractRagBenchmark::mergeContents)
+                .thenAccept(contents -> generate(augment(prompt, contents), usage, timer, answer))
+                .exceptionally(error -> {
+                    answer.completeExceptionally(error);
+                    return null;
+                });
+        answer.whenComplete((text, error) -> {
+            if (answer.isCancelled()) {
+                semantic.cancel(true);
+                keyword.cancel(true);
+            }
+        });
+        return answer;
+    }
+
+    /**
+     * The retrieval of {@link #rag}: the content retriever, which honours the {@code retrieval} mode. With the stage
+     * breakdown it runs under its own root stage, as the hooks only record on the thread that opened it.
+     */
+    @SuppressWarnings("try")
+    private List<String> search(String prompt) {
+        if (stagesEnabled()) {
+            try (CallStages.Stage call = CallStages.call()) {
+                return retrieve(prompt);
+            }
+        }
+        return retrieve(prompt);
+    }
+
+    private List<String> retrieve(String prompt) {
+        return searchRetriever.retrieve(Query.from(prompt)).stream()
+                .map(Content::textSegment)
+                .map(TextSegment::text)
+                .collect(Collectors.toList());
+    }
+
+    /** The same user message DefaultContentInjector builds for AiServices. */
+    private static String augment(String prompt, List<String> contents) {
+        if (contents.isEmpty()) return prompt;
+        return prompt + "\n\nAnswer using the following information:\n" + String.join("\n\n", contents);
+    }
+
+    /**
+     * Starts the streamed generation. With the stage breakdown, model.request and model.exchange are recorded on
+     * this thread under their own root stage, so model.exchange only covers handing the request to OkHttp; the
+     * streamed response is what the stream.* metrics measure.
+     */
+    @SuppressWarnings("try")
+    private void generate(String userMessage, ModelUsage usage, TokenTimer timer, CompletableFuture<String> answer) {
+        if (answer.isDone()) return; // Cancelled during retrieval
+        if (stagesEnabled()) {
+            try (CallStages.Stage call = CallStages.call();
+                 CallStages.Stage request = CallStages.open("model.request")) {
+                stream(userMessage, usage, timer, answer);
+            }
+        } else {
+            stream(userMessage, usage, timer, answer);
+        }
+    }
+
+    private void stream(String userMessage, ModelUsage usage, TokenTimer timer, CompletableFuture<String> answer) {
+        streamingChatModel.generate(userMessage, new StreamingResponseHandler<AiMessage>() {
+            @Override
+            public void onNext(String token) {
+                // Throwing makes the client close the response stream, which ends the generation
+                if (answer.isCancelled()) throw new CancellationException();
+                timer.onToken(token);
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                timer.onComplete();
+                // Before completing the answer: the listener only runs after this, racing ModelUsage.close()
+                ModelUsage.langChain4j(usage, response.tokenUsage());
+                answer.complete(response.content().text());
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                answer.completeExceptionally(error);
+            }
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class LangChain4jRagScalingBenchmark extends AbstractRagScalingBenchmark<EmbeddingStore<TextSegment>> {
+
+    private EmbeddingModel embeddingModel;
+    private List<String> corpus;
+    private ContentRetriever contentRetriever;
+
+    @State(Scope.Thread)
+    public static class Chat extends Generation {
+
+        private ChatLanguageModel chatModel;
+
+        @Setup(Level.Trial)
+        public void setup(OllamaEndpoint endpoint) {
+            chatModel = OllamaChatModel.builder()
+                    .baseUrl(endpoint.baseUrl())
+                    .modelName(modelName)
+                    .temperature(0.7)
+                    .build();
+        }
+
+        @Override
+        public String generate(String prompt, List<String> context) {
+            return chatModel.generate(CONTEXT_TEMPLATE.formatted(context(context), prompt));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+
+        embeddingModel = InProcessEmbeddings.isInProcess(backend)
+                ? InProcessEmbeddings.langChain4j(embeddingModelName)
+                : OllamaEmbeddingModel.builder()
+                        .baseUrl(baseUrl)
+                        .modelName(embeddingModelName)
+                        .build();
+
+        EmbeddingCache embeddingCache = createEmbeddingCache(endpoint);
+        if (embeddingCache != null) {
+            embeddingModel = new LangChain4jCachingEmbeddingModel(embeddingModel, embeddingModelName, embeddingCache);
+        }
+
+        corpus = corpus();
+        EmbeddingStore<TextSegment> embeddingStore = ingestAndMeasure(corpus);
+
+        contentRetriever = EmbeddingStoreContentRetriever.builder()
+                .embeddingStore(embeddingStore)
+                .embeddingModel(embeddingModel)
+                .maxResults(lexicalRetrievalEnabled() ? 2 * HybridRetrieval.CANDIDATES_PER_RESULT : 2)
+                .minScore(0.5)
+                .build();
+        if (lexicalRetrievalEnabled()) {
+            // Segments as the ingestor stores them (with index=0), so both sides of the fusion are equal per chunk
+            contentRetriever = new HybridContentRetriever(lexicalIndex(corpus),
+                    corpus.stream().map(Document::from).map(Document::toTextSegment).collect(Collectors.toList()),
+                    contentRetriever, retrieval, 2);
+        }
+    }
+
+    @Override
+    protected EmbeddingStore<TextSegment> ingest(List<String> chunks) {
+        EmbeddingStore<TextSegment> embeddingStore = VectorIndexes.FRAMEWORK_DEFAULT.equals(storeType)
+                ? new InMemoryEmbeddingStore<>()
+                : new VectorIndexEmbeddingStore(indexFactory());
+        EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
+                .embeddingModel(embeddingModel)
+                .embeddingStore(embeddingStore)
+                .build();
+
+        for (int from = 0; from < chunks.size(); from += INGEST_BATCH_SIZE) {
+            List<Document> batch = chunks.subList(from, Math.min(from + INGEST_BATCH_SIZE, chunks.size())).stream()
+                    .map(Document::from)
+                    .collect(Collectors.toList());
+            ingestor.ingest(batch);
+        }
+        return embeddingStore;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1) // A single shot already embeds the whole corpus
+    public Object benchmarkIngest() {
+        return closeAfterTrial(ingest(corpus));
+    }
+
+    @Benchmark
+    public List<String> benchmarkRetrieve(Question question) {
+        List<String> retrieved = retrieve(nextPrompt(question.prompt));
+        recordHitRate(question.prompt, retrieved);
+        return retrieved;
+    }
+
+    @Benchmark
+    public String benchmarkGenerate(Question question, Chat chat) {
+        return chat.generate(question.prompt, retrievedContext(question.prompt));
+    }
+
+    @Override
+    public List<String> retrieve(String prompt) {
+        return contentRetriever.retrieve(Query.from(prompt)).stream()
+                .map(Content::textSegment)
+                .map(TextSegment::text)
+                .collect(Collectors.toList());
+    }
+}
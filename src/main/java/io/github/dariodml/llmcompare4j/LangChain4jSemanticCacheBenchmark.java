@@ -0,0 +1,69 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class LangChain4jSemanticCacheBenchmark extends AbstractSemanticCacheBenchmark {
+
+    private LangChain4jChatBenchmark chat;
+    private LangChain4jRagBenchmark rag;
+    private EmbeddingModel embeddingModel;
+
+    @Setup(Level.Trial)
+    public void setup(OllamaEndpoint endpoint) {
+        // Same chat and RAG setup as the regular benchmarks
+        if (workload.equals("rag")) {
+            rag = new LangChain4jRagBenchmark();
+            rag.modelName = modelName;
+            rag.embeddingModelName = embeddingModelName;
+            rag.setup(endpoint);
+        } else {
+            chat = new LangChain4jChatBenchmark();
+            chat.modelName = modelName;
+            chat.setupModel(endpoint);
+        }
+
+        embeddingModel = OllamaEmbeddingModel.builder()
+                .baseUrl(endpoint.baseUrl())
+                .modelName(embeddingModelName)
+                .build();
+        cache = createCache();
+    }
+
+    /**
+     * The cache holds its embeddings off-heap, and the nested RAG benchmark owns an executor and its stores; JMH
+     * tears down neither.
+     */
+    @TearDown(Level.Trial)
+    public void closeResources() throws Exception {
+        if (cache != null) {
+            cache.close();
+        }
+        if (rag != null) {
+            rag.closeResources();
+        }
+    }
+
+    @Benchmark
+    public String benchmarkAsk() {
+        return ask();
+    }
+
+    @Override
+    protected String generate(String prompt) {
+        return rag != null ? rag.rag(prompt, modelName) : chat.chat(prompt, modelName);
+    }
+
+    @Override
+    protected float[] embed(String prompt) {
+        return embeddingModel.embed(prompt).content().vector();
+    }
+}
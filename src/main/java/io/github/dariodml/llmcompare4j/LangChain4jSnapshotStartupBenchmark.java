@@ -0,0 +1,92 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.*;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 3, warmups = 1) // Every fork is a restart; the warmup fork writes the JSON file or snapshot
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class LangChain4jSnapshotStartupBenchmark extends AbstractSnapshotStartupBenchmark<EmbeddingStore<TextSegment>> {
+
+    private EmbeddingModel embeddingModel;
+
+    @Setup(Level.Trial)
+    public void setup(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+        embeddingModel = InProcessEmbeddings.isInProcess(backend)
+                ? InProcessEmbeddings.langChain4j(embeddingModelName)
+                : OllamaEmbeddingModel.builder()
+                        .baseUrl(baseUrl)
+                        .modelName(embeddingModelName)
+                        .build();
+        prepare("langchain4j", endpoint);
+    }
+
+    @Benchmark
+    public List<String> benchmarkTimeToFirstQuery() {
+        return startAndQuery();
+    }
+
+    @Override
+    protected EmbeddingStore<TextSegment> reingest() {
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
+                .embeddingModel(embeddingModel)
+                .embeddingStore(store)
+                .build();
+        for (int from = 0; from < corpus.size(); from += INGEST_BATCH_SIZE) {
+            ingestor.ingest(corpus.subList(from, Math.min(from + INGEST_BATCH_SIZE, corpus.size())).stream()
+                    .map(Document::from)
+                    .collect(Collectors.toList()));
+        }
+        return store;
+    }
+
+    @Override
+    protected void writeJson(EmbeddingStore<TextSegment> store, Path file) {
+        ((InMemoryEmbeddingStore<TextSegment>) store).serializeToFile(file);
+    }
+
+    @Override
+    protected EmbeddingStore<TextSegment> loadJson(Path file) {
+        return InMemoryEmbeddingStore.fromFile(file);
+    }
+
+    @Override
+    protected void writeSnapshot(Path file) {
+        SnapshotEmbeddingStore.write(file, embeddingModel, corpus.stream()
+                .map(TextSegment::from)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    protected EmbeddingStore<TextSegment> openSnapshot(Path file) {
+        return new SnapshotEmbeddingStore(VectorSnapshot.open(file));
+    }
+
+    @Override
+    protected List<String> retrieve(EmbeddingStore<TextSegment> store, String query) {
+        return store.search(EmbeddingSearchRequest.builder()
+                        .queryEmbedding(embeddingModel.embed(query).content())
+                        .maxResults(2)
+                        .build()).matches().stream()
+                .map(EmbeddingMatch::embedded)
+                .map(TextSegment::text)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.AugmentationRequest;
+import dev.langchain4j.rag.AugmentationResult;
+import dev.langchain4j.rag.RetrievalAugmentor;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Metadata;
+
+import java.util.List;
+
+/**
+ * {@link CallStages} hooks for a LangChain4j AiServices call. The stages are:
+ * <ul>
+ *     <li>{@code augment}: the RetrievalAugmentor minus retrieval (query routing, aggregation, prompt templating)</li>
+ *     <li>{@code retrieve}: the ContentRetriever minus the query embedding (vector search, Content mapping)</li>
+ *     <li>{@code embed}: the query embedding</li>
+ *     <li>{@code model.request}: mapping the messages to Ollama's request, up to the listener's onRequest</li>
+ *     <li>{@code model.exchange}: onRequest to onResponse; LangChain4j 0.35 builds its OkHttp client internally,
+ *     so JSON serialization and parsing cannot be split from the HTTP exchange here</li>
+ *     <li>{@code model.response}: onResponse until the model returns</li>
+ * </ul>
+ */
+@SuppressWarnings("try")
+public final class LangChain4jStages {
+
+    private LangChain4jStages() {
+    }
+
+    /** Listener to register on the chat model (via its builder) that is wrapped with {@link #chatModel}. */
+    public static ChatModelListener listener() {
+        return new ChatModelListener() {
+            @Override
+            public void onRequest(ChatModelRequestContext requestContext) {
+                CallStages.next("model.exchange");
+            }
+
+            @Override
+            public void onResponse(ChatModelResponseContext responseContext) {
+                CallStages.next("model.response");
+            }
+        };
+    }
+
+    public static ChatLanguageModel chatModel(ChatLanguageModel delegate) {
+        return new ChatLanguageModel() {
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages) {
+                try (CallStages.Stage stage = CallStages.open("model.request")) {
+                    return delegate.generate(messages);
+                }
+            }
+        };
+    }
+
+    public static RetrievalAugmentor retrievalAugmentor(RetrievalAugmentor delegate) {
+        return new RetrievalAugmentor() {
+            @Override
+            public AugmentationResult augment(AugmentationRequest request) {
+                try (CallStages.Stage stage = CallStages.open("augment")) {
+                    return delegate.augment(request);
+                }
+            }
+
+            @Override
+            @SuppressWarnings("deprecation")
+            public UserMessage augment(UserMessage userMessage, Metadata metadata) {
+                try (CallStages.Stage stage = CallStages.open("augment")) {
+                    return delegate.augment(userMessage, metadata);
+                }
+            }
+        };
+    }
+
+    public static ContentRetriever contentRetriever(ContentRetriever delegate) {
+        return query -> {
+            try (CallStages.Stage stage = CallStages.open("retrieve")) {
+                return delegate.retrieve(query);
+            }
+        };
+    }
+
+    public static EmbeddingModel embeddingModel(EmbeddingModel delegate) {
+        return new EmbeddingModel() {
+            @Override
+            public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+                try (CallStages.Stage stage = CallStages.open("embed")) {
+                    return delegate.embedAll(textSegments);
+                }
+            }
+
+            @Override
+            public int dimension() {
+                return delegate.dimension();
+            }
+        };
+    }
+}
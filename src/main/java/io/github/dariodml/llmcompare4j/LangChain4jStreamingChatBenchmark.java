@@ -0,0 +1,70 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.ollama.OllamaStreamingChatModel;
+import dev.langchain4j.model.output.Response;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class LangChain4jStreamingChatBenchmark extends AbstractChatBenchmark {
+
+    private OllamaStreamingChatModel model;
+    private String activeModelName;
+
+    private OllamaStreamingChatModel createModel(String modelNameToUse) {
+        return OllamaStreamingChatModel.builder()
+                .baseUrl(baseUrl)
+                .modelName(modelNameToUse)
+                .temperature(0.7)
+                .build();
+    }
+
+    @Setup(Level.Trial)
+    public void setupModel(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+        model = createModel(modelName);
+        activeModelName = modelName;
+    }
+
+    @Benchmark
+    public String benchmarkStreamingChat() {
+        return chat(prompt, modelName);
+    }
+
+    @Override
+    public String chat(String prompt, String modelName) {
+        if (model == null || activeModelName == null || !activeModelName.equals(modelName)) {
+            this.model = createModel(modelName);
+            this.activeModelName = modelName;
+        }
+
+        TokenTimer timer = new TokenTimer();
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        model.generate(prompt, new StreamingResponseHandler<AiMessage>() {
+            @Override
+            public void onNext(String token) {
+                timer.onToken(token);
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                timer.onComplete();
+                answer.complete(response.content().text());
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                answer.completeExceptionally(error);
+            }
+        });
+        return answer.join();
+    }
+}
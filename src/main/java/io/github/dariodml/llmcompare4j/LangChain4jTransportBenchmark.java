@@ -0,0 +1,50 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection reuse for LangChain4j: "per-model" keeps one model (and its OkHttp keep-alive pool) for all calls,
+ * "per-call" builds a new model for every call, so each call pays client bootstrap and a new TCP connection.
+ * LangChain4j 0.35 cannot be given a shared HTTP client, so there is no "shared" variant (see {@link HttpTransport}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class LangChain4jTransportBenchmark {
+
+    @Param({"per-call", "per-model"})
+    public String transport;
+
+    @Param({"all-minilm"})
+    public String modelName;
+
+    private static final String TEXT = "Short sentence for embedding.";
+
+    private String baseUrl;
+    private EmbeddingModel model;
+
+    @Setup(Level.Trial)
+    public void setup(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+        model = createModel();
+    }
+
+    private EmbeddingModel createModel() {
+        return OllamaEmbeddingModel.builder()
+                .baseUrl(baseUrl)
+                .modelName(modelName)
+                .build();
+    }
+
+    @Benchmark
+    public Object benchmarkEmbedding() {
+        EmbeddingModel client = transport.equals("per-call") ? createModel() : model;
+        return client.embed(TEXT);
+    }
+}
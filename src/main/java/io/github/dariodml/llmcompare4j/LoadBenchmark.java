@@ -0,0 +1,390 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Concurrent-load mode: drives the chat, embedding and RAG calls of both frameworks from N virtual threads
+ * (closed loop, so N requests are in flight) against one shared client per framework, and reports throughput
+ * plus latency percentiles. JMH runs every benchmark on a single platform thread, so this runs outside of JMH.
+ * The {@code rag-async} workload keeps the same number of requests in flight through
+ * {@link AbstractRagBenchmark#ragAsync} without any driver threads: every completed call starts the next one.
+ * Each run also reports how many platform threads its peak exceeded the live threads at the start by (virtual
+ * threads are not counted; idle pools left by an earlier run of the same framework are reused, not counted).
+ *
+ * With {@code gatewayWaits} the embed workload also runs through an {@link EmbeddingGateway} with each of those
+ * batch windows, to weigh fewer round trips against the latency the window adds.
+ *
+ * <p>Arguments (all optional): {@code workload=chat,embed,rag,rag-async concurrency=50,100,500 duration=30 warmup=5
+ * server=ollama|stub models=llama3.2 embeddingModels=all-minilm embedTexts=1 gatewayWaits=500,2000
+ * gatewayBatchSize=64}
+ */
+public class LoadBenchmark {
+
+    public record LoadResult(String framework, String workload, String model, int concurrency,
+                             long operations, long errors, double seconds, Histogram latencies, int addedThreads) {
+
+        public double throughput() {
+            return operations / seconds;
+        }
+
+        /** Latency at the given percentile in milliseconds. */
+        public double percentileMillis(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1_000_000.0;
+        }
+    }
+
+    /**
+     * A framework call that is safe to invoke from many threads at once; either blocking or asynchronous. Closing
+     * the target runs the benchmark's teardown (executors, stores, gateways); closing it again does nothing.
+     */
+    record Target(String framework, String workload, String model, Runnable call, Supplier<CompletableFuture<?>> asyncCall,
+                  AutoCloseable resources) implements AutoCloseable {
+
+        Target(String framework, String workload, String model, Runnable call) {
+            this(framework, workload, model, call, null, null);
+        }
+
+        static Target async(String framework, String workload, String model, Supplier<CompletableFuture<?>> asyncCall) {
+            return new Target(framework, workload, model, null, asyncCall, null);
+        }
+
+        /** The same target, closing {@code resources} when it is closed. */
+        Target closing(AutoCloseable resources) {
+            return new Target(framework, workload, model, call, asyncCall, resources);
+        }
+
+        @Override
+        public void close() {
+            if (resources == null) return;
+            try {
+                resources.close();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not close " + framework + " " + workload + " (" + model + ")", e);
+            }
+        }
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // How long asynchronous calls still in flight at the deadline may take before the run gives up on them
+    private static final Duration ASYNC_DRAIN_TIMEOUT = Duration.ofMinutes(2);
+
+    public static void main(String[] args) {
+        LoadConfig config = LoadConfig.parse(args);
+
+        OllamaEndpoint endpoint = new OllamaEndpoint();
+        endpoint.server = config.server;
+        endpoint.start();
+
+        List<LoadResult> results = new ArrayList<>();
+        List<Target> targets = new ArrayList<>();
+        try {
+            targets.addAll(createTargets(config, endpoint));
+            for (Target target : targets) {
+                for (int concurrency : config.concurrency) {
+                    System.out.printf("%s %s (%s) with %d virtual threads...%n",
+                            target.framework(), target.workload(), target.model(), concurrency);
+                    LoadResult result = run(target, concurrency, config.warmup, config.duration);
+                    print(result);
+                    results.add(result);
+                }
+                // Free the target's executors, stores and gateways before the next one runs
+                target.close();
+            }
+        } finally {
+            targets.forEach(Target::close);
+            endpoint.stop();
+        }
+
+        writeCsv(results, "load_results.csv");
+        BenchmarkVisualizer.createLoadChart(results);
+    }
+
+    static List<Target> createTargets(LoadConfig config, OllamaEndpoint endpoint) {
+        List<Target> targets = new ArrayList<>();
+        for (String workload : config.workloads) {
+            switch (workload) {
+                case "chat" -> {
+                    for (String model : config.models) {
+                        LangChain4jChatBenchmark langChain4j = new LangChain4jChatBenchmark();
+                        langChain4j.modelName = model;
+                        langChain4j.setupModel(endpoint);
+                        targets.add(new Target("LangChain4j", workload, model, () -> langChain4j.chat(config.chatPrompt, model)));
+
+                        SpringAiChatBenchmark springAi = new SpringAiChatBenchmark();
+                        springAi.modelName = model;
+                        springAi.setupModel(endpoint);
+                        targets.add(new Target("Spring AI", workload, model, () -> springAi.chat(config.chatPrompt, model)));
+                    }
+                }
+                case "embed" -> {
+                    List<String> texts = config.embedTexts == 1
+                            ? List.of(config.embedText)
+                            : SyntheticCorpus.load(List.of(), config.embedTexts, "", 42);
+                    for (String model : config.embeddingModels) {
+                        // Direct calls first, then the same calls through an EmbeddingGateway per batch window
+                        List<Integer> waits = new ArrayList<>();
+                        waits.add(0);
+                        waits.addAll(config.gatewayWaits);
+                        for (int i = 0; i < waits.size(); i++) {
+                            String label = i == 0 ? model : model + " gateway " + waits.get(i) + "us";
+                            int batchSize = i == 0 ? 0 : config.gatewayBatchSize;
+
+                            LangChain4jEmbeddingBenchmark langChain4j = new LangChain4jEmbeddingBenchmark();
+                            langChain4j.modelName = model;
+                            langChain4j.gatewayBatchSize = batchSize;
+                            langChain4j.gatewayMaxWaitMicros = waits.get(i);
+                            langChain4j.setupModel(endpoint);
+                            AtomicLong langChain4jNext = new AtomicLong();
+                            targets.add(new Target("LangChain4j", workload, label, () -> langChain4j.embed(
+                                    texts.get((int) (langChain4jNext.getAndIncrement() % texts.size())), model))
+                                    .closing(langChain4j::closeGateway));
+
+                            SpringAiEmbeddingBenchmark springAi = new SpringAiEmbeddingBenchmark();
+                            springAi.modelName = model;
+                            springAi.gatewayBatchSize = batchSize;
+                            springAi.gatewayMaxWaitMicros = waits.get(i);
+                            springAi.setupModel(endpoint);
+                            AtomicLong springAiNext = new AtomicLong();
+                            targets.add(new Target("Spring AI", workload, label, () -> springAi.embed(
+                                    texts.get((int) (springAiNext.getAndIncrement() % texts.size())), model))
+                                    .closing(springAi::closeGateway));
+                        }
+                    }
+                }
+                case "rag" -> {
+                    for (String model : config.models) {
+                        String embeddingModel = config.embeddingModels.get(0);
+                        String label = model + " + " + embeddingModel;
+
+                        LangChain4jRagBenchmark langChain4j = new LangChain4jRagBenchmark();
+                        langChain4j.modelName = model;
+                        langChain4j.embeddingModelName = embeddingModel;
+                        langChain4j.setup(endpoint);
+                        targets.add(new Target("LangChain4j", workload, label, () -> langChain4j.rag(config.ragPrompt, model))
+                                .closing(langChain4j::closeResources));
+
+                        SpringAiRagBenchmark springAi = new SpringAiRagBenchmark();
+                        springAi.modelName = model;
+                        springAi.embeddingModelName = embeddingModel;
+                        springAi.setup(endpoint);
+                        targets.add(new Target("Spring AI", workload, label, () -> springAi.rag(config.ragPrompt, model))
+                                .closing(springAi::closeResources));
+                    }
+                }
+                case "rag-async" -> {
+                    for (String model : config.models) {
+                        String embeddingModel = config.embeddingModels.get(0);
+                        String label = model + " + " + embeddingModel;
+
+                        LangChain4jRagBenchmark langChain4j = new LangChain4jRagBenchmark();
+                        langChain4j.modelName = model;
+                        langChain4j.embeddingModelName = embeddingModel;
+                        langChain4j.setup(endpoint);
+                        targets.add(Target.async("LangChain4j", workload, label, () -> langChain4j.ragAsync(config.ragPrompt, model))
+                                .closing(langChain4j::closeResources));
+
+                        SpringAiRagBenchmark springAi = new SpringAiRagBenchmark();
+                        springAi.modelName = model;
+                        springAi.embeddingModelName = embeddingModel;
+                        springAi.setup(endpoint);
+                        targets.add(Target.async("Spring AI", workload, label, () -> springAi.ragAsync(config.ragPrompt, model))
+                                .closing(springAi::closeResources));
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown workload: " + workload);
+            }
+        }
+        return targets;
+    }
+
+    static LoadResult run(Target target, int concurrency, Duration warmup, Duration duration) {
+        Recorder recorder = new Recorder(3);
+        AtomicLong operations = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+
+        THREADS.resetPeakThreadCount();
+        int threadsBefore = THREADS.getThreadCount();
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+
+        if (target.asyncCall() != null) {
+            CountDownLatch finished = new CountDownLatch(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                callAsync(target, measureFrom, deadline, recorder, operations, errors, finished);
+            }
+            try {
+                long waitNanos = Math.max(0, deadline - System.nanoTime()) + ASYNC_DRAIN_TIMEOUT.toNanos();
+                if (!finished.await(waitNanos, TimeUnit.NANOSECONDS)) {
+                    System.err.printf("   %d asynchronous calls did not finish within %d s after the deadline%n",
+                            finished.getCount(), ASYNC_DRAIN_TIMEOUT.toSeconds());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < concurrency; i++) {
+                    executor.submit(() -> {
+                        long now;
+                        while ((now = System.nanoTime()) < deadline) {
+                            boolean failed = false;
+                            try {
+                                target.call().run();
+                            } catch (RuntimeException e) {
+                                failed = true;
+                            }
+                            long end = System.nanoTime();
+                            // Only calls that started after warmup count towards the result
+                            if (now < measureFrom) continue;
+                            if (failed) {
+                                errors.incrementAndGet();
+                            } else {
+                                recorder.recordValue(end - now);
+                                operations.incrementAndGet();
+                            }
+                        }
+                    });
+                }
+            } // close() waits for the in-flight calls to finish
+        }
+
+        double seconds = (Math.max(System.nanoTime(), deadline) - measureFrom) / 1e9;
+        return new LoadResult(target.framework(), target.workload(), target.model(), concurrency,
+                operations.get(), errors.get(), seconds, recorder.getIntervalHistogram(),
+                THREADS.getPeakThreadCount() - threadsBefore);
+    }
+
+    /**
+     * Runs one slot of asynchronous calls. Calls that complete synchronously (e.g. a failure thrown by the call
+     * itself) are recorded and followed up in a loop; the first call still in flight hands the slot over to its
+     * completion, which continues it on a fresh stack. The slot counts down {@code finished} exactly once, when it
+     * reaches the deadline or fails.
+     */
+    private static void callAsync(Target target, long measureFrom, long deadline, Recorder recorder,
+                                  AtomicLong operations, AtomicLong errors, CountDownLatch finished) {
+        boolean handedOver = false;
+        try {
+            long now;
+            while ((now = System.nanoTime()) < deadline) {
+                CompletableFuture<?> call;
+                try {
+                    call = target.asyncCall().get();
+                } catch (RuntimeException e) {
+                    call = CompletableFuture.failedFuture(e);
+                }
+                if (call.isDone()) {
+                    record(now, measureFrom, call.isCompletedExceptionally(), recorder, operations, errors);
+                    continue;
+                }
+                long started = now;
+                call.whenComplete((result, error) -> {
+                    try {
+                        record(started, measureFrom, error != null, recorder, operations, errors);
+                    } finally {
+                        callAsync(target, measureFrom, deadline, recorder, operations, errors, finished);
+                    }
+                });
+                handedOver = true;
+                return;
+            }
+        } finally {
+            if (!handedOver) finished.countDown();
+        }
+    }
+
+    private static void record(long start, long measureFrom, boolean failed, Recorder recorder,
+                               AtomicLong operations, AtomicLong errors) {
+        // Only calls that started after warmup count towards the result
+        if (start < measureFrom) return;
+        if (failed) {
+            errors.incrementAndGet();
+        } else {
+            recorder.recordValue(System.nanoTime() - start);
+            operations.incrementAndGet();
+        }
+    }
+
+    private static void print(LoadResult result) {
+        System.out.printf(Locale.ROOT, "   %,d ops, %d errors, %.1f ops/s | p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms | +%d platform threads%n",
+                result.operations(), result.errors(), result.throughput(),
+                result.percentileMillis(50), result.percentileMillis(90),
+                result.percentileMillis(99), result.percentileMillis(99.9), result.addedThreads());
+    }
+
+    static void writeCsv(List<LoadResult> results, String fileName) {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            writer.println("framework,workload,model,concurrency,operations,errors,throughput,p50_ms,p90_ms,p99_ms,p999_ms,added_threads");
+            for (LoadResult r : results) {
+                writer.printf(Locale.ROOT, "%s,%s,%s,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d%n",
+                        r.framework(), r.workload(), r.model(), r.concurrency(), r.operations(), r.errors(),
+                        r.throughput(), r.percentileMillis(50), r.percentileMillis(90),
+                        r.percentileMillis(99), r.percentileMillis(99.9), r.addedThreads());
+            }
+            System.out.println("Load results saved as: " + fileName);
+        } catch (IOException e) {
+            System.err.println("Error saving load results: " + e.getMessage());
+        }
+    }
+
+    static class LoadConfig {
+        List<String> workloads = List.of("chat", "embed", "rag");
+        List<Integer> concurrency = List.of(50, 100, 500);
+        Duration warmup = Duration.ofSeconds(5);
+        Duration duration = Duration.ofSeconds(30);
+        String server = "ollama";
+        List<String> models = List.of("llama3.2");
+        List<String> embeddingModels = List.of("all-minilm");
+        String chatPrompt = "Wat zijn de voor- en nadelen van virtuele threads in Java?";
+        String embedText = "Short sentence for embedding.";
+        // Distinct texts the embed workload cycles through; 1 = every call embeds embedText
+        int embedTexts = 1;
+        // Batch windows (µs) to run the embed workload through an EmbeddingGateway with, next to the direct calls
+        List<Integer> gatewayWaits = List.of();
+        int gatewayBatchSize = 64;
+        String ragPrompt = "How does garbage collection work?";
+
+        static LoadConfig parse(String[] args) {
+            LoadConfig config = new LoadConfig();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) throw new IllegalArgumentException("Expected key=value but got: " + arg);
+                String key = arg.substring(0, eq);
+                String value = arg.substring(eq + 1);
+                switch (key) {
+                    case "workload" -> config.workloads = List.of(value.split(","));
+                    case "concurrency" -> config.concurrency = List.of(value.split(",")).stream().map(Integer::parseInt).toList();
+                    case "warmup" -> config.warmup = Duration.ofSeconds(Long.parseLong(value));
+                    case "duration" -> config.duration = Duration.ofSeconds(Long.parseLong(value));
+                    case "server" -> config.server = value;
+                    case "models" -> config.models = List.of(value.split(","));
+                    case "embeddingModels" -> config.embeddingModels = List.of(value.split(","));
+                    case "embedTexts" -> config.embedTexts = Integer.parseInt(value);
+                    case "gatewayWaits" -> config.gatewayWaits = List.of(value.split(",")).stream().map(Integer::parseInt).toList();
+                    case "gatewayBatchSize" -> config.gatewayBatchSize = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + key);
+                }
+            }
+            return config;
+        }
+    }
+}
@@ -1,28 +1,115 @@
 package io.github.dariodml.llmcompare4j;
 
+import org.openjdk.jmh.profile.AsyncProfiler;
 import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.profile.JavaFlightRecorderProfiler;
 import org.openjdk.jmh.results.RunResult;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.runner.format.OutputFormatFactory;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.stream.Stream;
 
 public class Main {
-    public static void main(String[] args) throws RunnerException {
+
+    // Where the profiling mode writes .jfr files, flame graphs and profile-report.md (one directory per benchmark + params)
+    private static final Path PROFILE_DIR = Path.of("target", "profiles");
+
+    // The default run: the Chat, Embedding and Rag benchmarks
+    static final String DEFAULT_INCLUDE = ".*(Chat|Embedding|Rag)Benchmark.*";
+    // suite=all: every JMH benchmark, including the long store, HNSW, scaling, snapshot and ingestion sweeps
+    static final String ALL_INCLUDE = ".*Benchmark.*";
+    // LoadBenchmark is a standalone load test with its own main()
+    static final String LOAD_EXCLUDE = ".*LoadBenchmark.*";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        // Optional arguments: profile=true (JFR per benchmark), asyncProfiler=<path to libasyncProfiler.so>,
+        // suite=all (every benchmark instead of the Chat, Embedding and Rag set; runs for many hours)
+        boolean profile = false;
+        String include = DEFAULT_INCLUDE;
+        String asyncProfilerLib = System.getenv("ASYNC_PROFILER_LIB");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            String value = arg.substring(eq + 1);
+            switch (arg.substring(0, eq)) {
+                case "profile" -> profile = Boolean.parseBoolean(value);
+                case "asyncProfiler" -> asyncProfilerLib = value;
+                case "suite" -> include = suiteInclude(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg.substring(0, eq));
+            }
+        }
+
         // 1. Configure the benchmark
-        Options opt = new OptionsBuilder()
+        ChainedOptionsBuilder builder = new OptionsBuilder()
  
-                // Include both Chat, Embedding and Rag benchmarks
-                .include(".*(Chat|Embedding|Rag)Benchmark.*")
+                // Include the Chat, Embedding and Rag benchmarks, or every benchmark with suite=all
+                .include(include)
+                .exclude(LOAD_EXCLUDE)
                 .addProfiler(GCProfiler.class)
-                .build();
+                .addProfiler(MetricsProfiler.class); // TTFT and other metrics recorded by the benchmarks
+
+        if (profile) {
+            addProfilers(builder, asyncProfilerLib);
+        }
+        Options opt = builder.build();
+
+        // 2. Run the benchmark; the report collects every result as soon as its benchmark finishes
+        BenchmarkReport report = new BenchmarkReport(Path.of("benchmark_resultaten.csv"));
+        OutputFormat console = OutputFormatFactory.createFormatInstance(System.out, opt.verbosity().orElse(VerboseMode.NORMAL));
+        Collection<RunResult> results = new Runner(opt, report.streaming(console)).run();
+
+        // 3. Generate the charts and the CSV/JSON/HTML report with the results
+        BenchmarkVisualizer.createChart(report.rows());
+        report.writeAll();
+
+        // 4. Keep the results for comparisons with later runs (see RegressionCheck)
+        String runId = ResultStore.append(results, ResultStore.DEFAULT_FILE);
+        System.out.println("Results stored as run " + runId + " in: " + ResultStore.DEFAULT_FILE.toAbsolutePath());
+
+        // 5. Summarize the hot methods and lock contention per framework
+        if (profile) {
+            System.out.println("Profile report saved to: " + JfrProfile.writeReport(PROFILE_DIR).toAbsolutePath());
+        }
+    }
+
+    /** The include pattern of a {@code suite} argument: "default" or "all". */
+    static String suiteInclude(String suite) {
+        return switch (suite) {
+            case "default" -> DEFAULT_INCLUDE;
+            case "all" -> ALL_INCLUDE;
+            default -> throw new IllegalArgumentException("Unknown suite: " + suite + " (expected default or all)");
+        };
+    }
+
+    /** JFR for every benchmark, plus async-profiler flame graphs when its native library is available. */
+    private static void addProfilers(ChainedOptionsBuilder builder, String asyncProfilerLib) throws IOException {
+        if (Files.exists(PROFILE_DIR)) {
+            // Stale recordings from an earlier run would end up in the report
+            try (Stream<Path> files = Files.walk(PROFILE_DIR)) {
+                for (Path file : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
 
-        // 2. Run the benchmark and CAPTURE THE RESULTS in a variable
-        Collection<RunResult> results = new Runner(opt).run();
+        builder.addProfiler(JavaFlightRecorderProfiler.class,
+                "dir=" + PROFILE_DIR + ";configName=profile;postProcessor=" + JfrProfile.FlameGraphs.class.getName());
 
-        // 3. Generate the chart with the results
-        BenchmarkVisualizer.createChart(results);
+        if (asyncProfilerLib != null && Files.exists(Path.of(asyncProfilerLib))) {
+            builder.addProfiler(AsyncProfiler.class,
+                    "libPath=" + asyncProfilerLib + ";dir=" + PROFILE_DIR + ";output=flamegraph,collapsed");
+        } else {
+            System.out.println("async-profiler not found (set ASYNC_PROFILER_LIB or asyncProfiler=<path>), profiling with JFR only");
+        }
     }
 }
@@ -0,0 +1,79 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Heap and process memory readings for the setup-time memory metrics. */
+final class MemoryProbe {
+
+    // /proc/self/statm counts pages; 4 KiB on every Linux platform we run on
+    private static final long PAGE_SIZE = 4096;
+
+    private MemoryProbe() {
+    }
+
+    /** Used heap after a few full GCs, so only reachable objects are counted. */
+    static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Samples the used heap from a daemon thread until closed. Unlike {@link #usedHeapAfterGc()} this includes
+     * garbage, so the peak is what the heap has to be sized for while a workload runs.
+     */
+    static PeakHeap watchPeakHeap() {
+        return new PeakHeap();
+    }
+
+    static final class PeakHeap implements AutoCloseable {
+
+        private static final long SAMPLE_INTERVAL_MILLIS = 5;
+
+        private final Thread sampler;
+        private volatile boolean running = true;
+        private volatile long peak = usedHeap();
+
+        private PeakHeap() {
+            sampler = Thread.ofPlatform().daemon().name("peak-heap-sampler").start(() -> {
+                while (running) {
+                    peak = Math.max(peak, usedHeap());
+                    try {
+                        Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        /** Highest used heap seen so far, in bytes. */
+        long peakBytes() {
+            return Math.max(peak, usedHeap());
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            sampler.interrupt();
+        }
+
+        private static long usedHeap() {
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    /** Resident set size of the JVM process (heap + native), or -1 when not on Linux. */
+    static long residentBytes() {
+        try {
+            String[] fields = Files.readString(Path.of("/proc/self/statm")).trim().split("\\s+");
+            return Long.parseLong(fields[1]) * PAGE_SIZE;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+
+import java.util.Collection;
+
+/**
+ * Publishes everything recorded in {@link SecondaryMetrics} as JMH secondary results.
+ * Enable it with {@code .addProfiler(MetricsProfiler.class)}.
+ */
+public class MetricsProfiler implements InternalProfiler {
+
+    // Benchmark + params of the previous iteration, to detect the start of a new trial when running without forks
+    private static String currentTrial;
+
+    @Override
+    public String getDescription() {
+        return "Secondary metrics recorded by the LLMCompare4j benchmarks";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        // Trial setup runs after this call, so values it records survive until the trial ends
+        if (!benchmarkParams.id().equals(currentTrial)) {
+            currentTrial = benchmarkParams.id();
+            SecondaryMetrics.clearTrial();
+        }
+        SecondaryMetrics.reset();
+    }
+
+    @Override
+    public Collection<? extends Result<?>> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                          IterationResult result) {
+        return SecondaryMetrics.drain();
+    }
+}
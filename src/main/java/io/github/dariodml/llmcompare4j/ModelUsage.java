@@ -0,0 +1,147 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.output.TokenUsage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+
+import java.time.Duration;
+
+/**
+ * Token usage and server time of one benchmark call, so the score can be split into model time and framework
+ * time and normalized by the output length. Opened around the call ({@code try (ModelUsage usage = ModelUsage.start())});
+ * the frameworks report into it through {@link #langChain4jListener()} and {@link #springAi(ChatResponse)}, which
+ * are no-ops outside such a call (LoadBenchmark, QualityReporter). A streamed call completes on the frameworks' I/O
+ * threads, so it takes the usage with {@link #current()} when it starts and reports the final streamed response
+ * into it with {@link #langChain4j(ModelUsage, TokenUsage)} or {@link #springAi(ModelUsage, ChatResponse)}.
+ *
+ * <p>Recorded as {@link SecondaryMetrics} under "model.": prompt and eval tokens per op, tokens.rate (eval tokens
+ * per wall-clock second), eval.rate (Ollama's own generation speed), server.time (Ollama's total_duration) and
+ * client.overhead (wall time minus server time: framework, HTTP and everything else on the client). LangChain4j
+ * 0.35 only exposes the token counts; with {@code wireTap=on} every value comes from {@link OllamaWireTap} for both
+ * frameworks instead, plus the bytes on the wire under "wire.".
+ */
+final class ModelUsage implements AutoCloseable {
+
+    private static final ThreadLocal<ModelUsage> CURRENT = new ThreadLocal<>();
+
+    private final long start;
+    private long promptTokens;
+    private long evalTokens;
+    private boolean hasTokens;
+    private long serverNanos;
+    private long evalNanos;
+    private boolean hasServerTime;
+
+    private ModelUsage() {
+        OllamaWireTap tap = OllamaWireTap.active();
+        if (tap != null) tap.drain(); // Traffic from before this call, e.g. the setup
+        start = System.nanoTime();
+    }
+
+    static ModelUsage start() {
+        ModelUsage usage = new ModelUsage();
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    /** The usage of the call on this thread, or null outside one. */
+    static ModelUsage current() {
+        return CURRENT.get();
+    }
+
+    static void tokens(Integer prompt, Integer eval) {
+        tokens(CURRENT.get(), prompt, eval);
+    }
+
+    private static void tokens(ModelUsage usage, Integer prompt, Integer eval) {
+        if (usage == null || eval == null) return;
+        usage.promptTokens += prompt != null ? prompt : 0;
+        usage.evalTokens += eval;
+        usage.hasTokens = true;
+    }
+
+    static void serverTime(Duration total, Duration eval) {
+        serverTime(CURRENT.get(), total, eval);
+    }
+
+    private static void serverTime(ModelUsage usage, Duration total, Duration eval) {
+        if (usage == null || total == null) return;
+        usage.serverNanos += total.toNanos();
+        usage.evalNanos += eval != null ? eval.toNanos() : 0;
+        usage.hasServerTime = true;
+    }
+
+    /**
+     * Listener for LangChain4j chat models; it only gets the token counts, not Ollama's durations. A streaming model
+     * calls it on the HTTP client's thread after the handler's onComplete, so a streamed call reports the response of
+     * onComplete with {@link #langChain4j(ModelUsage, TokenUsage)} instead.
+     */
+    static ChatModelListener langChain4jListener() {
+        return new ChatModelListener() {
+            @Override
+            public void onResponse(ChatModelResponseContext responseContext) {
+                TokenUsage usage = responseContext.response().tokenUsage();
+                if (usage != null) tokens(usage.inputTokenCount(), usage.outputTokenCount());
+            }
+        };
+    }
+
+    /** The token counts of a streamed LangChain4j response, from any thread. */
+    static void langChain4j(ModelUsage usage, TokenUsage tokenUsage) {
+        if (tokenUsage != null) tokens(usage, tokenUsage.inputTokenCount(), tokenUsage.outputTokenCount());
+    }
+
+    /** Spring AI's OllamaChatModel keeps both the token counts and Ollama's durations in the metadata. */
+    static void springAi(ChatResponse response) {
+        springAi(CURRENT.get(), response);
+    }
+
+    /** The same for a streamed Spring AI response, from any thread: only the final (done) chunk carries them. */
+    static void springAi(ModelUsage usage, ChatResponse response) {
+        ChatResponseMetadata metadata = response.getMetadata();
+        Usage tokenUsage = metadata.getUsage();
+        if (tokenUsage != null) tokens(usage, tokenUsage.getPromptTokens(), tokenUsage.getCompletionTokens());
+        serverTime(usage, metadata.get("total-duration"), metadata.get("eval-duration"));
+    }
+
+    @Override
+    public void close() {
+        long wallNanos = System.nanoTime() - start;
+        CURRENT.remove();
+
+        OllamaWireTap tap = OllamaWireTap.active();
+        if (tap != null) {
+            // The tap sees every exchange of the call (e.g. the query embedding of RAG too), the metadata only the chat response
+            OllamaWireTap.Totals wire = tap.drain();
+            if (wire.exchanges() == 0) return;
+            SecondaryMetrics.record("wire.bytes.sent", "B/op", wire.bytesSent());
+            SecondaryMetrics.record("wire.bytes.received", "B/op", wire.bytesReceived());
+            SecondaryMetrics.record("wire.exchanges", "#/op", wire.exchanges());
+            promptTokens = wire.promptTokens();
+            evalTokens = wire.evalTokens();
+            serverNanos = wire.serverNanos();
+            evalNanos = wire.evalNanos();
+            hasTokens = true;
+            hasServerTime = wire.serverNanos() > 0;
+        }
+
+        if (hasTokens) {
+            SecondaryMetrics.record("model.tokens.prompt", "tokens/op", promptTokens);
+            SecondaryMetrics.record("model.tokens.eval", "tokens/op", evalTokens);
+            if (evalTokens > 0) {
+                SecondaryMetrics.record("model.tokens.rate", "tokens/s", evalTokens / (wallNanos / 1e9));
+                SecondaryMetrics.record("model.time.per.token", "ms/token", wallNanos / 1_000_000.0 / evalTokens);
+            }
+        }
+        if (hasServerTime) {
+            SecondaryMetrics.record("model.server.time", "ms", serverNanos / 1_000_000.0);
+            SecondaryMetrics.record("model.client.overhead", "ms", (wallNanos - serverNanos) / 1_000_000.0);
+            if (evalNanos > 0 && evalTokens > 0) {
+                SecondaryMetrics.record("model.eval.rate", "tokens/s", evalTokens / (evalNanos / 1e9));
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Brute-force index that keeps all vectors in one contiguous off-heap {@link MemorySegment}: no per-entry
+ * objects for the GC to trace, and a linear memory layout the SIMD kernels in {@link VectorMath} can stream
+ * through. Vectors are normalized on insert so the cosine score is a single dot product.
+ */
+public class OffHeapVectorIndex implements VectorIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int dimensions;
+    private final long vectorBytes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet removed = new BitSet();
+
+    private Arena arena;
+    private MemorySegment vectors;
+    private int capacity;
+    private int count;
+
+    public OffHeapVectorIndex(int dimensions) {
+        this.dimensions = dimensions;
+        this.vectorBytes = (long) dimensions * Float.BYTES;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count - removed.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        float[] normalized = VectorMath.normalize(vector);
+        lock.writeLock().lock();
+        try {
+            if (count == capacity) {
+                allocate(capacity * 2);
+            }
+            MemorySegment.copy(normalized, 0, vectors, ValueLayout.JAVA_FLOAT, count * vectorBytes, dimensions);
+            return count++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(int ordinal) {
+        lock.writeLock().lock();
+        try {
+            removed.set(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public float[] vector(int ordinal) {
+        lock.readLock().lock();
+        try {
+            return vectors.asSlice(ordinal * vectorBytes, vectorBytes).toArray(ValueLayout.JAVA_FLOAT);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Hit> search(float[] query, int k, double minScore) {
+        float[] normalized = VectorMath.normalize(query);
+        TopK top = new TopK(k);
+        lock.readLock().lock();
+        try {
+            boolean anyRemoved = !removed.isEmpty();
+            long offset = 0;
+            for (int ordinal = 0; ordinal < count; ordinal++, offset += vectorBytes) {
+                if (anyRemoved && removed.get(ordinal)) continue;
+                float score = VectorMath.dot(normalized, vectors, offset);
+                if (score >= minScore && score > top.threshold()) {
+                    top.offer(ordinal, score);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return top.toHits();
+    }
+
+    /** Off-heap bytes held by this index. */
+    public long byteSize() {
+        return vectors.byteSize();
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (arena != null) {
+                arena.close();
+                arena = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        Arena newArena = Arena.ofShared();
+        MemorySegment newVectors = newArena.allocate(newCapacity * vectorBytes, 64);
+        if (vectors != null) {
+            MemorySegment.copy(vectors, 0, newVectors, 0, count * vectorBytes);
+            arena.close();
+        }
+        arena = newArena;
+        vectors = newVectors;
+        capacity = newCapacity;
+    }
+}
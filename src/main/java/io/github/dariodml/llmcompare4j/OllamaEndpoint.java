@@ -0,0 +1,72 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Shared JMH state that decides which Ollama server the benchmarks talk to.
+ * "ollama" uses the real server on localhost (or the one in the {@value #BASE_URL_PROPERTY} system property),
+ * "stub" starts an in-process {@link OllamaStubServer} so only the framework overhead is measured.
+ */
+@State(Scope.Benchmark)
+public class OllamaEndpoint {
+
+    public static final String DEFAULT_BASE_URL = "http://localhost:11434";
+
+    // Set per fork by ParallelRunner to spread the forks over several servers; not a @Param so results stay comparable
+    public static final String BASE_URL_PROPERTY = "llmcompare4j.ollama.url";
+
+    @Param({"ollama"}) // "ollama" or "stub"
+    public String server;
+
+    // Stub settings, ignored when running against a real Ollama
+    @Param({"0"})
+    public long stubLatencyMicros;
+
+    @Param({"0"}) // 0 = return all tokens at once
+    public int stubTokensPerSecond;
+
+    @Param({"0"}) // 0 = same vector size as the real model
+    public int stubDimensions;
+
+    // "on" relays all traffic through an OllamaWireTap for bytes on the wire and server timing of both frameworks
+    @Param({"off"})
+    public String wireTap;
+
+    private OllamaStubServer stub;
+    private OllamaWireTap tap;
+
+    @Setup(Level.Trial)
+    public void start() {
+        if ("stub".equals(server)) {
+            stub = OllamaStubServer.builder()
+                    .latencyMicros(stubLatencyMicros)
+                    .tokensPerSecond(stubTokensPerSecond)
+                    .dimensions(stubDimensions)
+                    .build()
+                    .start();
+        }
+        if ("on".equals(wireTap)) {
+            tap = new OllamaWireTap(upstreamUrl()).start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (tap != null) {
+            tap.close();
+            tap = null;
+        }
+        if (stub != null) {
+            stub.close();
+            stub = null;
+        }
+    }
+
+    public String baseUrl() {
+        return tap != null ? tap.getBaseUrl() : upstreamUrl();
+    }
+
+    private String upstreamUrl() {
+        return stub != null ? stub.getBaseUrl() : System.getProperty(BASE_URL_PROPERTY, DEFAULT_BASE_URL);
+    }
+}
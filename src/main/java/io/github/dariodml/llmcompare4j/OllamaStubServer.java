@@ -0,0 +1,353 @@
+package io.github.dariodml.llmcompare4j;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process stand-in for the Ollama REST API (/api/chat, /api/generate, /api/embed and the legacy /api/embeddings).
+ * Responses are deterministic for a given seed and input, so benchmarks against this server only measure the
+ * client-side cost of each framework (serialization, HTTP, advisor chains) instead of model inference time.
+ */
+public class OllamaStubServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String[] VOCABULARY = {
+            "Java", "virtual", "threads", "list", "sort", "the", "a", "function", "returns", "value",
+            "memory", "garbage", "collector", "heap", "bytecode", "platform", "independent", "JVM", "code", "runs",
+            "and", "of", "to", "is", "in", "with", "that", "for", "an", "example"
+    };
+
+    private final int port;
+    private final long latencyNanos;
+    private final int tokensPerSecond;
+    private final int responseTokens;
+    private final int dimensions;
+    private final long seed;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private OllamaStubServer(Builder builder) {
+        this.port = builder.port;
+        this.latencyNanos = builder.latencyMicros * 1_000L;
+        this.tokensPerSecond = builder.tokensPerSecond;
+        this.responseTokens = builder.responseTokens;
+        this.dimensions = builder.dimensions;
+        this.seed = builder.seed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public synchronized OllamaStubServer start() {
+        if (server != null) return this;
+        // Without TCP_NODELAY the split header/body writes hit Nagle + delayed ACK and add ~40 ms per request
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start Ollama stub server on port " + port, e);
+        }
+        // One virtual thread per request: the simulated latency must not be limited by a small worker pool
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/chat", exchange -> handle(exchange, this::chat));
+        server.createContext("/api/generate", exchange -> handle(exchange, this::generate));
+        server.createContext("/api/embed", exchange -> handle(exchange, this::embed));
+        server.createContext("/api/embeddings", exchange -> handle(exchange, this::legacyEmbed));
+        server.createContext("/api/tags", exchange -> handle(exchange, this::tags));
+        server.start();
+        return this;
+    }
+
+    public String getBaseUrl() {
+        if (server == null) throw new IllegalStateException("Ollama stub server is not started");
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server == null) return;
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        executor = null;
+    }
+
+    // --- Endpoints ---
+
+    @FunctionalInterface
+    private interface Endpoint {
+        void serve(JsonNode request, HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        try (exchange) {
+            JsonNode request;
+            try (InputStream body = exchange.getRequestBody()) {
+                byte[] bytes = body.readAllBytes();
+                request = bytes.length == 0 ? MAPPER.createObjectNode() : MAPPER.readTree(bytes);
+            }
+            sleepNanos(latencyNanos);
+            endpoint.serve(request, exchange);
+        } catch (RuntimeException e) {
+            System.err.println("Ollama stub failed on " + exchange.getRequestURI() + ": " + e.getMessage());
+        }
+    }
+
+    private void chat(JsonNode request, HttpExchange exchange) throws IOException {
+        String model = request.path("model").asText("stub");
+        JsonNode messages = request.path("messages");
+        String lastMessage = messages.isArray() && !messages.isEmpty()
+                ? messages.get(messages.size() - 1).path("content").asText("")
+                : "";
+        int promptTokens = 0;
+        for (JsonNode message : messages) {
+            promptTokens += countTokens(message.path("content").asText(""));
+        }
+        respondWithTokens(exchange, model, isStreaming(request), promptTokens, answerTokens(lastMessage), true);
+    }
+
+    private void generate(JsonNode request, HttpExchange exchange) throws IOException {
+        String model = request.path("model").asText("stub");
+        String prompt = request.path("prompt").asText("");
+        respondWithTokens(exchange, model, isStreaming(request), countTokens(prompt), answerTokens(prompt), false);
+    }
+
+    private void embed(JsonNode request, HttpExchange exchange) throws IOException {
+        String model = request.path("model").asText("stub");
+        JsonNode input = request.path("input");
+        List<String> texts = new ArrayList<>();
+        if (input.isArray()) {
+            input.forEach(node -> texts.add(node.asText("")));
+        } else {
+            texts.add(input.asText(""));
+        }
+
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("model", model);
+        ArrayNode embeddings = response.putArray("embeddings");
+        int promptTokens = 0;
+        for (String text : texts) {
+            ArrayNode vector = embeddings.addArray();
+            for (float component : embedding(text, dimensionsFor(model))) {
+                vector.add(component);
+            }
+            promptTokens += countTokens(text);
+        }
+        response.put("total_duration", latencyNanos);
+        response.put("load_duration", 0);
+        response.put("prompt_eval_count", promptTokens);
+        writeJson(exchange, response);
+    }
+
+    private void legacyEmbed(JsonNode request, HttpExchange exchange) throws IOException {
+        String model = request.path("model").asText("stub");
+        ObjectNode response = MAPPER.createObjectNode();
+        ArrayNode vector = response.putArray("embedding");
+        for (float component : embedding(request.path("prompt").asText(""), dimensionsFor(model))) {
+            vector.add(component);
+        }
+        writeJson(exchange, response);
+    }
+
+    private void tags(JsonNode request, HttpExchange exchange) throws IOException {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.putArray("models");
+        writeJson(exchange, response);
+    }
+
+    // --- Response generation ---
+
+    private void respondWithTokens(HttpExchange exchange, String model, boolean stream,
+                                   int promptTokens, List<String> tokens, boolean chat) throws IOException {
+        long tokenGapNanos = tokensPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / tokensPerSecond : 0;
+
+        if (!stream) {
+            sleepNanos(tokenGapNanos * tokens.size());
+            ObjectNode response = tokenChunk(model, String.join("", tokens), chat);
+            finish(response, promptTokens, tokens.size(), tokenGapNanos);
+            writeJson(exchange, response);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (String token : tokens) {
+            sleepNanos(tokenGapNanos);
+            writeLine(out, tokenChunk(model, token, chat));
+        }
+        ObjectNode last = tokenChunk(model, "", chat);
+        finish(last, promptTokens, tokens.size(), tokenGapNanos);
+        writeLine(out, last);
+    }
+
+    private ObjectNode tokenChunk(String model, String content, boolean chat) {
+        ObjectNode chunk = MAPPER.createObjectNode();
+        chunk.put("model", model);
+        chunk.put("created_at", Instant.now().toString());
+        if (chat) {
+            ObjectNode message = chunk.putObject("message");
+            message.put("role", "assistant");
+            message.put("content", content);
+        } else {
+            chunk.put("response", content);
+        }
+        chunk.put("done", false);
+        return chunk;
+    }
+
+    private void finish(ObjectNode response, int promptTokens, int evalTokens, long tokenGapNanos) {
+        long evalDuration = tokenGapNanos * evalTokens;
+        response.put("done", true);
+        response.put("done_reason", "stop");
+        response.put("total_duration", latencyNanos + evalDuration);
+        response.put("load_duration", 0);
+        response.put("prompt_eval_count", promptTokens);
+        response.put("prompt_eval_duration", latencyNanos);
+        response.put("eval_count", evalTokens);
+        response.put("eval_duration", evalDuration);
+    }
+
+    /** Seeded canned answer; the same prompt always produces the same tokens. */
+    List<String> answerTokens(String prompt) {
+        SplittableRandom random = new SplittableRandom(seed ^ prompt.hashCode());
+        List<String> tokens = new ArrayList<>(responseTokens);
+        for (int i = 0; i < responseTokens; i++) {
+            String word = VOCABULARY[random.nextInt(VOCABULARY.length)];
+            tokens.add(i == 0 ? word : " " + word);
+        }
+        return tokens;
+    }
+
+    /**
+     * Feature-hashed embedding: every word contributes a seeded random direction, so texts sharing words get a
+     * positive cosine similarity and retrieval in the RAG benchmarks still returns meaningful neighbours.
+     */
+    float[] embedding(String text, int size) {
+        float[] vector = new float[size];
+        for (String word : text.toLowerCase().split("\\W+")) {
+            if (word.isEmpty()) continue;
+            SplittableRandom random = new SplittableRandom(seed ^ word.hashCode());
+            for (int i = 0; i < size; i++) {
+                vector[i] += (float) (random.nextDouble() * 2.0 - 1.0);
+            }
+        }
+        double norm = 0;
+        for (float v : vector) norm += v * v;
+        if (norm == 0) {
+            vector[0] = 1f;
+            return vector;
+        }
+        float inverse = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < size; i++) vector[i] *= inverse;
+        return vector;
+    }
+
+    int dimensionsFor(String model) {
+        if (dimensions > 0) return dimensions;
+        // Match the vector sizes of the real models so store memory stays comparable
+        if (model.startsWith("all-minilm")) return 384;
+        if (model.startsWith("bge-m3")) return 1024;
+        return 768;
+    }
+
+    private static boolean isStreaming(JsonNode request) {
+        // Ollama streams unless the client explicitly disables it
+        return request.path("stream").asBoolean(true);
+    }
+
+    private static int countTokens(String text) {
+        return text.isBlank() ? 0 : text.trim().split("\\s+").length;
+    }
+
+    private static void writeJson(HttpExchange exchange, JsonNode response) throws IOException {
+        byte[] body = MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void writeLine(OutputStream out, JsonNode chunk) throws IOException {
+        out.write(MAPPER.writeValueAsBytes(chunk));
+        out.write('\n');
+        out.flush();
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) return;
+        long deadline = System.nanoTime() + nanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    public static class Builder {
+        private int port = 0;
+        private long latencyMicros = 0;
+        private int tokensPerSecond = 0;
+        private int responseTokens = 64;
+        private int dimensions = 0;
+        private long seed = 42;
+
+        /** Port to bind on the loopback interface; 0 picks a free port. */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /** Fixed delay before every response (simulated prompt evaluation). */
+        public Builder latencyMicros(long latencyMicros) {
+            this.latencyMicros = latencyMicros;
+            return this;
+        }
+
+        /** Generation speed; 0 returns all tokens immediately. */
+        public Builder tokensPerSecond(int tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+            return this;
+        }
+
+        public Builder responseTokens(int responseTokens) {
+            this.responseTokens = responseTokens;
+            return this;
+        }
+
+        /** Embedding vector size; 0 picks the size of the real model with the same name. */
+        public Builder dimensions(int dimensions) {
+            this.dimensions = dimensions;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public OllamaStubServer build() {
+            return new OllamaStubServer(this);
+        }
+    }
+}
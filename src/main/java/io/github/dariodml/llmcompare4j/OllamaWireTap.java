@@ -0,0 +1,220 @@
+package io.github.dariodml.llmcompare4j;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transparent relay in front of an Ollama server that counts the bytes every exchange puts on the wire and reads
+ * Ollama's server-side timings (total_duration, eval_duration and the token counts) from the responses, including
+ * the final chunk of a streamed response. LangChain4j 0.35 builds its HTTP client internally and drops those
+ * durations, so this is the one place where both frameworks' traffic is measured the same way.
+ *
+ * <p>Started by {@link OllamaEndpoint} with {@code wireTap=on}; the extra loopback hop adds a little latency to
+ * every call. The totals are global: {@link ModelUsage} drains them around each benchmark call, which is only
+ * exact while one thread calls the model at a time (the default for the JMH benchmarks).
+ */
+public class OllamaWireTap implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // Set by the JDK HttpClient itself (it refuses most of them as user headers) or only valid for the first hop
+    private static final Set<String> HOP_BY_HOP_REQUEST_HEADERS = Set.of("connection", "content-length", "expect", "host",
+            "upgrade", "transfer-encoding", "keep-alive", "te", "trailer");
+    private static final Set<String> HOP_BY_HOP_RESPONSE_HEADERS = Set.of("connection", "content-length", "transfer-encoding", "keep-alive");
+
+    private static final long MAX_DRAIN_WAIT_NANOS = 100_000_000L;
+
+    private static volatile OllamaWireTap active;
+
+    private final URI upstream;
+    // Exchanges whose response is still being relayed or accounted; drain() waits for them
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder exchanges = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder evalTokens = new LongAdder();
+    private final LongAdder serverNanos = new LongAdder();
+    private final LongAdder evalNanos = new LongAdder();
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private HttpClient client;
+
+    /** What went over the wire since the previous drain; durations in nanoseconds as Ollama reports them. */
+    public record Totals(long exchanges, long bytesSent, long bytesReceived, long promptTokens, long evalTokens,
+                         long serverNanos, long evalNanos) {
+    }
+
+    public OllamaWireTap(String upstreamUrl) {
+        this.upstream = URI.create(upstreamUrl);
+    }
+
+    /** The tap of the running trial, or null when {@code wireTap=off}. */
+    static OllamaWireTap active() {
+        return active;
+    }
+
+    public synchronized OllamaWireTap start() {
+        if (server != null) return this;
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start the Ollama wire tap", e);
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(executor)
+                .build();
+        server.setExecutor(executor);
+        server.createContext("/", this::relay);
+        server.start();
+        active = this;
+        return this;
+    }
+
+    public String getBaseUrl() {
+        if (server == null) throw new IllegalStateException("Ollama wire tap is not started");
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the totals since the previous call and starts counting from zero. The client may already have the
+     * whole response while the relay is still counting it, so this first waits (briefly) for those exchanges.
+     */
+    public Totals drain() {
+        long deadline = System.nanoTime() + MAX_DRAIN_WAIT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        return new Totals(exchanges.sumThenReset(), bytesSent.sumThenReset(), bytesReceived.sumThenReset(),
+                promptTokens.sumThenReset(), evalTokens.sumThenReset(), serverNanos.sumThenReset(), evalNanos.sumThenReset());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server == null) return;
+        if (active == this) active = null;
+        server.stop(0);
+        client.close();
+        executor.shutdownNow();
+        server = null;
+        client = null;
+        executor = null;
+    }
+
+    private void relay(HttpExchange exchange) throws IOException {
+        inFlight.incrementAndGet();
+        try (exchange) {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            HttpRequest.Builder request = HttpRequest.newBuilder(upstream.resolve(exchange.getRequestURI().toString()))
+                    .method(exchange.getRequestMethod(), body.length == 0
+                            ? HttpRequest.BodyPublishers.noBody()
+                            : HttpRequest.BodyPublishers.ofByteArray(body));
+            exchange.getRequestHeaders().forEach((name, values) -> {
+                if (!HOP_BY_HOP_REQUEST_HEADERS.contains(name.toLowerCase())) {
+                    values.forEach(value -> request.header(name, value));
+                }
+            });
+            bytesSent.add(headerBytes(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " HTTP/1.1",
+                    exchange.getRequestHeaders()) + body.length);
+
+            HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            Headers responseHeaders = exchange.getResponseHeaders();
+            response.headers().map().forEach((name, values) -> {
+                if (!HOP_BY_HOP_RESPONSE_HEADERS.contains(name.toLowerCase())) {
+                    responseHeaders.put(name, values);
+                }
+            });
+            // Keep fixed-length responses fixed-length and streamed (NDJSON) responses chunked, as Ollama sends them
+            // (for HttpServer: 0 = chunked, -1 = no body)
+            OptionalLong contentLength = response.headers().firstValueAsLong("content-length");
+            exchange.sendResponseHeaders(response.statusCode(), contentLength.isEmpty() ? 0
+                    : contentLength.getAsLong() == 0 ? -1 : contentLength.getAsLong());
+            long received = headerBytes("HTTP/1.1 " + response.statusCode(), response.headers().map());
+
+            // Only the last NDJSON line (or the whole non-streamed body) carries the timings
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            byte[] lastLine = null;
+            try (InputStream in = response.body(); OutputStream out = exchange.getResponseBody()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                    out.flush();
+                    received += read;
+                    for (int i = 0; i < read; i++) {
+                        if (buffer[i] != '\n') {
+                            line.write(buffer[i]);
+                        } else if (line.size() > 0) {
+                            lastLine = line.toByteArray();
+                            line.reset();
+                        }
+                    }
+                }
+            }
+            if (line.size() > 0) lastLine = line.toByteArray();
+
+            bytesReceived.add(received);
+            exchanges.increment();
+            if (lastLine != null) readTimings(lastLine);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(502, -1);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void readTimings(byte[] json) {
+        // Skip parsing anything that is not a final Ollama response, e.g. /api/tags
+        if (!new String(json, StandardCharsets.UTF_8).contains("\"total_duration\"")) return;
+        try {
+            JsonNode response = MAPPER.readTree(json);
+            promptTokens.add(response.path("prompt_eval_count").asLong());
+            evalTokens.add(response.path("eval_count").asLong());
+            serverNanos.add(response.path("total_duration").asLong());
+            evalNanos.add(response.path("eval_duration").asLong());
+        } catch (IOException e) {
+            // Not JSON after all; the bytes are still counted
+        }
+    }
+
+    /** Size of the start line and header block as sent over HTTP/1.1. */
+    private static long headerBytes(String startLine, Map<String, List<String>> headers) {
+        long bytes = startLine.length() + 2;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                bytes += header.getKey().length() + 2 + value.length() + 2;
+            }
+        }
+        return bytes + 2;
+    }
+}
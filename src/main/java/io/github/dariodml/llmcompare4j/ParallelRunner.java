@@ -0,0 +1,265 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.BenchmarkList;
+import org.openjdk.jmh.runner.BenchmarkListEntry;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.runner.format.OutputFormatFactory;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmark matrix as independent JMH runs, several at the same time, and merges the results into the
+ * same charts, report and {@link ResultStore} history as {@link Main}.
+ *
+ * <p>The matrix (every benchmark matching {@code include} times every combination of its params) is split into
+ * one partition per benchmark and param combination. JMH already runs each combination in its own fork, so a
+ * partition is exactly one fork of the serial run; the only difference is that up to {@code concurrency} of them
+ * run at once. Each concurrent run gets a slot, and a slot owns:
+ * <ul>
+ *     <li>a CPU range when {@code cpusPerFork > 0}: the fork is started through {@code taskset} and with
+ *     {@code -XX:ActiveProcessorCount}, so forks don't steal each other's cores and size their pools to the slice</li>
+ *     <li>a model server when {@code servers} lists several (e.g. one Ollama per GPU, or stand-ins), passed to
+ *     {@link OllamaEndpoint} as a system property so the result keys stay the same as in a serial run</li>
+ *     <li>a work directory ({@code target/slot-<n>}) when {@code concurrency > 1}, passed to {@link WorkDirectory}
+ *     the same way, so concurrent forks never write the same snapshot, cache or corpus file</li>
+ * </ul>
+ * Concurrent forks still share caches, memory bandwidth and the model servers, so only sweep in parallel what is
+ * bound by the model or the network, and keep {@code concurrency * cpusPerFork} within the physical cores.
+ *
+ * <p>Usage: {@code ParallelRunner [include=<regex> | suite=all] [exclude=<regex>] [concurrency=2] [cpusPerFork=0]
+ * [servers=<url>,<url>] [param.<name>=<value>,<value>] [logs=target/parallel-runs]}. Every run logs to its own file
+ * in {@code logs}; the console only shows which partition started and finished.
+ */
+public class ParallelRunner {
+
+    public static void main(String[] args) throws Exception {
+        // Every partition is a separate Runner in this JVM, each would otherwise wait for JMH's global lock file
+        System.setProperty("jmh.ignoreLock", "true");
+
+        // The same matrix as Main
+        String include = Main.DEFAULT_INCLUDE;
+        List<String> excludes = new ArrayList<>(List.of(Main.LOAD_EXCLUDE));
+        int concurrency = 2;
+        int cpusPerFork = 0;
+        List<String> servers = List.of();
+        Map<String, String[]> paramOverrides = new LinkedHashMap<>();
+        Path logs = Path.of("target", "parallel-runs");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            if (key.startsWith("param.")) {
+                paramOverrides.put(key.substring("param.".length()), value.split(","));
+                continue;
+            }
+            switch (key) {
+                case "include" -> include = value;
+                case "suite" -> include = Main.suiteInclude(value);
+                case "exclude" -> excludes.add(value);
+                case "concurrency" -> concurrency = Integer.parseInt(value);
+                case "cpusPerFork" -> cpusPerFork = Integer.parseInt(value);
+                case "servers" -> servers = List.of(value.split(","));
+                case "logs" -> logs = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + key);
+            }
+        }
+        if (concurrency < 1) throw new IllegalArgumentException("concurrency must be at least 1");
+        int cpus = Runtime.getRuntime().availableProcessors();
+        if (cpusPerFork * concurrency > cpus) {
+            throw new IllegalArgumentException("concurrency=" + concurrency + " x cpusPerFork=" + cpusPerFork
+                    + " needs more than the " + cpus + " available CPUs");
+        }
+
+        // 1. Split the matrix into one partition per benchmark and param combination
+        OutputFormat console = OutputFormatFactory.createFormatInstance(System.out, VerboseMode.NORMAL);
+        List<Partition> partitions = partitions(BenchmarkList.defaultList().find(console, List.of(include), excludes), paramOverrides);
+        System.out.println("Running " + partitions.size() + " partitions, " + concurrency + " at a time"
+                + (cpusPerFork > 0 ? ", " + cpusPerFork + " CPUs each" : "")
+                + (servers.isEmpty() ? "" : ", on " + servers.size() + " servers"));
+
+        // 2. Hand out the partitions to the slots; a slot is only reused after its previous run has finished
+        Files.createDirectories(logs);
+        BlockingQueue<Slot> slots = new ArrayBlockingQueue<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            String server = servers.isEmpty() ? null : servers.get(i % servers.size());
+            String cpuRange = cpusPerFork > 0 ? (i * cpusPerFork) + "-" + ((i + 1) * cpusPerFork - 1) : null;
+            // A slot keeps its directory across runs, so its snapshots and caches are still reused the next time
+            Path workDirectory = concurrency > 1 ? Path.of("target", "slot-" + i) : null;
+            slots.add(new Slot(i, cpuRange, cpusPerFork, server, cpuRange != null ? tasksetLauncher(logs, i, cpuRange) : null,
+                    workDirectory));
+        }
+
+        BenchmarkReport report = new BenchmarkReport(Path.of("benchmark_resultaten.csv"));
+        List<RunResult> results = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Collection<RunResult>>> runs = new ArrayList<>();
+            for (Partition partition : partitions) {
+                Path log = logs.resolve(String.format("%03d-%s.log", partition.index(), partition.benchmark()));
+                runs.add(executor.submit(() -> {
+                    Slot slot = slots.take();
+                    try {
+                        return run(partition, slot, report, log);
+                    } finally {
+                        slots.add(slot);
+                    }
+                }));
+            }
+
+            // 3. Merge the results; a failed partition is reported at the end instead of stopping the others
+            for (int i = 0; i < runs.size(); i++) {
+                try {
+                    results.addAll(runs.get(i).get());
+                } catch (ExecutionException e) {
+                    failures.add(partitions.get(i) + ": " + e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 4. Generate the charts, the CSV/JSON/HTML report and store the results, like Main
+        BenchmarkVisualizer.createChart(report.rows());
+        report.writeAll();
+        String runId = ResultStore.append(results, ResultStore.DEFAULT_FILE);
+        System.out.println("Results stored as run " + runId + " in: " + ResultStore.DEFAULT_FILE.toAbsolutePath());
+
+        if (!failures.isEmpty()) {
+            System.err.println(failures.size() + " partitions failed, see their logs in " + logs.toAbsolutePath() + ":");
+            failures.forEach(failure -> System.err.println("  " + failure));
+            System.exit(1);
+        }
+    }
+
+    /** One benchmark method with one value for each of its params. */
+    record Partition(int index, String benchmark, Map<String, String> params, boolean forceFork) {
+
+        @Override
+        public String toString() {
+            return benchmark + " " + params;
+        }
+    }
+
+    /** Where a partition runs: its CPU range, model server, the launcher that pins the fork and its work directory. */
+    private record Slot(int index, String cpuRange, int cpus, String server, Path launcher, Path workDirectory) {
+    }
+
+    static List<Partition> partitions(Collection<BenchmarkListEntry> benchmarks, Map<String, String[]> overrides) {
+        List<Partition> partitions = new ArrayList<>();
+        for (BenchmarkListEntry benchmark : benchmarks) {
+            Map<String, String[]> params = new TreeMap<>();
+            if (benchmark.getParams().hasValue()) {
+                params.putAll(benchmark.getParams().get());
+            }
+            overrides.forEach((name, values) -> params.computeIfPresent(name, (key, defaults) -> values));
+
+            // A benchmark without forks would run inside this JVM, next to the other partitions
+            boolean forceFork = benchmark.getForks().hasValue() && benchmark.getForks().get() == 0;
+            for (Map<String, String> combination : combinations(params)) {
+                partitions.add(new Partition(partitions.size(), benchmark.getUsername(), combination, forceFork));
+            }
+        }
+        return partitions;
+    }
+
+    private static List<Map<String, String>> combinations(Map<String, String[]> params) {
+        List<Map<String, String>> combinations = new ArrayList<>();
+        combinations.add(new TreeMap<>());
+        for (Map.Entry<String, String[]> param : params.entrySet()) {
+            List<Map<String, String>> expanded = new ArrayList<>();
+            for (Map<String, String> combination : combinations) {
+                for (String value : param.getValue()) {
+                    Map<String, String> next = new TreeMap<>(combination);
+                    next.put(param.getKey(), value);
+                    expanded.add(next);
+                }
+            }
+            combinations = expanded;
+        }
+        return combinations;
+    }
+
+    private static Collection<RunResult> run(Partition partition, Slot slot, BenchmarkReport report, Path log)
+            throws IOException, RunnerException {
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .include("^" + Pattern.quote(partition.benchmark()) + "$")
+                .addProfiler(GCProfiler.class)
+                .addProfiler(MetricsProfiler.class);
+        partition.params().forEach(builder::param);
+        if (partition.forceFork()) {
+            builder.forks(1);
+        }
+
+        // Prepend, so the benchmarks' own @Fork(jvmArgsAppend) stays in effect
+        List<String> jvmArgs = new ArrayList<>();
+        if (slot.server() != null) {
+            jvmArgs.add("-D" + OllamaEndpoint.BASE_URL_PROPERTY + "=" + slot.server());
+        }
+        if (slot.workDirectory() != null) {
+            jvmArgs.add("-D" + WorkDirectory.PROPERTY + "=" + slot.workDirectory().toAbsolutePath());
+        }
+        if (slot.launcher() != null) {
+            builder.jvm(slot.launcher().toAbsolutePath().toString());
+            jvmArgs.add("-XX:ActiveProcessorCount=" + slot.cpus());
+        }
+        if (!jvmArgs.isEmpty()) {
+            builder.jvmArgsPrepend(jvmArgs.toArray(String[]::new));
+        }
+
+        System.out.println("Started  " + partition + " in slot " + slot.index()
+                + (slot.cpuRange() != null ? " (CPUs " + slot.cpuRange() + ")" : "")
+                + (slot.server() != null ? " against " + slot.server() : ""));
+        try (PrintStream out = new PrintStream(Files.newOutputStream(log), true, StandardCharsets.UTF_8)) {
+            OutputFormat output = OutputFormatFactory.createFormatInstance(out, VerboseMode.NORMAL);
+            Collection<RunResult> results = new Runner(builder.build(), report.streaming(output)).run();
+            System.out.println("Finished " + partition + ": " + results.stream()
+                    .map(result -> String.format("%.3f %s", result.getPrimaryResult().getScore(), result.getPrimaryResult().getScoreUnit()))
+                    .toList());
+            return results;
+        }
+    }
+
+    /** A shell script that starts the fork's JVM pinned to {@code cpuRange}, for JMH's jvm option. */
+    private static Path tasksetLauncher(Path directory, int slot, String cpuRange) throws IOException {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Path launcher = directory.resolve("java-slot-" + slot + ".sh");
+        Files.writeString(launcher, String.join("\n",
+                "#!/bin/sh",
+                "# Generated by ParallelRunner: pins the forked JVM to CPUs " + cpuRange,
+                "exec taskset -c " + cpuRange + " '" + java + "' \"$@\"",
+                ""));
+        try {
+            Files.setPosixFilePermissions(launcher, PosixFilePermissions.fromString("rwxr-xr-x"));
+        } catch (UnsupportedOperationException e) {
+            throw new IllegalStateException("cpusPerFork needs a POSIX system with taskset", e);
+        }
+        return launcher;
+    }
+}
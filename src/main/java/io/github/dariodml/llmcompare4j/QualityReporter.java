@@ -1,74 +1,288 @@
 package io.github.dariodml.llmcompare4j;
 
-import java.io.FileWriter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
+/**
+ * Generates answers for a set of prompts with every model and both frameworks, and scores them with cheap
+ * automatic metrics: latency, generated tokens, answer length, whether the Java code blocks compile
+ * ({@link JavaSnippets}) and the embedding similarity between the LangChain4j and Spring AI answer to the same
+ * prompt and model (in-process all-MiniLM, so no extra Ollama model is needed).
+ *
+ * <p>The calls run on virtual threads, at most {@code concurrency} at the same time so Ollama is not flooded.
+ * Every answer is appended to quality_report.md and quality_report.jsonl as soon as it completes; the summary per
+ * model and framework follows at the end of the markdown report.
+ *
+ * <p>Usage: {@code QualityReporter [prompts=<file.jsonl>] [models=mistral,llama3.2,codellama] [concurrency=4]
+ * [server=ollama|stub] [output=quality_report]}. The prompt file has one JSON object per line with a
+ * {@code prompt} (or {@code body}) field and an optional {@code id}; without it the chat benchmark prompts are used.
+ */
 public class QualityReporter {
 
-    public static void main(String[] args) {
-        runQualityCheck();
+    private static final List<String> DEFAULT_MODELS = List.of("mistral", "llama3.2", "codellama");
+    private static final List<Prompt> DEFAULT_PROMPTS = List.of(
+            new Prompt("sort", "Schrijf een Java functie die een lijst sorteert."),
+            new Prompt("virtual-threads", "Wat zijn de voor- en nadelen van virtuele threads in Java?"));
+    private static final String SIMILARITY_MODEL = "all-minilm";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    record Prompt(String id, String text) {
     }
 
-    public static void runQualityCheck() {
-        System.out.println("Starten van Quality Check... Antwoorden worden opgeslagen in 'quality_report.md'");
+    /** One generated answer and its metrics; {@code compiles} is null when the answer has no code block. */
+    record Result(Prompt prompt, String model, String framework, String answer, String error, double latencyMs,
+                  int outputTokens, Boolean compiles, String compileError) {
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter("quality_report.md"))) {
-            writer.println("# LLM Kwaliteitsrapport");
-            writer.println("Vergelijking van antwoorden tussen Spring AI en LangChain4j voor verschillende modellen.\n");
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path prompts = null;
+        List<String> models = DEFAULT_MODELS;
+        int concurrency = 4;
+        String server = "ollama";
+        String output = "quality_report";
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            String value = arg.substring(eq + 1);
+            switch (arg.substring(0, eq)) {
+                case "prompts" -> prompts = Path.of(value);
+                case "models" -> models = List.of(value.split(","));
+                case "concurrency" -> concurrency = Integer.parseInt(value);
+                case "server" -> server = value;
+                case "output" -> output = value;
+                default -> throw new IllegalArgumentException("Unknown option: " + arg.substring(0, eq));
+            }
+        }
+        runQualityCheck(prompts != null ? readPrompts(prompts) : DEFAULT_PROMPTS, models, concurrency, server, output);
+    }
 
-            List<String> models = List.of("mistral", "llama3.2", "codellama");
-            String prompt = "Schrijf een Java functie die een lijst sorteert.";
+    public static void runQualityCheck() throws IOException, InterruptedException {
+        runQualityCheck(DEFAULT_PROMPTS, DEFAULT_MODELS, 4, "ollama", "quality_report");
+    }
 
-            LangChain4jChatBenchmark lcBenchmark = new LangChain4jChatBenchmark();
-            SpringAiChatBenchmark springBenchmark = new SpringAiChatBenchmark();
+    public static void runQualityCheck(List<Prompt> prompts, List<String> models, int concurrency, String server,
+                                       String output) throws IOException, InterruptedException {
+        Path markdown = Path.of(output + ".md");
+        Path jsonLines = Path.of(output + ".jsonl");
+        System.out.println("Starten van Quality Check: " + prompts.size() + " prompts x " + models.size()
+                + " modellen x 2 frameworks, " + concurrency + " tegelijk... Antwoorden worden opgeslagen in '" + markdown + "'");
 
-            for (String model : models) {
-                System.out.println(">>> Testen van model: " + model);
+        OllamaEndpoint endpoint = new OllamaEndpoint();
+        endpoint.server = server;
+        endpoint.start();
+        try (Report report = new Report(markdown, jsonLines)) {
+            String baseUrl = endpoint.baseUrl();
+            Semaphore permits = new Semaphore(concurrency);
+            // The answer of the first framework waits here for the other one, to compare them
+            Map<String, Result> firstOfPair = new ConcurrentHashMap<>();
 
-                writer.println("## Model: " + model);
-                writer.println("- **Prompt:** " + prompt);
-                writer.println("\n---");
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (Prompt prompt : prompts) {
+                    for (String model : models) {
+                        submit(executor, permits, () -> generate(new LangChain4jChatBenchmark(), "LangChain4j", prompt, model, baseUrl), report, firstOfPair);
+                        submit(executor, permits, () -> generate(new SpringAiChatBenchmark(), "Spring AI", prompt, model, baseUrl), report, firstOfPair);
+                    }
+                }
+            } // Waits for all tasks
 
-                // --- 1. Test LangChain4j ---
-                System.out.print("   Generating LangChain4j... ");
-                try {
-                    String lcResponse = lcBenchmark.chat(prompt, model);
+            report.writeSummary();
+        } finally {
+            endpoint.stop();
+        }
+        System.out.println("Klaar! Bekijk '" + markdown + "' en '" + jsonLines + "' voor de resultaten.");
+    }
 
-                    writer.println("### 🦜 LangChain4j (" + model + "):");
-                    writer.println(lcResponse);
+    private static void submit(ExecutorService executor, Semaphore permits, Supplier<Result> generation, Report report,
+                               Map<String, Result> firstOfPair) {
+        executor.submit(() -> {
+            Result result;
+            permits.acquireUninterruptibly();
+            try {
+                result = generation.get();
+            } finally {
+                permits.release();
+            }
+            report.add(result);
+            System.out.printf("   %-12s %-10s %-16s %s%n", result.framework(), result.model(), result.prompt().id(),
+                    result.error() == null ? String.format("OK (%.0f ms)", result.latencyMs()) : "FOUT: " + result.error());
 
-                    System.out.println("OK");
-                } catch (Exception e) {
-                    writer.println("> Fout bij LangChain4j: " + e.getMessage());
-                    System.out.println("FOUT");
+            Result[] other = new Result[1];
+            firstOfPair.compute(result.prompt().id() + "\n" + result.model(), (key, waiting) -> {
+                if (waiting == null) return result;
+                other[0] = waiting;
+                return null;
+            });
+            if (other[0] != null && result.error() == null && other[0].error() == null) {
+                try {
+                    report.addSimilarity(result.prompt(), result.model(), similarity(result.answer(), other[0].answer()));
+                } catch (RuntimeException e) {
+                    System.err.println("Kon gelijkenis niet berekenen: " + e.getMessage());
                 }
+            }
+        });
+    }
 
-                writer.println("\n");
+    private static Result generate(AbstractChatBenchmark framework, String name, Prompt prompt, String model, String baseUrl) {
+        framework.baseUrl = baseUrl;
+        long start = System.nanoTime();
+        try {
+            AbstractChatBenchmark.Answer answer = framework.answer(prompt.text(), model);
+            double latencyMs = (System.nanoTime() - start) / 1_000_000.0;
+            JavaSnippets.CompileResult compiled = JavaSnippets.compile(answer.text());
+            return new Result(prompt, model, name, answer.text(), null, latencyMs, answer.outputTokens(),
+                    compiled != null ? compiled.compiles() : null, compiled != null ? compiled.error() : null);
+        } catch (Exception e) {
+            return new Result(prompt, model, name, null, e.getMessage(), (System.nanoTime() - start) / 1_000_000.0,
+                    -1, null, null);
+        }
+    }
 
-                // --- 2. Test Spring AI ---
-                System.out.print("   Generating Spring AI...   ");
-                try {
-                    String springResponse = springBenchmark.chat(prompt, model);
+    /** Cosine similarity of the two answers' embeddings. */
+    private static double similarity(String first, String second) {
+        EmbeddingModel embeddings = InProcessEmbeddings.langChain4j(SIMILARITY_MODEL);
+        float[] a = VectorMath.normalize(embeddings.embed(first).content().vector());
+        float[] b = VectorMath.normalize(embeddings.embed(second).content().vector());
+        return VectorMath.dot(a, b);
+    }
 
-                    writer.println("### 🌱 Spring AI (" + model + "):");
-                    writer.println(springResponse);
+    static List<Prompt> readPrompts(Path file) throws IOException {
+        List<Prompt> prompts = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) continue;
+            JsonNode node = JSON.readTree(line);
+            String text = node.hasNonNull("prompt") ? node.get("prompt").asText() : node.path("body").asText(null);
+            if (text == null) throw new IllegalArgumentException("No prompt or body field in: " + line);
+            String id = node.hasNonNull("id") ? node.get("id").asText()
+                    : node.hasNonNull("request_id") ? node.get("request_id").asText() : "prompt-" + (prompts.size() + 1);
+            prompts.add(new Prompt(id, text));
+        }
+        return prompts;
+    }
 
-                    System.out.println("OK");
-                } catch (Exception e) {
-                    writer.println("> Fout bij Spring AI: " + e.getMessage());
-                    System.out.println("FOUT");
-                }
+    /** The markdown and JSON lines files, written to from the generation threads as the results come in. */
+    private static final class Report implements AutoCloseable {
+
+        private final PrintWriter markdown;
+        private final PrintWriter jsonLines;
+        private final List<Result> results = new ArrayList<>();
+        private final Map<String, Double> similarities = new TreeMap<>();
+
+        Report(Path markdownFile, Path jsonLinesFile) throws IOException {
+            markdown = new PrintWriter(Files.newBufferedWriter(markdownFile, StandardCharsets.UTF_8));
+            jsonLines = new PrintWriter(Files.newBufferedWriter(jsonLinesFile, StandardCharsets.UTF_8));
+            markdown.println("# LLM Kwaliteitsrapport");
+            markdown.println("Vergelijking van antwoorden tussen Spring AI en LangChain4j voor verschillende modellen.\n");
+            markdown.flush();
+        }
+
+        synchronized void add(Result result) {
+            results.add(result);
+
+            markdown.println("## " + result.model() + " / " + result.framework() + " / " + result.prompt().id());
+            markdown.println("- **Prompt:** " + result.prompt().text());
+            if (result.error() != null) {
+                markdown.println("\n> Fout bij " + result.framework() + ": " + result.error());
+            } else {
+                markdown.printf("- **Latency:** %.0f ms, **tokens:** %s, **lengte:** %d tekens%s%n", result.latencyMs(),
+                        result.outputTokens() >= 0 ? result.outputTokens() : "n/a", result.answer().length(),
+                        result.compiles() == null ? "" : ", **compileert:** " + (result.compiles() ? "ja" : "nee (" + result.compileError() + ")"));
+                markdown.println();
+                markdown.println(result.answer());
+            }
+            markdown.println("\n---\n");
+            markdown.flush();
 
-                writer.println("\n---\n");
-                writer.flush();
+            ObjectNode line = JSON.createObjectNode();
+            line.put("type", "answer");
+            line.put("promptId", result.prompt().id());
+            line.put("model", result.model());
+            line.put("framework", result.framework());
+            line.put("latencyMs", result.latencyMs());
+            line.put("outputTokens", result.outputTokens());
+            line.put("characters", result.answer() != null ? result.answer().length() : 0);
+            if (result.compiles() != null) {
+                line.put("compiles", result.compiles());
+                line.put("compileError", result.compileError());
             }
+            line.put("error", result.error());
+            line.put("answer", result.answer());
+            writeJson(line);
+        }
+
+        synchronized void addSimilarity(Prompt prompt, String model, double similarity) {
+            similarities.put(model + "\n" + prompt.id(), similarity);
+            markdown.printf("_Gelijkenis LangChain4j vs Spring AI voor %s / %s: %.3f_%n%n", model, prompt.id(), similarity);
+            markdown.flush();
 
-            System.out.println("Klaar! Bekijk 'quality_report.md' voor de resultaten.");
+            ObjectNode line = JSON.createObjectNode();
+            line.put("type", "similarity");
+            line.put("promptId", prompt.id());
+            line.put("model", model);
+            line.put("similarity", similarity);
+            writeJson(line);
+        }
+
+        private void writeJson(ObjectNode line) {
+            try {
+                jsonLines.println(JSON.writeValueAsString(line));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            jsonLines.flush();
+        }
+
+        /** Averages per model and framework; the compile rate only counts answers with code. */
+        synchronized void writeSummary() {
+            markdown.println("# Samenvatting\n");
+            markdown.println("| Model | Framework | Antwoorden | Fouten | Gem. latency (ms) | Gem. tokens | Tokens/s | Gem. lengte | Compileert | Gem. gelijkenis |");
+            markdown.println("|---|---|---|---|---|---|---|---|---|---|");
+            Map<String, List<Result>> byModelAndFramework = new TreeMap<>();
+            for (Result result : results) {
+                byModelAndFramework.computeIfAbsent(result.model() + "\n" + result.framework(), key -> new ArrayList<>()).add(result);
+            }
+            byModelAndFramework.forEach((key, group) -> {
+                String model = group.get(0).model();
+                List<Result> ok = group.stream().filter(result -> result.error() == null).toList();
+                List<Result> withTokens = ok.stream().filter(result -> result.outputTokens() >= 0).toList();
+                List<Result> withCode = ok.stream().filter(result -> result.compiles() != null).toList();
+                double tokens = withTokens.stream().mapToInt(Result::outputTokens).sum();
+                double tokenSeconds = withTokens.stream().mapToDouble(Result::latencyMs).sum() / 1000.0;
+                markdown.printf("| %s | %s | %d | %d | %.0f | %s | %s | %.0f | %s | %s |%n",
+                        model, group.get(0).framework(), group.size(), group.size() - ok.size(),
+                        ok.stream().mapToDouble(Result::latencyMs).average().orElse(Double.NaN),
+                        withTokens.isEmpty() ? "n/a" : String.format("%.0f", tokens / withTokens.size()),
+                        withTokens.isEmpty() ? "n/a" : String.format("%.1f", tokens / tokenSeconds),
+                        ok.stream().mapToInt(result -> result.answer().length()).average().orElse(Double.NaN),
+                        withCode.isEmpty() ? "n/a" : withCode.stream().filter(Result::compiles).count() + "/" + withCode.size(),
+                        similarities.entrySet().stream().filter(entry -> entry.getKey().startsWith(model + "\n"))
+                                .mapToDouble(Map.Entry::getValue).average().stream()
+                                .mapToObj(average -> String.format("%.3f", average)).findFirst().orElse("n/a"));
+            });
+            markdown.flush();
+        }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+        @Override
+        public synchronized void close() {
+            markdown.close();
+            jsonLines.close();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory/latency/recall trade-off of {@link QuantizedVectorIndex} against the float32 {@link OffHeapVectorIndex}.
+ * Query latency is the primary score; index.heap.per.vector (heap retained per vector, measured after GC),
+ * index.offheap.per.vector (full-precision bytes the index allocated off-heap or mapped, unused capacity
+ * included) and recall@k against exact
+ * float32 search are secondary results when {@link MetricsProfiler} is enabled. Vectors are seeded Gaussian
+ * clusters ({@link ClusteredVectors}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, warmups = 0, jvmArgsAppend = {"-Xmx8g", "--add-modules=jdk.incubator.vector"})
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class QuantizedIndexBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    // all-minilm and bge-m3
+    @Param({"384", "1024"})
+    public int dimensions;
+
+    @Param({"float32", "int8", "binary"})
+    public String quantization;
+
+    // Candidates rescored per result; 0 = the quantization's default
+    @Param({"0"})
+    public int rescoreFactor;
+
+    // "offheap" or "disk" (memory-mapped file under target/vector-store)
+    @Param({"offheap"})
+    public String fullPrecision;
+
+    @Param({"10"})
+    public int topK;
+
+    private static final int QUERIES = 100;
+    private static final int CLUSTERS = 1000;
+
+    private float[][] queries;
+    private VectorIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ClusteredVectors clusters = new ClusteredVectors(dimensions, CLUSTERS, 42);
+        float[][] vectors = clusters.vectors(size);
+        queries = clusters.queries(vectors, QUERIES);
+
+        // 1. Build the index; the input vectors are already on the heap, so the difference is the index itself
+        long heapBefore = MemoryProbe.usedHeapAfterGc();
+        long start = System.nanoTime();
+        if ("float32".equals(quantization)) {
+            index = new OffHeapVectorIndex(dimensions);
+        } else {
+            QuantizedVectorIndex.Quantization type = VectorIndexes.quantization(quantization);
+            index = VectorIndexes.quantized(type,
+                    rescoreFactor > 0 ? rescoreFactor : VectorIndexes.defaultRescoreFactor(type),
+                    "disk".equals(fullPrecision)).apply(dimensions);
+        }
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+        SecondaryMetrics.recordForTrial("index.build.time", "s", (System.nanoTime() - start) / 1e9);
+        SecondaryMetrics.recordForTrial("index.heap.per.vector", "B/vector",
+                (double) (MemoryProbe.usedHeapAfterGc() - heapBefore) / size);
+        long offHeapBytes = index instanceof QuantizedVectorIndex quantized
+                ? quantized.byteSize()
+                : ((OffHeapVectorIndex) index).byteSize();
+        SecondaryMetrics.recordForTrial("index.offheap.per.vector", "B/vector", (double) offHeapBytes / size);
+
+        // 2. Compare against exact search over the same full-precision vectors
+        SecondaryMetrics.recordForTrial("recall@" + topK, "%", 100 * recall());
+    }
+
+    @TearDown(Level.Trial)
+    public void closeIndex() {
+        index.close();
+    }
+
+    @Benchmark
+    public List<VectorIndex.Hit> benchmarkSearch() {
+        next = (next + 1) % QUERIES;
+        return index.search(queries[next], topK, -1);
+    }
+
+    private double recall() {
+        long found = 0;
+        long expected = 0;
+        for (float[] query : queries) {
+            List<VectorIndex.Hit> exact = index instanceof QuantizedVectorIndex quantized
+                    ? quantized.exactSearch(query, topK)
+                    : index.search(query, topK, -1);
+            Set<Integer> truth = new HashSet<>();
+            for (VectorIndex.Hit hit : exact) {
+                truth.add(hit.ordinal());
+            }
+            for (VectorIndex.Hit hit : index.search(query, topK, -1)) {
+                if (truth.contains(hit.ordinal())) found++;
+            }
+            expected += truth.size();
+        }
+        return (double) found / expected;
+    }
+}
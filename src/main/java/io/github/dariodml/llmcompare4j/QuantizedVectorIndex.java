@@ -0,0 +1,292 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Brute-force index that scans compact codes on the heap instead of float32 vectors, then rescores the best
+ * {@code k * rescoreFactor} candidates against the full-precision vectors, which live off-heap or in a
+ * memory-mapped file so they cost no heap at all. The returned scores are exact cosine similarities; only the
+ * candidate selection is approximate.
+ * <ul>
+ *     <li>{@link Quantization#INT8}: one byte per dimension plus a scale per vector (~4x smaller than float32)</li>
+ *     <li>{@link Quantization#BINARY}: one bit per dimension, the sign (32x smaller); the scan is a popcount,
+ *     but ranking is coarse, so it needs a larger rescore factor</li>
+ * </ul>
+ */
+public class QuantizedVectorIndex implements VectorIndex {
+
+    public enum Quantization {INT8, BINARY}
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int dimensions;
+    private final Quantization quantization;
+    private final int rescoreFactor;
+    private final Path file;
+    private final long vectorBytes;
+    private final int codeLength;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet removed = new BitSet();
+
+    // INT8: codeLength bytes per vector and a scale per vector; BINARY: codeLength words per vector
+    private byte[] bytes = new byte[0];
+    private float[] scales = new float[0];
+    private long[] words = new long[0];
+
+    private Arena arena;
+    private MemorySegment vectors;
+    private int capacity;
+    private int count;
+
+    /**
+     * @param file where the full-precision vectors are memory-mapped, or null to keep them off-heap in memory;
+     *             the file is deleted on {@link #close()}
+     */
+    public QuantizedVectorIndex(int dimensions, Quantization quantization, int rescoreFactor, Path file) {
+        if (rescoreFactor < 1) throw new IllegalArgumentException("rescoreFactor must be at least 1 but was " + rescoreFactor);
+        this.dimensions = dimensions;
+        this.quantization = quantization;
+        this.rescoreFactor = rescoreFactor;
+        this.file = file;
+        this.vectorBytes = (long) dimensions * Float.BYTES;
+        this.codeLength = quantization == Quantization.INT8 ? dimensions : (dimensions + Long.SIZE - 1) / Long.SIZE;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count - removed.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        float[] normalized = VectorMath.normalize(vector);
+        lock.writeLock().lock();
+        try {
+            if (count == capacity) {
+                allocate(capacity * 2);
+            }
+            MemorySegment.copy(normalized, 0, vectors, ValueLayout.JAVA_FLOAT, count * vectorBytes, dimensions);
+            if (quantization == Quantization.INT8) {
+                scales[count] = quantizeInt8(normalized, bytes, count * codeLength);
+            } else {
+                quantizeBinary(normalized, words, count * codeLength);
+            }
+            return count++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(int ordinal) {
+        lock.writeLock().lock();
+        try {
+            removed.set(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public float[] vector(int ordinal) {
+        lock.readLock().lock();
+        try {
+            return vectors.asSlice(ordinal * vectorBytes, vectorBytes).toArray(ValueLayout.JAVA_FLOAT);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Hit> search(float[] query, int k, double minScore) {
+        float[] normalized = VectorMath.normalize(query);
+        lock.readLock().lock();
+        try {
+            // 1. First pass over the codes: approximate scores, only good enough to pick candidates
+            TopK candidates = quantization == Quantization.INT8
+                    ? scanInt8(normalized, k * rescoreFactor)
+                    : scanBinary(normalized, k * rescoreFactor);
+
+            // 2. Rescore the candidates with the full-precision vectors
+            TopK top = new TopK(k);
+            for (Hit candidate : candidates.toHits()) {
+                float score = VectorMath.dot(normalized, vectors, candidate.ordinal() * vectorBytes);
+                if (score >= minScore && score > top.threshold()) {
+                    top.offer(candidate.ordinal(), score);
+                }
+            }
+            return top.toHits();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Exact search over the full-precision vectors only, the ground truth for recall. */
+    public List<Hit> exactSearch(float[] query, int k) {
+        float[] normalized = VectorMath.normalize(query);
+        TopK top = new TopK(k);
+        lock.readLock().lock();
+        try {
+            boolean anyRemoved = !removed.isEmpty();
+            for (int ordinal = 0; ordinal < count; ordinal++) {
+                if (anyRemoved && removed.get(ordinal)) continue;
+                float score = VectorMath.dot(normalized, vectors, ordinal * vectorBytes);
+                if (score > top.threshold()) {
+                    top.offer(ordinal, score);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return top.toHits();
+    }
+
+    /** Heap bytes the codes of one vector take (what the first pass scans). */
+    public long codeBytesPerVector() {
+        return quantization == Quantization.INT8 ? codeLength + Float.BYTES : (long) codeLength * Long.BYTES;
+    }
+
+    /** Off-heap (or mapped) bytes held for the full-precision vectors, including unused capacity. */
+    public long byteSize() {
+        lock.readLock().lock();
+        try {
+            return vectors.byteSize();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (arena != null) {
+                arena.close();
+                arena = null;
+            }
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private TopK scanInt8(float[] query, int candidates) {
+        byte[] queryCode = new byte[codeLength];
+        float queryScale = quantizeInt8(query, queryCode, 0);
+        TopK top = new TopK(candidates);
+        boolean anyRemoved = !removed.isEmpty();
+        for (int ordinal = 0, offset = 0; ordinal < count; ordinal++, offset += codeLength) {
+            if (anyRemoved && removed.get(ordinal)) continue;
+            float score = VectorMath.dot(queryCode, bytes, offset) * queryScale * scales[ordinal];
+            if (score > top.threshold()) {
+                top.offer(ordinal, score);
+            }
+        }
+        return top;
+    }
+
+    private TopK scanBinary(float[] query, int candidates) {
+        long[] queryCode = new long[codeLength];
+        quantizeBinary(query, queryCode, 0);
+        TopK top = new TopK(candidates);
+        boolean anyRemoved = !removed.isEmpty();
+        for (int ordinal = 0, offset = 0; ordinal < count; ordinal++, offset += codeLength) {
+            if (anyRemoved && removed.get(ordinal)) continue;
+            int differentBits = 0;
+            for (int i = 0; i < codeLength; i++) {
+                differentBits += Long.bitCount(queryCode[i] ^ words[offset + i]);
+            }
+            // Fewer differing signs = smaller angle
+            float score = -differentBits;
+            if (score > top.threshold()) {
+                top.offer(ordinal, score);
+            }
+        }
+        return top;
+    }
+
+    /** Symmetric scalar quantization to [-127, 127], scaled per vector by its largest component; returns the scale. */
+    private static float quantizeInt8(float[] vector, byte[] target, int offset) {
+        float max = 0f;
+        for (float value : vector) {
+            max = Math.max(max, Math.abs(value));
+        }
+        if (max == 0f) return 0f;
+        float scale = max / 127f;
+        for (int i = 0; i < vector.length; i++) {
+            target[offset + i] = (byte) Math.round(vector[i] / scale);
+        }
+        return scale;
+    }
+
+    private static void quantizeBinary(float[] vector, long[] target, int offset) {
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0) {
+                target[offset + i / Long.SIZE] |= 1L << (i % Long.SIZE);
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        if (quantization == Quantization.INT8) {
+            bytes = Arrays.copyOf(bytes, Math.multiplyExact(newCapacity, codeLength));
+            scales = Arrays.copyOf(scales, newCapacity);
+        } else {
+            words = Arrays.copyOf(words, Math.multiplyExact(newCapacity, codeLength));
+        }
+
+        Arena newArena = Arena.ofShared();
+        MemorySegment newVectors;
+        if (file == null) {
+            newVectors = newArena.allocate(newCapacity * vectorBytes, 64);
+            if (vectors != null) {
+                MemorySegment.copy(vectors, 0, newVectors, 0, count * vectorBytes);
+            }
+        } else {
+            // The file keeps the vectors written so far; mapping it again with a larger size extends it
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                newVectors = channel.map(FileChannel.MapMode.READ_WRITE, 0, newCapacity * vectorBytes, newArena);
+            } catch (IOException e) {
+                newArena.close();
+                throw new UncheckedIOException("Could not map " + file, e);
+            }
+        }
+        if (arena != null) {
+            arena.close();
+        }
+        arena = newArena;
+        vectors = newVectors;
+        capacity = newCapacity;
+    }
+}
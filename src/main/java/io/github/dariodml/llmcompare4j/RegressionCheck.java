@@ -0,0 +1,139 @@
+package io.github.dariodml.llmcompare4j;
+
+import io.github.dariodml.llmcompare4j.ResultStore.Metric;
+import io.github.dariodml.llmcompare4j.ResultStore.StoredResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two runs from the {@link ResultStore} and exits with status 1 when a benchmark got significantly
+ * worse, so a dependency bump can be gated on it.
+ *
+ * <p>A change counts as significant when the 99.9% confidence intervals JMH reports (score ± error) of the two
+ * runs do not overlap and the relative change is at least {@code minChange} percent. Results without an
+ * interval (a single iteration) are listed but never flagged. Besides the primary score, gc.alloc.rate.norm is
+ * compared when the run used the GC profiler.
+ *
+ * <p>Usage: {@code RegressionCheck [store=results/benchmark-results.jsonl] [baseline=<run id, prefix or commit>]
+ * [candidate=<run id, prefix or commit>] [minChange=5]}; by default the last two runs are compared.
+ */
+public class RegressionCheck {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        Path store = ResultStore.DEFAULT_FILE;
+        String baselineId = null;
+        String candidateId = null;
+        double minChange = 5;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            String value = arg.substring(eq + 1);
+            switch (arg.substring(0, eq)) {
+                case "store" -> store = Path.of(value);
+                case "baseline" -> baselineId = value;
+                case "candidate" -> candidateId = value;
+                case "minChange" -> minChange = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg.substring(0, eq));
+            }
+        }
+
+        Map<String, List<StoredResult>> runs = ResultStore.read(store);
+        List<String> runIds = new ArrayList<>(runs.keySet());
+        if (runIds.size() < 2 && (baselineId == null || candidateId == null)) {
+            System.err.println("Need at least two runs in " + store + " but found " + runIds.size());
+            System.exit(2);
+        }
+        String baseline = baselineId != null ? find(runs, baselineId) : runIds.get(runIds.size() - 2);
+        String candidate = candidateId != null ? find(runs, candidateId) : runIds.get(runIds.size() - 1);
+
+        System.out.println("Baseline:  " + describe(runs.get(baseline)));
+        System.out.println("Candidate: " + describe(runs.get(candidate)));
+        System.out.println();
+
+        List<Comparison> comparisons = compare(runs.get(baseline), runs.get(candidate), minChange);
+        long regressions = comparisons.stream().filter(c -> c.verdict() == Verdict.REGRESSION).count();
+        for (Comparison comparison : comparisons) {
+            System.out.printf("%-12s %+7.1f%%  %11.4g +- %-10.4g -> %11.4g +- %-10.4g %-8s %s%n",
+                    comparison.verdict(), comparison.changePercent(),
+                    comparison.baseline().score(), comparison.baseline().error(),
+                    comparison.candidate().score(), comparison.candidate().error(),
+                    comparison.candidate().unit(), comparison.name());
+        }
+        System.out.printf("%n%d comparisons, %d significant regressions%n", comparisons.size(), regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    enum Verdict { REGRESSION, IMPROVEMENT, UNCHANGED, NO_INTERVAL }
+
+    record Comparison(String name, Metric baseline, Metric candidate, double changePercent, Verdict verdict) {
+    }
+
+    /** Compares every benchmark (and its allocation rate) that both runs measured with the same params. */
+    static List<Comparison> compare(List<StoredResult> baseline, List<StoredResult> candidate, double minChange) {
+        Map<String, StoredResult> baselineByKey = new LinkedHashMap<>();
+        for (StoredResult result : baseline) {
+            baselineByKey.put(result.key(), result);
+        }
+
+        List<Comparison> comparisons = new ArrayList<>();
+        for (StoredResult after : candidate) {
+            StoredResult before = baselineByKey.get(after.key());
+            if (before == null) continue;
+
+            // Throughput is the only mode where higher is better
+            boolean lowerIsBetter = !"thrpt".equals(after.mode());
+            comparisons.add(compare(after.key(), new Metric(before.score(), before.error(), before.unit()),
+                    new Metric(after.score(), after.error(), after.unit()), lowerIsBetter, minChange));
+
+            Metric allocationBefore = before.secondary().get(ALLOCATION);
+            Metric allocationAfter = after.secondary().get(ALLOCATION);
+            if (allocationBefore != null && allocationAfter != null) {
+                comparisons.add(compare(after.key() + " " + ALLOCATION, allocationBefore, allocationAfter, true, minChange));
+            }
+        }
+        return comparisons;
+    }
+
+    private static Comparison compare(String name, Metric before, Metric after, boolean lowerIsBetter, double minChange) {
+        double changePercent = 100.0 * (after.score() - before.score()) / Math.abs(before.score());
+        Verdict verdict;
+        if (!Double.isFinite(before.error()) || !Double.isFinite(after.error())) {
+            verdict = Verdict.NO_INTERVAL;
+        } else {
+            boolean overlap = after.score() - after.error() <= before.score() + before.error()
+                    && before.score() - before.error() <= after.score() + after.error();
+            if (overlap || Math.abs(changePercent) < minChange) {
+                verdict = Verdict.UNCHANGED;
+            } else {
+                boolean worse = lowerIsBetter ? after.score() > before.score() : after.score() < before.score();
+                verdict = worse ? Verdict.REGRESSION : Verdict.IMPROVEMENT;
+            }
+        }
+        return new Comparison(name, before, after, changePercent, verdict);
+    }
+
+    private static String find(Map<String, List<StoredResult>> runs, String id) {
+        String match = null;
+        for (Map.Entry<String, List<StoredResult>> run : runs.entrySet()) {
+            if (run.getKey().startsWith(id) || run.getValue().get(0).gitCommit().startsWith(id)) {
+                match = run.getKey(); // The latest matching run wins
+            }
+        }
+        if (match == null) throw new IllegalArgumentException("No run matches " + id);
+        return match;
+    }
+
+    private static String describe(List<StoredResult> run) {
+        StoredResult first = run.get(0);
+        return first.runId() + " " + first.versions() + ", " + run.size() + " results";
+    }
+}
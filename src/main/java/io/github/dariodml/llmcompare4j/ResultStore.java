@@ -0,0 +1,164 @@
+package io.github.dariodml.llmcompare4j;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Append-only history of benchmark runs, one JSON object per RunResult per line. Every line carries the run id,
+ * git commit, JVM and framework versions next to the params, score, 99.9% confidence error and secondary
+ * results, so {@link RegressionCheck} can compare any two runs, e.g. before and after a dependency bump.
+ */
+public class ResultStore {
+
+    public static final Path DEFAULT_FILE = Path.of("results", "benchmark-results.jsonl");
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    // Artifacts whose versions are recorded with every run, read from the jars' pom.properties
+    private static final Map<String, String> VERSIONED_ARTIFACTS = Map.of(
+            "langchain4j", "META-INF/maven/dev.langchain4j/langchain4j/pom.properties",
+            "spring-ai", "META-INF/maven/org.springframework.ai/spring-ai-model/pom.properties",
+            "jmh", "META-INF/maven/org.openjdk.jmh/jmh-core/pom.properties");
+
+    /** One stored benchmark result. */
+    public record StoredResult(String runId, String gitCommit, Map<String, String> versions, String benchmark,
+                               String mode, Map<String, String> params, double score, double error, String unit,
+                               Map<String, Metric> secondary) {
+
+        /** Identifies the same benchmark, mode and params across runs. */
+        public String key() {
+            StringBuilder key = new StringBuilder(benchmark).append(" [").append(mode).append(']');
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            return key.toString();
+        }
+    }
+
+    public record Metric(double score, double error, String unit) {
+    }
+
+    /** Appends all results under a new run id (timestamp plus git commit) and returns that id. */
+    public static String append(Collection<RunResult> results, Path file) throws IOException {
+        String gitCommit = gitCommit();
+        String runId = Instant.now().toString() + "-" + gitCommit;
+        Map<String, String> versions = versions();
+
+        List<String> lines = new ArrayList<>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            Result<?> primary = result.getPrimaryResult();
+
+            ObjectNode line = JSON.createObjectNode();
+            line.put("runId", runId);
+            line.put("gitCommit", gitCommit);
+            line.put("jvm", params.getJdkVersion() + " " + params.getVmName() + " " + params.getVmVersion());
+            line.set("versions", JSON.valueToTree(versions));
+            line.put("benchmark", params.getBenchmark());
+            line.put("mode", params.getMode().shortLabel());
+            ObjectNode paramValues = line.putObject("params");
+            for (String key : params.getParamsKeys()) {
+                paramValues.put(key, params.getParam(key));
+            }
+            line.put("score", primary.getScore());
+            line.put("error", primary.getScoreError());
+            line.put("unit", primary.getScoreUnit());
+            line.put("samples", primary.getSampleCount());
+            ObjectNode secondary = line.putObject("secondary");
+            // JMH declares the secondary results with the raw Result type, so they are read without naming it
+            new TreeMap<>(result.getSecondaryResults()).forEach((name, metric) -> {
+                if (Double.isNaN(metric.getScore())) return; // e.g. the jfr profiler's text-only result
+                ObjectNode value = secondary.putObject(name);
+                value.put("score", metric.getScore());
+                value.put("error", metric.getScoreError());
+                value.put("unit", metric.getScoreUnit());
+            });
+            lines.add(JSON.writeValueAsString(line));
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return runId;
+    }
+
+    /** All stored results, grouped by run id in the order the runs were appended. */
+    public static Map<String, List<StoredResult>> read(Path file) throws IOException {
+        Map<String, List<StoredResult>> runs = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) continue;
+            JsonNode node = JSON.readTree(line);
+
+            Map<String, String> versions = new TreeMap<>();
+            node.path("versions").fields().forEachRemaining(entry -> versions.put(entry.getKey(), entry.getValue().asText()));
+            Map<String, String> params = new TreeMap<>();
+            node.path("params").fields().forEachRemaining(entry -> params.put(entry.getKey(), entry.getValue().asText()));
+            Map<String, Metric> secondary = new TreeMap<>();
+            node.path("secondary").fields().forEachRemaining(entry -> secondary.put(entry.getKey(), new Metric(
+                    entry.getValue().path("score").asDouble(Double.NaN),
+                    entry.getValue().path("error").asDouble(Double.NaN),
+                    entry.getValue().path("unit").asText())));
+
+            StoredResult result = new StoredResult(node.path("runId").asText(), node.path("gitCommit").asText(), versions,
+                    node.path("benchmark").asText(), node.path("mode").asText(), params,
+                    node.path("score").asDouble(Double.NaN), node.path("error").asDouble(Double.NaN),
+                    node.path("unit").asText(), secondary);
+            runs.computeIfAbsent(result.runId(), key -> new ArrayList<>()).add(result);
+        }
+        return runs;
+    }
+
+    private static Map<String, String> versions() {
+        Map<String, String> versions = new TreeMap<>();
+        VERSIONED_ARTIFACTS.forEach((name, resource) -> {
+            try (InputStream in = ResultStore.class.getClassLoader().getResourceAsStream(resource)) {
+                if (in == null) return;
+                Properties properties = new Properties();
+                properties.load(in);
+                versions.put(name, properties.getProperty("version", "unknown"));
+            } catch (IOException e) {
+                System.err.println("Could not read version of " + name + ": " + e.getMessage());
+            }
+        });
+        return versions;
+    }
+
+    /** Short commit hash, with "-dirty" when the working tree has changes, or "unknown" outside a git checkout. */
+    private static String gitCommit() {
+        try {
+            String commit = git("rev-parse", "--short", "HEAD");
+            if (commit.isEmpty()) return "unknown";
+            return git("status", "--porcelain", "--untracked-files=no").isEmpty() ? commit : commit + "-dirty";
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+
+    private static String git(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        return process.waitFor() == 0 ? output : "";
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-iteration metrics recorded from benchmark code (time-to-first-token, per-stage timings, ...).
+ * {@link MetricsProfiler} drains them after every JMH iteration and reports them as secondary results,
+ * so they end up in the RunResult next to gc.alloc.rate.norm.
+ */
+public final class SecondaryMetrics {
+
+    private static final Map<String, Mean> MEANS = new ConcurrentHashMap<>();
+    private static final Map<String, Recorder> DISTRIBUTIONS = new ConcurrentHashMap<>();
+    private static final Map<String, ScalarResult> TRIAL = new ConcurrentHashMap<>();
+
+    private SecondaryMetrics() {
+    }
+
+    /** Adds a sample; the iteration result is the mean of all samples. */
+    public static void record(String name, String unit, double value) {
+        MEANS.computeIfAbsent(name, key -> new Mean(unit)).add(value);
+    }
+
+    /** Adds a latency sample; the iteration result is reported as name.p50, name.p90 and name.p99 in ms. */
+    public static void recordNanos(String name, long nanos) {
+        DISTRIBUTIONS.computeIfAbsent(name, key -> new Recorder(3)).recordValue(Math.max(0, nanos));
+    }
+
+    /**
+     * Sets a value measured once per trial (e.g. in {@code @Setup(Level.Trial)}); it is reported with every
+     * iteration of that trial.
+     */
+    public static void recordForTrial(String name, String unit, double value) {
+        TRIAL.put(name, new ScalarResult(name, value, unit, AggregationPolicy.AVG));
+    }
+
+    public static void clearTrial() {
+        TRIAL.clear();
+    }
+
+    static void reset() {
+        MEANS.clear();
+        DISTRIBUTIONS.clear();
+    }
+
+    /** Returns the results collected since the last call and starts a new interval. */
+    static List<ScalarResult> drain() {
+        List<ScalarResult> results = new ArrayList<>();
+        for (Map.Entry<String, Mean> entry : new TreeMap<>(MEANS).entrySet()) {
+            Mean mean = entry.getValue();
+            if (mean.count.sum() == 0) continue;
+            results.add(new ScalarResult(entry.getKey(), mean.sum.sum() / mean.count.sum(), mean.unit, AggregationPolicy.AVG));
+        }
+        for (Map.Entry<String, Recorder> entry : new TreeMap<>(DISTRIBUTIONS).entrySet()) {
+            Histogram histogram = entry.getValue().getIntervalHistogram();
+            if (histogram.getTotalCount() == 0) continue;
+            for (double percentile : new double[]{50, 90, 99}) {
+                double millis = histogram.getValueAtPercentile(percentile) / 1_000_000.0;
+                results.add(new ScalarResult(entry.getKey() + ".p" + (int) percentile, millis, "ms", AggregationPolicy.AVG));
+            }
+        }
+        results.addAll(new TreeMap<>(TRIAL).values());
+        reset();
+        return results;
+    }
+
+    private static final class Mean {
+        private final String unit;
+        private final DoubleAdder sum = new DoubleAdder();
+        private final LongAdder count = new LongAdder();
+
+        private Mean(String unit) {
+            this.unit = unit;
+        }
+
+        private void add(double value) {
+            sum.add(value);
+            count.increment();
+        }
+    }
+}
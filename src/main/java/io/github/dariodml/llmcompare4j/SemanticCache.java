@@ -0,0 +1,129 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Response cache in front of a chat or RAG call: the prompt is embedded, and if an earlier prompt is at least
+ * {@code similarityThreshold} (cosine) similar and younger than the TTL, its answer is returned without calling
+ * the model. Entries are evicted oldest-first once {@code maxEntries} is reached.
+ *
+ * <p>Every call records secondary metrics: semantic.cache.hit.rate, semantic.cache.lookup (ms) and, for hits,
+ * semantic.cache.saved (generation time avoided, ms), semantic.cache.age (how old the served answer is, s) and
+ * semantic.cache.inexact.rate (hits answered for a different prompt text).
+ *
+ * <p>The prompt embeddings live off-heap in an {@link OffHeapVectorIndex}; {@link #close()} frees them.
+ */
+public class SemanticCache implements AutoCloseable {
+
+    private record Entry(String prompt, String answer, long createdAt, long generationNanos) {
+    }
+
+    private final Function<String, float[]> embedder;
+    private final double similarityThreshold;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    // Insertion order is also expiry order, so both evictions start at the head
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>();
+    private VectorIndex index;
+    private int removedSinceCompaction;
+
+    /** @param embedder embeds a prompt with the framework's embedding model */
+    public SemanticCache(Function<String, float[]> embedder, double similarityThreshold, Duration ttl, int maxEntries) {
+        this.embedder = embedder;
+        this.similarityThreshold = similarityThreshold;
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    /** Returns a cached answer for a similar prompt, or calls {@code generator} and caches its answer. */
+    public String answer(String prompt, Function<String, String> generator) {
+        long start = System.nanoTime();
+        float[] embedding = embedder.apply(prompt);
+        Entry hit = lookup(embedding, start);
+        long lookupNanos = System.nanoTime() - start;
+        SecondaryMetrics.record("semantic.cache.lookup", "ms", lookupNanos / 1_000_000.0);
+
+        if (hit != null) {
+            SecondaryMetrics.record("semantic.cache.hit.rate", "%", 100);
+            SecondaryMetrics.record("semantic.cache.saved", "ms", (hit.generationNanos() - lookupNanos) / 1_000_000.0);
+            SecondaryMetrics.record("semantic.cache.age", "s", (start - hit.createdAt()) / 1e9);
+            SecondaryMetrics.record("semantic.cache.inexact.rate", "%", hit.prompt().equals(prompt) ? 0 : 100);
+            return hit.answer();
+        }
+
+        SecondaryMetrics.record("semantic.cache.hit.rate", "%", 0);
+        long generationStart = System.nanoTime();
+        String answer = generator.apply(prompt);
+        long now = System.nanoTime();
+        store(embedding, new Entry(prompt, answer, now, now - generationStart));
+        return answer;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized Entry lookup(float[] embedding, long now) {
+        if (index == null) return null;
+        expire(now);
+        List<VectorIndex.Hit> hits = index.search(embedding, 1, similarityThreshold);
+        return hits.isEmpty() ? null : entries.get(hits.get(0).ordinal());
+    }
+
+    private synchronized void store(float[] embedding, Entry entry) {
+        if (index == null) {
+            index = new OffHeapVectorIndex(embedding.length);
+        }
+        expire(entry.createdAt());
+        while (entries.size() >= maxEntries) {
+            removeEldest();
+        }
+        compactIfNeeded();
+        entries.put(index.add(embedding), entry);
+    }
+
+    /** Removed vectors are still scanned, so the index is rebuilt once they outnumber the live entries. */
+    private void compactIfNeeded() {
+        if (removedSinceCompaction <= Math.max(entries.size(), 64)) return;
+        VectorIndex compacted = new OffHeapVectorIndex(index.dimensions());
+        LinkedHashMap<Integer, Entry> renumbered = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+            renumbered.put(compacted.add(index.vector(entry.getKey())), entry.getValue());
+        }
+        index.close();
+        index = compacted;
+        entries.clear();
+        entries.putAll(renumbered);
+        removedSinceCompaction = 0;
+    }
+
+    /** Frees the off-heap index; the cache is empty afterwards and can be used again. */
+    @Override
+    public synchronized void close() {
+        if (index != null) {
+            index.close();
+            index = null;
+        }
+        entries.clear();
+        removedSinceCompaction = 0;
+    }
+
+    private void expire(long now) {
+        while (!entries.isEmpty() && now - entries.values().iterator().next().createdAt() > ttlNanos) {
+            removeEldest();
+        }
+    }
+
+    private void removeEldest() {
+        Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+        index.remove(eldest.next().getKey());
+        eldest.remove();
+        removedSinceCompaction++;
+    }
+}
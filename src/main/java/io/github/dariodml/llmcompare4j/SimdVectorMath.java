@@ -0,0 +1,74 @@
+package io.github.dariodml.llmcompare4j;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/** Vector API kernels; only loaded by {@link VectorMath} when jdk.incubator.vector is available. */
+final class SimdVectorMath {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    // Widening bytes to ints of the same vector size splits one byte vector into this many int vectors
+    private static final int INT_PARTS = Integer.BYTES / Byte.BYTES;
+
+    private SimdVectorMath() {
+    }
+
+    static float dot(float[] query, MemorySegment segment, long offset) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(query.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+            FloatVector v = FloatVector.fromMemorySegment(SPECIES, segment, offset + (long) i * Float.BYTES, ByteOrder.nativeOrder());
+            sum = q.fma(v, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < query.length; i++) {
+            result += query[i] * segment.get(ValueLayout.JAVA_FLOAT_UNALIGNED, offset + (long) i * Float.BYTES);
+        }
+        return result;
+    }
+
+    static float dot(float[] a, float[] b) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            sum = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, b, i), sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            result += a[i] * b[i];
+        }
+        return result;
+    }
+
+    static int dot(byte[] query, byte[] codes, int offset) {
+        IntVector sum = IntVector.zero(INT_SPECIES);
+        int i = 0;
+        int bound = BYTE_SPECIES.loopBound(query.length);
+        for (; i < bound; i += BYTE_SPECIES.length()) {
+            ByteVector q = ByteVector.fromArray(BYTE_SPECIES, query, i);
+            ByteVector c = ByteVector.fromArray(BYTE_SPECIES, codes, offset + i);
+            for (int part = 0; part < INT_PARTS; part++) {
+                IntVector qInts = (IntVector) q.convertShape(VectorOperators.B2I, INT_SPECIES, part);
+                IntVector cInts = (IntVector) c.convertShape(VectorOperators.B2I, INT_SPECIES, part);
+                sum = qInts.mul(cInts).add(sum);
+            }
+        }
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < query.length; i++) {
+            result += query[i] * codes[offset + i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read-only LangChain4j {@link EmbeddingStore} over a memory-mapped {@link VectorSnapshot}: the segment text and
+ * metadata are only decoded for the matches of a search. Write the snapshot once with {@link #write}, then every
+ * restart opens it instead of re-embedding the corpus. Metadata filters are not supported.
+ */
+public class SnapshotEmbeddingStore implements EmbeddingStore<TextSegment>, AutoCloseable {
+
+    private static final int EMBEDDING_BATCH_SIZE = 64;
+
+    private final VectorSnapshot snapshot;
+
+    public SnapshotEmbeddingStore(VectorSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /** Opens the snapshot at {@code path}, writing it from the segments first if it does not exist yet. */
+    public static SnapshotEmbeddingStore openOrWrite(Path path, EmbeddingModel embeddingModel, List<TextSegment> segments) {
+        if (!Files.exists(path)) {
+            write(path, embeddingModel, segments);
+        }
+        return new SnapshotEmbeddingStore(VectorSnapshot.open(path));
+    }
+
+    /** Embeds the segments in batches and writes them, with their text and metadata, as a snapshot. */
+    public static void write(Path path, EmbeddingModel embeddingModel, List<TextSegment> segments) {
+        if (segments.isEmpty()) throw new IllegalArgumentException("Nothing to write to snapshot " + path);
+        VectorSnapshot.Writer writer = null;
+        boolean complete = false;
+        try {
+            for (int from = 0; from < segments.size(); from += EMBEDDING_BATCH_SIZE) {
+                List<TextSegment> batch = segments.subList(from, Math.min(from + EMBEDDING_BATCH_SIZE, segments.size()));
+                List<Embedding> embeddings = embeddingModel.embedAll(batch).content();
+                for (int i = 0; i < batch.size(); i++) {
+                    float[] vector = embeddings.get(i).vector();
+                    if (writer == null) writer = VectorSnapshot.create(path, vector.length);
+                    writer.add(UUID.randomUUID().toString(), vector, batch.get(i).text(), batch.get(i).metadata().toMap());
+                }
+            }
+            complete = true;
+        } finally {
+            // Only a snapshot with every batch in it is published; a failed batch leaves no file behind
+            if (writer != null) {
+                if (complete) writer.close();
+                else writer.abort();
+            }
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        if (request.filter() != null) {
+            throw new UnsupportedOperationException("Metadata filters are not supported by " + getClass().getSimpleName());
+        }
+        // LangChain4j relevance scores are cosine similarity mapped from [-1, 1] to [0, 1]
+        double minCosine = 2 * request.minScore() - 1;
+        List<VectorIndex.Hit> hits = snapshot.search(request.queryEmbedding().vector(), request.maxResults(), minCosine);
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(hits.size());
+        for (VectorIndex.Hit hit : hits) {
+            matches.add(new EmbeddingMatch<>(
+                    RelevanceScore.fromCosineSimilarity(hit.score()),
+                    snapshot.id(hit.ordinal()),
+                    Embedding.from(snapshot.vector(hit.ordinal())),
+                    TextSegment.from(snapshot.text(hit.ordinal()), Metadata.from(snapshot.metadata(hit.ordinal())))));
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        throw readOnly();
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        throw readOnly();
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        throw readOnly();
+    }
+
+    @Override
+    public void close() {
+        snapshot.close();
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Snapshots are read-only; write a new one with SnapshotEmbeddingStore.write");
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only Spring AI {@link VectorStore} over a memory-mapped {@link VectorSnapshot}: the document text and
+ * metadata are only decoded for the results of a search. Write the snapshot once with {@link #write}, then every
+ * restart opens it instead of re-embedding the corpus (or loading SimpleVectorStore's JSON). Filter expressions
+ * are not supported.
+ */
+public class SnapshotVectorStore implements VectorStore, AutoCloseable {
+
+    private static final int EMBEDDING_BATCH_SIZE = 64;
+
+    private final EmbeddingModel embeddingModel;
+    private final VectorSnapshot snapshot;
+
+    /** @param embeddingModel embeds the queries; must be the model the snapshot was written with */
+    public SnapshotVectorStore(EmbeddingModel embeddingModel, VectorSnapshot snapshot) {
+        this.embeddingModel = embeddingModel;
+        this.snapshot = snapshot;
+    }
+
+    /** Opens the snapshot at {@code path}, writing it from the documents first if it does not exist yet. */
+    public static SnapshotVectorStore openOrWrite(Path path, EmbeddingModel embeddingModel, List<Document> documents) {
+        if (!Files.exists(path)) {
+            write(path, embeddingModel, documents);
+        }
+        return new SnapshotVectorStore(embeddingModel, VectorSnapshot.open(path));
+    }
+
+    /** Embeds the documents in batches and writes them, with their id, text and metadata, as a snapshot. */
+    public static void write(Path path, EmbeddingModel embeddingModel, List<Document> documents) {
+        if (documents.isEmpty()) throw new IllegalArgumentException("Nothing to write to snapshot " + path);
+        VectorSnapshot.Writer writer = null;
+        boolean complete = false;
+        try {
+            for (int from = 0; from < documents.size(); from += EMBEDDING_BATCH_SIZE) {
+                List<Document> batch = documents.subList(from, Math.min(from + EMBEDDING_BATCH_SIZE, documents.size()));
+                List<float[]> embeddings = embeddingModel.embed(batch.stream().map(Document::getText).toList());
+                for (int i = 0; i < batch.size(); i++) {
+                    float[] vector = embeddings.get(i);
+                    if (writer == null) writer = VectorSnapshot.create(path, vector.length);
+                    Document document = batch.get(i);
+                    writer.add(document.getId(), vector, document.getText(), document.getMetadata());
+                }
+            }
+            complete = true;
+        } finally {
+            // Only a snapshot with every batch in it is published; a failed batch leaves no file behind
+            if (writer != null) {
+                if (complete) writer.close();
+                else writer.abort();
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (request.hasFilterExpression()) {
+            throw new UnsupportedOperationException("Filter expressions are not supported by " + getName());
+        }
+        float[] query = embeddingModel.embed(request.getQuery());
+        List<VectorIndex.Hit> hits = snapshot.search(query, request.getTopK(), request.getSimilarityThreshold());
+
+        List<Document> results = new ArrayList<>(hits.size());
+        for (VectorIndex.Hit hit : hits) {
+            results.add(Document.builder()
+                    .id(snapshot.id(hit.ordinal()))
+                    .text(snapshot.text(hit.ordinal()))
+                    .metadata(snapshot.metadata(hit.ordinal()))
+                    .score((double) hit.score())
+                    .build());
+        }
+        return results;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        throw readOnly();
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        throw readOnly();
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        throw readOnly();
+    }
+
+    @Override
+    public void close() {
+        snapshot.close();
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Snapshots are read-only; write a new one with SnapshotVectorStore.write");
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Spring AI {@link EmbeddingModel} that sends its texts through an {@link EmbeddingGateway} to the delegate. Batches
+ * mix the texts of many callers, so the delegate is called with its default options.
+ */
+public class SpringAiBatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingGateway gateway;
+
+    public SpringAiBatchingEmbeddingModel(EmbeddingModel delegate, int maxBatchSize, Duration maxWait) {
+        this.delegate = delegate;
+        this.gateway = new EmbeddingGateway(delegate::embed, maxBatchSize, maxWait);
+    }
+
+    /** Non-blocking variant of {@link #embed(String)}. */
+    public CompletableFuture<float[]> embedAsync(String text) {
+        return gateway.embed(text);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<float[]> vectors = gateway.embedAll(request.getInstructions());
+        List<Embedding> embeddings = new ArrayList<>(vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            embeddings.add(new Embedding(vectors.get(i), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    @Override
+    public void close() {
+        gateway.close();
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Spring AI {@link EmbeddingModel} decorator that only sends texts missing from the {@link EmbeddingCache}. */
+public class SpringAiCachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final String modelName;
+    private final EmbeddingCache cache;
+
+    public SpringAiCachingEmbeddingModel(EmbeddingModel delegate, String modelName, EmbeddingCache cache) {
+        this.delegate = delegate;
+        this.modelName = modelName;
+        this.cache = cache;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        float[][] vectors = new float[texts.size()][];
+        String[] keys = new String[texts.size()];
+        List<String> misses = new ArrayList<>();
+        List<Integer> missIndexes = new ArrayList<>();
+
+        // 1. Serve what we can from the cache
+        for (int i = 0; i < texts.size(); i++) {
+            keys[i] = EmbeddingCache.key(modelName, texts.get(i));
+            vectors[i] = cache.get(keys[i]);
+            if (vectors[i] == null) {
+                misses.add(texts.get(i));
+                missIndexes.add(i);
+            }
+        }
+
+        // 2. Embed the misses in one call and remember them
+        if (!misses.isEmpty()) {
+            List<Embedding> computed = delegate.call(new EmbeddingRequest(misses, request.getOptions())).getResults();
+            for (int i = 0; i < computed.size(); i++) {
+                int index = missIndexes.get(i);
+                vectors[index] = computed.get(i).getOutput();
+                cache.put(keys[index], vectors[index]);
+            }
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
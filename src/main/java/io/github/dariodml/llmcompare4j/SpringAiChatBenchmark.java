@@ -1,6 +1,8 @@
 package io.github.dariodml.llmcompare4j;
 
 import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.ollama.OllamaChatModel;
 import org.springframework.ai.ollama.api.OllamaApi;
 import org.springframework.ai.ollama.api.OllamaOptions;
@@ -20,7 +22,7 @@ public class SpringAiChatBenchmark extends AbstractChatBenchmark {
 
 	private OllamaChatModel createModel(String modelName) {
 		OllamaApi ollamaApi = OllamaApi.builder()
-				.baseUrl("http://localhost:11434")
+				.baseUrl(baseUrl)
 				.build();
 
         OllamaOptions defaultOptions = OllamaOptions.builder()
@@ -35,14 +37,18 @@ public class SpringAiChatBenchmark extends AbstractChatBenchmark {
 	}
 
 	@Setup(Level.Trial)
-	public void setupModel() {
+	public void setupModel(OllamaEndpoint endpoint) {
+		baseUrl = endpoint.baseUrl();
 		model = createModel(modelName);
 		activeModelName = modelName;
 	}
 
 	@Benchmark
+	@SuppressWarnings("try")
 	public String benchmarkChat() {
-		return chat(prompt, modelName);
+		try (ModelUsage usage = ModelUsage.start()) {
+			return answer(prompt, modelName).text();
+		}
 	}
 
 	@Override
@@ -54,4 +60,16 @@ public class SpringAiChatBenchmark extends AbstractChatBenchmark {
 		}
 		return model.call(prompt);
 	}
+
+	@Override
+	public Answer answer(String prompt, String modelName) {
+		if (model == null || activeModelName == null || !activeModelName.equals(modelName)) {
+			model = createModel(modelName);
+			activeModelName = modelName;
+		}
+		ChatResponse response = model.call(new Prompt(prompt));
+		ModelUsage.springAi(response);
+		Integer tokens = response.getMetadata().getUsage().getCompletionTokens();
+		return new Answer(response.getResult().getOutput().getText(), tokens != null ? tokens : -1);
+	}
 }
@@ -0,0 +1,56 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class SpringAiColdStartBenchmark extends AbstractColdStartBenchmark {
+
+    @Benchmark
+    @Fork(value = 5, warmups = 0) // Every fork is a fresh JVM, so each sample is a true cold start
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public Object benchmarkColdStart() {
+        return firstResponse();
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    public Object benchmarkWarmStart() {
+        return firstResponse();
+    }
+
+    @Override
+    public Object firstResponse() {
+        OllamaApi ollamaApi = OllamaApi.builder()
+                .baseUrl(baseUrl)
+                .build();
+
+        if (workload.equals("embed")) {
+            return OllamaEmbeddingModel.builder()
+                    .ollamaApi(ollamaApi)
+                    .defaultOptions(OllamaOptions.builder()
+                            .model(embeddingModelName)
+                            .build())
+                    .build()
+                    .embed(EMBED_TEXT);
+        }
+        return OllamaChatModel.builder()
+                .ollamaApi(ollamaApi)
+                .defaultOptions(OllamaOptions.builder()
+                        .model(modelName)
+                        .temperature(0.7)
+                        .build())
+                .build()
+                .call(new Prompt(CHAT_PROMPT));
+    }
+}
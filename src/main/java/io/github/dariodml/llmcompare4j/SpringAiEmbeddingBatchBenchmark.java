@@ -0,0 +1,51 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class SpringAiEmbeddingBatchBenchmark extends AbstractEmbeddingBatchBenchmark {
+
+    private EmbeddingModel model;
+
+    @Setup(Level.Trial)
+    public void setupModel(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+        if (InProcessEmbeddings.isInProcess(backend)) {
+            model = InProcessEmbeddings.springAi(modelName);
+            return;
+        }
+
+        OllamaApi ollamaApi = OllamaApi.builder()
+                .baseUrl(baseUrl)
+                .build();
+
+        model = OllamaEmbeddingModel.builder()
+                .ollamaApi(ollamaApi)
+                .defaultOptions(OllamaOptions.builder()
+                        .model(modelName)
+                        .build())
+                .build();
+    }
+
+    @Benchmark
+    public Object benchmarkEmbeddingBatch() {
+        return embedBatches();
+    }
+
+    @Override
+    public Object embedBatch(List<String> texts) {
+        // embed(List) sends the whole list as one multi-input /api/embed request
+        return model.embed(texts);
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.dariodml.llmcompare4j;
 
 import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.ollama.OllamaEmbeddingModel;
 import org.springframework.ai.ollama.api.OllamaApi;
 import org.springframework.ai.ollama.api.OllamaOptions;
@@ -14,16 +15,32 @@ import java.util.concurrent.TimeUnit;
 @Measurement(iterations = 3, time = 5)
 public class SpringAiEmbeddingBenchmark extends AbstractEmbeddingBenchmark {
 
-    private OllamaEmbeddingModel model;
+    private EmbeddingModel model;
 
-    @Setup(Level.Iteration)
-    public void setupModel() {
+    @Setup(Level.Trial) // Client construction is measured separately by the ColdStart benchmarks
+    public void setupModel(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
         model = createModel(modelName);
+        if (gatewayEnabled()) {
+            model = new SpringAiBatchingEmbeddingModel(model, gatewayBatchSize, gatewayMaxWait());
+        }
     }
 
-    private OllamaEmbeddingModel createModel(String name) {
+    @TearDown(Level.Trial)
+    public void closeGateway() {
+        if (model instanceof SpringAiBatchingEmbeddingModel gateway) {
+            gateway.close();
+        }
+    }
+
+    private EmbeddingModel createModel(String name) {
+        // Same ONNX session as the LangChain4j in-process path, behind Spring AI's EmbeddingModel interface
+        if (InProcessEmbeddings.isInProcess(backend)) {
+            return InProcessEmbeddings.springAi(name);
+        }
+
         OllamaApi ollamaApi = OllamaApi.builder()
-                .baseUrl("http://localhost:11434")
+                .baseUrl(baseUrl)
                 .build();
 
         OllamaOptions options = OllamaOptions.builder()
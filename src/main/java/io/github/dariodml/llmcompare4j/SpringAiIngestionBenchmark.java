@@ -0,0 +1,78 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1) // A single shot already ingests the whole corpus
+public class SpringAiIngestionBenchmark extends AbstractIngestionBenchmark<VectorStore, Document> {
+
+    private EmbeddingModel embeddingModel;
+    private TokenTextSplitter splitter;
+
+    @Setup(Level.Trial)
+    public void setup(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+
+        embeddingModel = InProcessEmbeddings.isInProcess(backend)
+                ? InProcessEmbeddings.springAi(embeddingModelName)
+                : OllamaEmbeddingModel.builder()
+                        .ollamaApi(OllamaApi.builder()
+                                .baseUrl(baseUrl)
+                                .build())
+                        .defaultOptions(OllamaOptions.builder()
+                                .model(embeddingModelName)
+                                .build())
+                        .build();
+
+        splitter = TokenTextSplitter.builder()
+                .withChunkSize(chunkTokens)
+                .build();
+    }
+
+    @Benchmark
+    public Object benchmarkIngest() {
+        return ingestAndMeasure();
+    }
+
+    @Override
+    protected VectorStore newStore() {
+        return VectorIndexes.FRAMEWORK_DEFAULT.equals(storeType)
+                ? SimpleVectorStore.builder(embeddingModel).build()
+                : new VectorIndexVectorStore(embeddingModel, indexFactory());
+    }
+
+    @Override
+    protected List<Document> split(String source, String text) {
+        return splitter.split(new Document(text, Map.of("source", source)));
+    }
+
+    @Override
+    protected List<String> embedAndStore(VectorStore store, List<Document> chunks) {
+        // The store embeds the documents itself; the ids are assigned when the splitter creates the chunk documents
+        store.add(chunks);
+        return chunks.stream()
+                .map(Document::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected void remove(VectorStore store, List<String> ids) {
+        store.delete(ids);
+    }
+}
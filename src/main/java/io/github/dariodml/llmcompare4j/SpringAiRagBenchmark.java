@@ -3,16 +3,28 @@ package io.github.dariodml.llmcompare4j;
 import org.openjdk.jmh.annotations.*;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.ollama.OllamaChatModel;
 import org.springframework.ai.ollama.OllamaEmbeddingModel;
 import org.springframework.ai.ollama.api.OllamaApi;
 import org.springframework.ai.ollama.api.OllamaOptions;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.SECONDS)
@@ -24,14 +36,29 @@ public class SpringAiRagBenchmark extends AbstractRagBenchmark {
 
     private ChatClient chatClient;
 
-    private SimpleVectorStore vectorStore;
+    private VectorStore vectorStore;
+    // The advisor of the lexical and hybrid retrieval modes, null for dense
+    private HybridRetrievalAdvisor hybridRetrieval;
+
+    // Used by ragAsync() only: a ChatClient without the advisor, the retrieval runs on the scheduler
+    private ChatClient streamingChatClient;
+    private Scheduler retrievalScheduler;
 
     @Setup(Level.Trial)
-    public void setup() {
-        // 1. Initialize API
+    public void setup(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+
+        // 1. Initialize API; with the stage breakdown, the chat model gets its own API whose interceptor splits
+        //    off the HTTP exchange, so the query embedding is not reported as model.exchange/model.response
         OllamaApi ollamaApi = OllamaApi.builder()
-                .baseUrl("http://localhost:11434")
+                .baseUrl(baseUrl)
                 .build();
+        OllamaApi chatApi = stagesEnabled()
+                ? OllamaApi.builder()
+                        .baseUrl(baseUrl)
+                        .restClientBuilder(SpringAiStages.restClientBuilder())
+                        .build()
+                : ollamaApi;
 
         // 2. Chat Model
         OllamaOptions chatOptions = OllamaOptions.builder()
@@ -40,7 +67,7 @@ public class SpringAiRagBenchmark extends AbstractRagBenchmark {
                 .build();
 
         OllamaChatModel chatModel = OllamaChatModel.builder()
-                .ollamaApi(ollamaApi)
+                .ollamaApi(chatApi)
                 .defaultOptions(chatOptions)
                 .build();
 
@@ -49,45 +76,163 @@ public class SpringAiRagBenchmark extends AbstractRagBenchmark {
                 .model(embeddingModelName)
                 .build();
 
-        OllamaEmbeddingModel embeddingModel = OllamaEmbeddingModel.builder()
-                .ollamaApi(ollamaApi)
-                .defaultOptions(embeddingOptions)
-                .build();
+        EmbeddingModel embeddingModel = InProcessEmbeddings.isInProcess(backend)
+                ? InProcessEmbeddings.springAi(embeddingModelName)
+                : OllamaEmbeddingModel.builder()
+                        .ollamaApi(ollamaApi)
+                        .defaultOptions(embeddingOptions)
+                        .build();
 
-        // 4. Vector Store (In-Memory)
-        this.vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+        EmbeddingCache embeddingCache = createEmbeddingCache(endpoint);
+        if (embeddingCache != null) {
+            embeddingModel = new SpringAiCachingEmbeddingModel(embeddingModel, embeddingModelName, embeddingCache);
+        }
+        if (stagesEnabled()) {
+            embeddingModel = SpringAiStages.embeddingModel(embeddingModel);
+        }
 
-        // 5. Ingest Documents
-        List<Document> docs = documents.stream()
-                .map(Document::new)
+        // The position in the knowledge base is the id, so a snapshot written by an earlier trial and the BM25 side
+        // of HybridRetrievalAdvisor agree on it
+        List<Document> docs = IntStream.range(0, documents.size())
+                .mapToObj(i -> new Document(String.valueOf(i), documents.get(i), Map.of()))
                 .collect(Collectors.toList());
 
-        this.vectorStore.add(docs);
+        if (VectorIndexes.SNAPSHOT.equals(storeType)) {
+            // 4./5. Snapshot: only the first run embeds the documents, later trials map the file
+            SnapshotVectorStore snapshot = SnapshotVectorStore.openOrWrite(snapshotPath("springai", endpoint), embeddingModel, docs);
+            this.vectorStore = closeAfterTrial(snapshot);
+        } else {
+            // 4. Vector Store (In-Memory)
+            this.vectorStore = VectorIndexes.FRAMEWORK_DEFAULT.equals(storeType)
+                    ? SimpleVectorStore.builder(embeddingModel).build()
+                    : closeAfterTrial(new VectorIndexVectorStore(embeddingModel, indexFactory()));
 
-        // 6. ChatClient with QuestionAnswerAdvisor (equivalent to LangChain4j's AiServices)
-        this.chatClient = ChatClient.builder(chatModel)
-                .defaultAdvisors(
-                        QuestionAnswerAdvisor.builder(vectorStore)
+            // 5. Ingest Documents
+            this.vectorStore.add(docs);
+        }
+        VectorStore searchStore = stagesEnabled() ? SpringAiStages.vectorStore(vectorStore) : vectorStore;
+
+        // 6. ChatClient with QuestionAnswerAdvisor (equivalent to LangChain4j's AiServices), or the hybrid advisor
+        //    for the lexical and hybrid retrieval modes
+        hybridRetrieval = lexicalRetrievalEnabled()
+                ? new HybridRetrievalAdvisor(lexicalIndex(documents), docs, searchStore, retrieval, 2, 0.5)
+                : null;
+        ChatClient.Builder chatClientBuilder = ChatClient.builder(chatModel)
+                .defaultAdvisors(hybridRetrieval != null
+                        ? hybridRetrieval
+                        : QuestionAnswerAdvisor.builder(searchStore)
                                 .searchRequest(SearchRequest.builder()
                                         .topK(2)
                                         .similarityThreshold(0.5)
                                         .build())
                                 .build()
-                )
-                .build();
+                );
+        if (stagesEnabled()) {
+            chatClientBuilder.defaultAdvisors(SpringAiStages.advisors());
+        }
+        this.chatClient = chatClientBuilder.build();
+
+        // 7. ChatClient for ragAsync(), which does the retrieval itself
+        this.streamingChatClient = ChatClient.builder(chatModel).build();
+        this.retrievalScheduler = Schedulers.fromExecutorService(retrievalExecutor);
     }
 
     @Benchmark
+    @SuppressWarnings("try")
     public String benchmarkRag() {
-        return rag(prompt, modelName);
+        try (ModelUsage usage = ModelUsage.start()) {
+            return answer(nextPrompt());
+        }
     }
 
     @Override
+    @SuppressWarnings("try")
     public String rag(String prompt, String modelName) {
         // Use ChatClient with QuestionAnswerAdvisor (Spring AI's high-level RAG abstraction)
-        return chatClient.prompt()
+        if (stagesEnabled()) {
+            try (CallStages.Stage call = CallStages.call()) {
+                return call(prompt);
+            }
+        }
+        return call(prompt);
+    }
+
+    private String call(String prompt) {
+        // chatResponse() instead of content() keeps the metadata; content() does the same call and unwrapping
+        ChatResponse response = chatClient.prompt()
                 .user(prompt)
                 .call()
-                .content();
+                .chatResponse();
+        ModelUsage.springAi(response);
+        return response.getResult().getOutput().getText();
+    }
+
+    @Override
+    public CompletableFuture<String> ragAsync(String prompt, String modelName) {
+        TokenTimer timer = new TokenTimer();
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        // The stream completes on the HTTP client's thread, so the usage of this call is handed to it
+        ModelUsage usage = ModelUsage.current();
+        AtomicReference<ChatResponse> last = new AtomicReference<>();
+        Disposable subscription = ragResponses(prompt)
+                .doOnNext(last::set)
+                .mapNotNull(SpringAiRagBenchmark::text)
+                .doOnNext(timer::onToken)
+                .doOnComplete(() -> {
+                    timer.onComplete();
+                    // Ollama's final (done) chunk carries the token counts and durations of the whole response
+                    if (last.get() != null) ModelUsage.springAi(usage, last.get());
+                })
+                .collect(Collectors.joining())
+                .subscribe(answer::complete, answer::completeExceptionally);
+        // Disposing cancels the subscription all the way up to the HTTP exchange
+        answer.whenComplete((text, error) -> {
+            if (answer.isCancelled()) subscription.dispose();
+        });
+        return answer;
+    }
+
+    /**
+     * The answer tokens of the non-blocking pipeline: the {@code retrieval} mode's search (with the query embedding
+     * unless it is lexical only) and keyword retrieval run concurrently on the retrieval scheduler, then the prompt
+     * is assembled and streamed. Nothing happens until it is subscribed.
+     */
+    public Flux<String> ragStream(String prompt) {
+        return ragResponses(prompt).mapNotNull(SpringAiRagBenchmark::text);
+    }
+
+    /** {@link #ragStream} with the whole chunks, which keep the metadata. */
+    private Flux<ChatResponse> ragResponses(String prompt) {
+        Mono<List<String>> semantic = Mono.fromCallable(() -> search(prompt))
+                .subscribeOn(retrievalScheduler);
+        Mono<List<String>> keyword = keywordRetrievalEnabled()
+                ? Mono.fromCallable(() -> keywordMatches(prompt, 2)).subscribeOn(retrievalScheduler)
+                : Mono.just(List.of());
+        return Mono.zip(semantic, keyword, AbstractRagBenchmark::mergeContents)
+                .flatMapMany(contents -> streamingChatClient.prompt()
+                        .user(HybridRetrievalAdvisor.augment(prompt, contents))
+                        .stream()
+                        .chatResponse());
+    }
+
+    /** The text of a chunk, as {@code stream().content()} unwraps it; null for a chunk without one. */
+    private static String text(ChatResponse response) {
+        return response.getResult() != null && response.getResult().getOutput() != null
+                ? response.getResult().getOutput().getText()
+                : null;
+    }
+
+    /** The search the advisor of {@link #rag} does: QuestionAnswerAdvisor's, or HybridRetrievalAdvisor's. */
+    private List<String> search(String prompt) {
+        List<Document> retrieved = hybridRetrieval != null
+                ? hybridRetrieval.retrieve(prompt)
+                : vectorStore.similaritySearch(SearchRequest.builder()
+                        .query(prompt)
+                        .topK(2)
+                        .similarityThreshold(0.5)
+                        .build());
+        return retrieved.stream()
+                .map(Document::getText)
+                .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class SpringAiRagScalingBenchmark extends AbstractRagScalingBenchmark<VectorStore> {
+
+    private EmbeddingModel embeddingModel;
+    private List<String> corpus;
+    private VectorStore vectorStore;
+    // Set for the lexical and hybrid retrieval modes
+    private HybridRetrievalAdvisor hybridRetrieval;
+
+    @State(Scope.Thread)
+    public static class Chat extends Generation {
+
+        private ChatClient chatClient;
+
+        @Setup(Level.Trial)
+        public void setup(OllamaEndpoint endpoint) {
+            OllamaChatModel chatModel = OllamaChatModel.builder()
+                    .ollamaApi(OllamaApi.builder()
+                            .baseUrl(endpoint.baseUrl())
+                            .build())
+                    .defaultOptions(OllamaOptions.builder()
+                            .model(modelName)
+                            .temperature(0.7)
+                            .build())
+                    .build();
+
+            // Plain ChatClient: retrieval is measured separately instead of through the QuestionAnswerAdvisor
+            chatClient = ChatClient.builder(chatModel).build();
+        }
+
+        @Override
+        public String generate(String prompt, List<String> context) {
+            return chatClient.prompt()
+                    .user(CONTEXT_TEMPLATE.formatted(context(context), prompt))
+                    .call()
+                    .content();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+
+        OllamaApi ollamaApi = OllamaApi.builder()
+                .baseUrl(baseUrl)
+                .build();
+
+        embeddingModel = InProcessEmbeddings.isInProcess(backend)
+                ? InProcessEmbeddings.springAi(embeddingModelName)
+                : OllamaEmbeddingModel.builder()
+                        .ollamaApi(ollamaApi)
+                        .defaultOptions(OllamaOptions.builder()
+                                .model(embeddingModelName)
+                                .build())
+                        .build();
+
+        EmbeddingCache embeddingCache = createEmbeddingCache(endpoint);
+        if (embeddingCache != null) {
+            embeddingModel = new SpringAiCachingEmbeddingModel(embeddingModel, embeddingModelName, embeddingCache);
+        }
+
+        corpus = corpus();
+        vectorStore = ingestAndMeasure(corpus);
+        if (lexicalRetrievalEnabled()) {
+            hybridRetrieval = new HybridRetrievalAdvisor(lexicalIndex(corpus), documents(corpus, 0), vectorStore,
+                    retrieval, 2, 0.5);
+        }
+    }
+
+    @Override
+    protected VectorStore ingest(List<String> chunks) {
+        VectorStore store = VectorIndexes.FRAMEWORK_DEFAULT.equals(storeType)
+                ? SimpleVectorStore.builder(embeddingModel).build()
+                : new VectorIndexVectorStore(embeddingModel, indexFactory());
+
+        for (int from = 0; from < chunks.size(); from += INGEST_BATCH_SIZE) {
+            store.add(documents(chunks.subList(from, Math.min(from + INGEST_BATCH_SIZE, chunks.size())), from));
+        }
+        return store;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1) // A single shot already embeds the whole corpus
+    public Object benchmarkIngest() {
+        return closeAfterTrial(ingest(corpus));
+    }
+
+    @Benchmark
+    public List<String> benchmarkRetrieve(Question question) {
+        List<String> retrieved = retrieve(nextPrompt(question.prompt));
+        recordHitRate(question.prompt, retrieved);
+        return retrieved;
+    }
+
+    @Benchmark
+    public String benchmarkGenerate(Question question, Chat chat) {
+        return chat.generate(question.prompt, retrievedContext(question.prompt));
+    }
+
+    @Override
+    public List<String> retrieve(String prompt) {
+        // Same search the QuestionAnswerAdvisor (or HybridRetrievalAdvisor) performs in SpringAiRagBenchmark
+        List<Document> retrieved = hybridRetrieval != null
+                ? hybridRetrieval.retrieve(prompt)
+                : vectorStore.similaritySearch(SearchRequest.builder()
+                        .query(prompt)
+                        .topK(2)
+                        .similarityThreshold(0.5)
+                        .build());
+        return retrieved.stream()
+                .map(Document::getText)
+                .collect(Collectors.toList());
+    }
+
+    /** Documents with their corpus position as id, so the BM25 index and the vector store agree on identity. */
+    private static List<Document> documents(List<String> chunks, int offset) {
+        List<Document> documents = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            documents.add(new Document(String.valueOf(offset + i), chunks.get(i), Map.of()));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class SpringAiSemanticCacheBenchmark extends AbstractSemanticCacheBenchmark {
+
+    private SpringAiChatBenchmark chat;
+    private SpringAiRagBenchmark rag;
+    private OllamaEmbeddingModel embeddingModel;
+
+    @Setup(Level.Trial)
+    public void setup(OllamaEndpoint endpoint) {
+        // Same chat and RAG setup as the regular benchmarks
+        if (workload.equals("rag")) {
+            rag = new SpringAiRagBenchmark();
+            rag.modelName = modelName;
+            rag.embeddingModelName = embeddingModelName;
+            rag.setup(endpoint);
+        } else {
+            chat = new SpringAiChatBenchmark();
+            chat.modelName = modelName;
+            chat.setupModel(endpoint);
+        }
+
+        embeddingModel = OllamaEmbeddingModel.builder()
+                .ollamaApi(OllamaApi.builder()
+                        .baseUrl(endpoint.baseUrl())
+                        .build())
+                .defaultOptions(OllamaOptions.builder()
+                        .model(embeddingModelName)
+                        .build())
+                .build();
+        cache = createCache();
+    }
+
+    /**
+     * The cache holds its embeddings off-heap, and the nested RAG benchmark owns an executor and its stores; JMH
+     * tears down neither.
+     */
+    @TearDown(Level.Trial)
+    public void closeResources() throws Exception {
+        if (cache != null) {
+            cache.close();
+        }
+        if (rag != null) {
+            rag.closeResources();
+        }
+    }
+
+    @Benchmark
+    public String benchmarkAsk() {
+        return ask();
+    }
+
+    @Override
+    protected String generate(String prompt) {
+        return rag != null ? rag.rag(prompt, modelName) : chat.chat(prompt, modelName);
+    }
+
+    @Override
+    protected float[] embed(String prompt) {
+        return embeddingModel.embed(prompt);
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 3, warmups = 1) // Every fork is a restart; the warmup fork writes the JSON file or snapshot
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class SpringAiSnapshotStartupBenchmark extends AbstractSnapshotStartupBenchmark<VectorStore> {
+
+    private EmbeddingModel embeddingModel;
+
+    @Setup(Level.Trial)
+    public void setup(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+        embeddingModel = InProcessEmbeddings.isInProcess(backend)
+                ? InProcessEmbeddings.springAi(embeddingModelName)
+                : OllamaEmbeddingModel.builder()
+                        .ollamaApi(OllamaApi.builder()
+                                .baseUrl(baseUrl)
+                                .build())
+                        .defaultOptions(OllamaOptions.builder()
+                                .model(embeddingModelName)
+                                .build())
+                        .build();
+        prepare("springai", endpoint);
+    }
+
+    @Benchmark
+    public List<String> benchmarkTimeToFirstQuery() {
+        return startAndQuery();
+    }
+
+    @Override
+    protected VectorStore reingest() {
+        SimpleVectorStore store = SimpleVectorStore.builder(embeddingModel).build();
+        for (int from = 0; from < corpus.size(); from += INGEST_BATCH_SIZE) {
+            store.add(documents(corpus.subList(from, Math.min(from + INGEST_BATCH_SIZE, corpus.size()))));
+        }
+        return store;
+    }
+
+    @Override
+    protected void writeJson(VectorStore store, Path file) {
+        ((SimpleVectorStore) store).save(file.toFile());
+    }
+
+    @Override
+    protected VectorStore loadJson(Path file) {
+        SimpleVectorStore store = SimpleVectorStore.builder(embeddingModel).build();
+        store.load(file.toFile());
+        return store;
+    }
+
+    @Override
+    protected void writeSnapshot(Path file) {
+        SnapshotVectorStore.write(file, embeddingModel, documents(corpus));
+    }
+
+    @Override
+    protected VectorStore openSnapshot(Path file) {
+        return new SnapshotVectorStore(embeddingModel, VectorSnapshot.open(file));
+    }
+
+    @Override
+    protected List<String> retrieve(VectorStore store, String query) {
+        return store.similaritySearch(SearchRequest.builder()
+                        .query(query)
+                        .topK(2)
+                        .build()).stream()
+                .map(Document::getText)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Document> documents(List<String> texts) {
+        return texts.stream()
+                .map(Document::new)
+                .collect(Collectors.toList());
+    }
+}
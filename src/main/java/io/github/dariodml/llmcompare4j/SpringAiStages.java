@@ -0,0 +1,167 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * {@link CallStages} hooks for a Spring AI ChatClient call. The stages are:
+ * <ul>
+ *     <li>{@code augment}: the advisor chain minus retrieval and the model call (QuestionAnswerAdvisor's
+ *     prompt templating, chain overhead)</li>
+ *     <li>{@code retrieve}: the VectorStore search minus the query embedding</li>
+ *     <li>{@code embed}: the query embedding</li>
+ *     <li>{@code model.request}: mapping the prompt to Ollama's request and serializing it to JSON</li>
+ *     <li>{@code model.exchange}: the HTTP exchange, from the RestClient interceptor until the response body
+ *     is read (the interceptor buffers it for that)</li>
+ *     <li>{@code model.response}: parsing the JSON response and mapping it back to a ChatResponse</li>
+ * </ul>
+ */
+@SuppressWarnings("try")
+public final class SpringAiStages {
+
+    private SpringAiStages() {
+    }
+
+    /**
+     * RestClient builder for {@code OllamaApi.builder().restClientBuilder(...)} that splits off the HTTP exchange.
+     * Only give it to the OllamaApi of the chat model: it treats every request as the model call.
+     */
+    public static RestClient.Builder restClientBuilder() {
+        ClientHttpRequestInterceptor interceptor = (request, body, execution) -> {
+            CallStages.next("model.exchange");
+            ClientHttpResponse response = execution.execute(request, body);
+            byte[] content;
+            try (InputStream in = response.getBody()) {
+                content = in.readAllBytes();
+            }
+            CallStages.next("model.response");
+            return new BufferedResponse(response, content);
+        };
+        return RestClient.builder().requestInterceptor(interceptor);
+    }
+
+    /** Advisors to add to the ChatClient: the first wraps the whole chain, the second only the model call. */
+    public static List<Advisor> advisors() {
+        return List.of(
+                new StageAdvisor("augment", Ordered.HIGHEST_PRECEDENCE),
+                new StageAdvisor("model.request", Ordered.LOWEST_PRECEDENCE - 1));
+    }
+
+    public static VectorStore vectorStore(VectorStore delegate) {
+        return new VectorStore() {
+            @Override
+            public void add(List<Document> documents) {
+                delegate.add(documents);
+            }
+
+            @Override
+            public void delete(List<String> idList) {
+                delegate.delete(idList);
+            }
+
+            @Override
+            public void delete(Filter.Expression filterExpression) {
+                delegate.delete(filterExpression);
+            }
+
+            @Override
+            public List<Document> similaritySearch(SearchRequest request) {
+                try (CallStages.Stage stage = CallStages.open("retrieve")) {
+                    return delegate.similaritySearch(request);
+                }
+            }
+        };
+    }
+
+    public static EmbeddingModel embeddingModel(EmbeddingModel delegate) {
+        return new EmbeddingModel() {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                try (CallStages.Stage stage = CallStages.open("embed")) {
+                    return delegate.call(request);
+                }
+            }
+
+            @Override
+            public float[] embed(Document document) {
+                try (CallStages.Stage stage = CallStages.open("embed")) {
+                    return delegate.embed(document);
+                }
+            }
+
+            @Override
+            public int dimensions() {
+                return delegate.dimensions();
+            }
+        };
+    }
+
+    private record StageAdvisor(String stage, int order) implements CallAdvisor {
+
+        @Override
+        public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+            try (CallStages.Stage ignored = CallStages.open(stage)) {
+                return chain.nextCall(request);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "Stage[" + stage + "]";
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+    }
+
+    private record BufferedResponse(ClientHttpResponse delegate, byte[] content) implements ClientHttpResponse {
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class SpringAiStreamingChatBenchmark extends AbstractChatBenchmark {
+
+    private OllamaChatModel model;
+    private String activeModelName;
+
+    private OllamaChatModel createModel(String modelName) {
+        OllamaApi ollamaApi = OllamaApi.builder()
+                .baseUrl(baseUrl)
+                .build();
+
+        OllamaOptions defaultOptions = OllamaOptions.builder()
+                .model(modelName)
+                .temperature(0.7)
+                .build();
+
+        return OllamaChatModel.builder()
+                .ollamaApi(ollamaApi)
+                .defaultOptions(defaultOptions)
+                .build();
+    }
+
+    @Setup(Level.Trial)
+    public void setupModel(OllamaEndpoint endpoint) {
+        baseUrl = endpoint.baseUrl();
+        model = createModel(modelName);
+        activeModelName = modelName;
+    }
+
+    @Benchmark
+    public String benchmarkStreamingChat() {
+        return chat(prompt, modelName);
+    }
+
+    @Override
+    public String chat(String prompt, String modelName) {
+        if (model == null || activeModelName == null || !activeModelName.equals(modelName)) {
+            model = createModel(modelName);
+            activeModelName = modelName;
+        }
+
+        TokenTimer timer = new TokenTimer();
+        return model.stream(prompt)
+                .doOnNext(timer::onToken)
+                .doOnComplete(timer::onComplete)
+                .collect(Collectors.joining())
+                .block();
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import java.net.http.HttpClient;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection reuse for Spring AI: "per-call" builds a new OllamaApi (and HTTP client) for every call,
+ * "per-model" keeps one HTTP client per model, and "shared" gives every model the one {@link HttpTransport}
+ * client. All three use the JDK HttpClient with the HTTP version, pool size and keep-alive of the
+ * {@link HttpTransport} params, so only the reuse differs. Run with {@code -t N} to see the pool under
+ * concurrency: every thread gets its own model, but "shared" lets them share connections.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 0)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class SpringAiTransportBenchmark {
+
+    @Param({"per-call", "per-model", "shared"})
+    public String transport;
+
+    @Param({"all-minilm"})
+    public String modelName;
+
+    private static final String TEXT = "Short sentence for embedding.";
+
+    private String baseUrl;
+    private HttpTransport httpTransport;
+    // The per-model client, null for "shared"
+    private HttpClient modelClient;
+    private OllamaEmbeddingModel model;
+
+    @Setup(Level.Trial)
+    public void setup(OllamaEndpoint endpoint, HttpTransport httpTransport) {
+        baseUrl = endpoint.baseUrl();
+        this.httpTransport = httpTransport;
+        if (transport.equals("shared")) {
+            model = createModel(httpTransport.httpClient());
+        } else {
+            modelClient = httpTransport.newHttpClient();
+            model = createModel(modelClient);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeClient() {
+        if (modelClient != null) {
+            modelClient.close();
+            modelClient = null;
+        }
+    }
+
+    private OllamaEmbeddingModel createModel(HttpClient client) {
+        OllamaApi api = OllamaApi.builder()
+                .baseUrl(baseUrl)
+                .restClientBuilder(HttpTransport.restClientBuilder(client))
+                .webClientBuilder(HttpTransport.webClientBuilder(client))
+                .build();
+        return OllamaEmbeddingModel.builder()
+                .ollamaApi(api)
+                .defaultOptions(OllamaOptions.builder()
+                        .model(modelName)
+                        .build())
+                .build();
+    }
+
+    @Benchmark
+    public Object benchmarkEmbedding() {
+        if (transport.equals("per-call")) {
+            try (HttpClient client = httpTransport.newHttpClient()) {
+                return createModel(client).embed(TEXT);
+            }
+        }
+        return model.embed(TEXT);
+    }
+}
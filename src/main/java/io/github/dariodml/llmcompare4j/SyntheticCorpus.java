@@ -0,0 +1,171 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Knowledge base for the scaling RAG benchmarks: either a local file with one chunk per line,
+ * or seeded synthetic Java-themed chunks so every run ingests exactly the same corpus.
+ * The ingestion benchmarks get whole documents instead, written as files by {@link #writeDocuments}.
+ */
+public final class SyntheticCorpus {
+
+    private static final String[] SUBJECTS = {
+            "The JVM", "The garbage collector", "A virtual thread", "The JIT compiler", "Java bytecode",
+            "The heap", "A class loader", "The G1 collector", "ZGC", "A platform thread", "The stack",
+            "An object", "The module system", "A record", "The Stream API", "A lambda expression"
+    };
+    private static final String[] VERBS = {
+            "allocates", "reclaims", "compiles", "schedules", "verifies", "loads", "inlines", "pins",
+            "scans", "moves", "optimizes", "releases", "references", "resolves", "interprets", "parks"
+    };
+    private static final String[] OBJECTS = {
+            "unused objects", "hot methods", "bytecode on any platform", "memory regions", "carrier threads",
+            "class files", "young generation objects", "blocking calls", "native memory", "escape analysis results",
+            "immutable data", "collections in parallel", "monitor locks", "tenured objects", "the call stack",
+            "compiled code independent of the operating system"
+    };
+
+    private static final String COMPLETE_MARKER = ".complete";
+
+    // Paragraphs per generated document; the chunk numbers of document n are n * 32 plus the paragraph
+    private static final int MIN_PARAGRAPHS = 8;
+    private static final int MAX_PARAGRAPHS = 24;
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * Returns {@code size} chunks. The base documents come first so the benchmark prompts keep finding
+     * their answers; the rest is filled from {@code file} (if not blank) or generated from {@code seed}.
+     */
+    public static List<String> load(List<String> baseDocuments, int size, String file, long seed) {
+        List<String> chunks = new ArrayList<>(size);
+        for (String document : baseDocuments) {
+            if (chunks.size() == size) return chunks;
+            chunks.add(document);
+        }
+
+        if (file != null && !file.isBlank()) {
+            try (Stream<String> lines = Files.lines(Path.of(file))) {
+                lines.filter(line -> !line.isBlank())
+                        .limit(size - chunks.size())
+                        .forEach(chunks::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read corpus file " + file, e);
+            }
+            return chunks;
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        while (chunks.size() < size) {
+            chunks.add(chunk(random, chunks.size()));
+        }
+        return chunks;
+    }
+
+    /**
+     * Writes {@code count} text documents of a few paragraphs each to {@code target/ingest-corpus} and returns the
+     * directory. A complete directory from an earlier run with the same arguments is reused as is.
+     */
+    public static Path writeDocuments(int count, long seed) {
+        Path directory = WorkDirectory.resolve("ingest-corpus", "documents-" + count + "-" + seed);
+        if (Files.exists(directory.resolve(COMPLETE_MARKER))) return directory;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        try {
+            Files.createDirectories(directory);
+            for (int i = 0; i < count; i++) {
+                Files.writeString(directory.resolve(documentName(i)), document(random, i));
+            }
+            Files.createFile(directory.resolve(COMPLETE_MARKER));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write documents to " + directory, e);
+        }
+        return directory;
+    }
+
+    /**
+     * Writes the next version of a document directory, as a nightly re-index would see it: of the
+     * {@code changeRatio} share of documents that change, a third is deleted, a third gets an extra paragraph and a
+     * third is replaced by new documents. Reused like {@link #writeDocuments}.
+     */
+    public static Path writeChangedDocuments(Path source, double changeRatio, long seed) {
+        Path directory = WorkDirectory.resolve("ingest-corpus",
+                source.getFileName() + "-" + Integer.toHexString(source.toAbsolutePath().hashCode()) + "-changed-" + changeRatio);
+        if (Files.exists(directory.resolve(COMPLETE_MARKER))) return directory;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        try (Stream<Path> files = Files.list(source)) {
+            // Sorted so the same documents change on every run
+            List<Path> documents = files.filter(SyntheticCorpus::isDocument).sorted().collect(Collectors.toList());
+            Files.createDirectories(directory);
+            int added = 0;
+            for (int number = 0; number < documents.size(); number++) {
+                Path document = documents.get(number);
+                Path target = directory.resolve(document.getFileName());
+                double draw = random.nextDouble();
+                if (draw < changeRatio / 3) {
+                    continue; // Deleted
+                } else if (draw < changeRatio * 2 / 3) {
+                    // Numbered after the last paragraph a document can have, so the chunk stays unique
+                    Files.writeString(target, Files.readString(document) + "\n\n" + chunk(random, number * 32 + MAX_PARAGRAPHS));
+                } else if (draw < changeRatio) {
+                    Files.writeString(directory.resolve("added-" + documentName(added)), document(random, documents.size() + added));
+                    added++;
+                } else {
+                    // A run that failed halfway leaves its copies behind; the draws are seeded, so they are the same
+                    Files.copy(document, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.createFile(directory.resolve(COMPLETE_MARKER));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write changed documents to " + directory, e);
+        }
+        return directory;
+    }
+
+    /** Whether a file in a document directory is a document (and not e.g. the marker of a complete directory). */
+    public static boolean isDocument(Path file) {
+        return Files.isRegularFile(file) && !file.getFileName().toString().startsWith(".");
+    }
+
+    /** A document of 8 to 24 paragraphs; the chunk numbers in it are unique per document number. */
+    private static String document(SplittableRandom random, int number) {
+        StringBuilder document = new StringBuilder(4096);
+        int paragraphs = MIN_PARAGRAPHS + random.nextInt(MAX_PARAGRAPHS - MIN_PARAGRAPHS + 1);
+        for (int p = 0; p < paragraphs; p++) {
+            if (p > 0) document.append("\n\n");
+            document.append(chunk(random, number * 32 + p));
+        }
+        return document.toString();
+    }
+
+    private static String documentName(int index) {
+        return String.format("document-%07d.txt", index);
+    }
+
+    private static String chunk(SplittableRandom random, int index) {
+        StringBuilder text = new StringBuilder(256);
+        int sentences = 2 + random.nextInt(3);
+        for (int i = 0; i < sentences; i++) {
+            if (i > 0) text.append(' ');
+            text.append(SUBJECTS[random.nextInt(SUBJECTS.length)])
+                    .append(' ')
+                    .append(VERBS[random.nextInt(VERBS.length)])
+                    .append(' ')
+                    .append(OBJECTS[random.nextInt(OBJECTS.length)])
+                    .append('.');
+        }
+        // Keeps chunks unique, so stores that dedupe by content still hold the full corpus
+        return text.append(" (chunk ").append(index).append(')').toString();
+    }
+}
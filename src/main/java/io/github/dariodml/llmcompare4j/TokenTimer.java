@@ -0,0 +1,46 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Times a single streamed response: time-to-first-token, the gap between tokens, tokens/sec and
+ * bytes allocated per token. Results go to {@link SecondaryMetrics} under the "stream." prefix.
+ */
+class TokenTimer {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final long start = System.nanoTime();
+    // Tokens arrive on the frameworks' I/O threads, so allocation is measured JVM-wide
+    private final long allocatedAtStart = THREADS.getTotalThreadAllocatedBytes();
+    private long firstToken;
+    private long lastToken;
+    private int tokens;
+
+    void onToken(String token) {
+        // Ollama closes every stream with an empty "done" chunk, which is not a token
+        if (token == null || token.isEmpty()) return;
+        long now = System.nanoTime();
+        if (tokens == 0) {
+            firstToken = now;
+        } else {
+            SecondaryMetrics.recordNanos("stream.itl", now - lastToken);
+        }
+        lastToken = now;
+        tokens++;
+    }
+
+    void onComplete() {
+        if (tokens == 0) return;
+        long allocated = THREADS.getTotalThreadAllocatedBytes() - allocatedAtStart;
+
+        SecondaryMetrics.record("stream.ttft", "ms", (firstToken - start) / 1_000_000.0);
+        SecondaryMetrics.recordNanos("stream.ttft", firstToken - start);
+        SecondaryMetrics.record("stream.tokens", "tokens/op", tokens);
+        if (tokens > 1) {
+            SecondaryMetrics.record("stream.tokens.rate", "tokens/s", (tokens - 1) / ((lastToken - firstToken) / 1e9));
+        }
+        SecondaryMetrics.record("stream.alloc.per.token", "B/token", (double) allocated / tokens);
+    }
+}
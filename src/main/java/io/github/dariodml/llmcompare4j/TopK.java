@@ -0,0 +1,89 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded min-heap on primitive arrays that keeps the {@code k} best scores seen during a scan,
+ * without boxing a candidate per scanned vector.
+ */
+final class TopK {
+
+    private final int[] ordinals;
+    private final float[] scores;
+    private int size;
+
+    TopK(int k) {
+        this.ordinals = new int[Math.max(1, k)];
+        this.scores = new float[Math.max(1, k)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == scores.length;
+    }
+
+    /** Worst score currently kept; anything at or below it cannot enter a full heap. */
+    float threshold() {
+        return isFull() ? scores[0] : Float.NEGATIVE_INFINITY;
+    }
+
+    void offer(int ordinal, float score) {
+        if (size < scores.length) {
+            ordinals[size] = ordinal;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            ordinals[0] = ordinal;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /** Drains the heap into hits sorted by descending score. */
+    List<VectorIndex.Hit> toHits() {
+        VectorIndex.Hit[] hits = new VectorIndex.Hit[size];
+        while (size > 0) {
+            hits[size - 1] = new VectorIndex.Hit(ordinals[0], scores[0]);
+            size--;
+            ordinals[0] = ordinals[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        List<VectorIndex.Hit> result = new ArrayList<>(hits.length);
+        for (VectorIndex.Hit hit : hits) result.add(hit);
+        return result;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) return;
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[i] <= scores[smallest]) return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int ordinal = ordinals[a];
+        ordinals[a] = ordinals[b];
+        ordinals[b] = ordinal;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
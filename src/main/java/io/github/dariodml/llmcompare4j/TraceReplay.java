@@ -0,0 +1,334 @@
+package io.github.dariodml.llmcompare4j;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Replays a recorded request trace against each framework, open loop: every request starts at its recorded
+ * offset from the first one (divided by {@code speed}), whether or not the earlier requests have finished. That is
+ * how production traffic arrives, unlike {@link LoadBenchmark}'s closed loop where a slow response also delays
+ * the next request and so hides the backlog (coordinated omission).
+ *
+ * <p>For every request three times are recorded:
+ * <ul>
+ *     <li>response time: from the intended start in the trace until the response, the coordinated-omission
+ *     corrected latency a user would see</li>
+ *     <li>queueing delay: from the intended start until a worker picks the request up (scheduler lag, plus
+ *     waiting for one of the {@code workers} when that limit is set)</li>
+ *     <li>service time: the framework call itself, what a closed-loop benchmark reports</li>
+ * </ul>
+ *
+ * <p>The trace has one JSON object per line: {@code {"timestamp": "2025-01-01T10:00:00.250Z" or epoch millis,
+ * "type": "chat|embed|rag", "prompt": "...", "model": "llama3.2"}}; lines are sorted by timestamp and the model
+ * falls back to the {@code models}/{@code embeddingModels} default for its type.
+ *
+ * <p>Arguments: {@code trace=<file.jsonl> [speed=1.0] [frameworks=langchain4j,springai] [workers=0 (unbounded)]
+ * [warmup=0 (seconds of the trace not recorded)] [server=ollama|stub] [models=llama3.2] [embeddingModels=all-minilm]}
+ */
+public class TraceReplay {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    // Time to create the virtual threads of the first requests before the replay clock starts
+    private static final long START_DELAY_NANOS = Duration.ofMillis(100).toNanos();
+
+    /** One recorded request, {@code offsetNanos} after the first request of the trace. */
+    record TraceRequest(long offsetNanos, String type, String model, String prompt) {
+    }
+
+    public record ReplayResult(String framework, String type, String model, long requests, long errors, double seconds,
+                               Histogram responseTimes, Histogram queueDelays, Histogram serviceTimes) {
+
+        public double throughput() {
+            return requests / seconds;
+        }
+
+        /** Value at the given percentile of the histogram in milliseconds. */
+        public static double millis(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1_000_000.0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path traceFile = null;
+        double speed = 1.0;
+        List<String> frameworks = List.of("langchain4j", "springai");
+        int workers = 0;
+        Duration warmup = Duration.ZERO;
+        LoadBenchmark.LoadConfig defaults = new LoadBenchmark.LoadConfig();
+        String server = defaults.server;
+        String defaultModel = defaults.models.get(0);
+        String defaultEmbeddingModel = defaults.embeddingModels.get(0);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            String value = arg.substring(eq + 1);
+            switch (arg.substring(0, eq)) {
+                case "trace" -> traceFile = Path.of(value);
+                case "speed" -> speed = Double.parseDouble(value);
+                case "frameworks" -> frameworks = List.of(value.split(","));
+                case "workers" -> workers = Integer.parseInt(value);
+                case "warmup" -> warmup = Duration.ofSeconds(Long.parseLong(value));
+                case "server" -> server = value;
+                case "models" -> defaultModel = value;
+                case "embeddingModels" -> defaultEmbeddingModel = value;
+                default -> throw new IllegalArgumentException("Unknown option: " + arg.substring(0, eq));
+            }
+        }
+        if (traceFile == null) throw new IllegalArgumentException("Missing trace=<file.jsonl>");
+
+        List<TraceRequest> trace = readTrace(traceFile, defaultModel, defaultEmbeddingModel);
+        double traceSeconds = trace.isEmpty() ? 0 : trace.get(trace.size() - 1).offsetNanos() / 1e9;
+        System.out.printf(Locale.ROOT, "Replaying %d requests (%.1f s recorded, %.1f s at speed %.2f)%n",
+                trace.size(), traceSeconds, traceSeconds / speed, speed);
+
+        OllamaEndpoint endpoint = new OllamaEndpoint();
+        endpoint.server = server;
+        endpoint.start();
+
+        List<ReplayResult> results = new ArrayList<>();
+        try {
+            // One framework at a time, so they don't compete for the model server
+            for (String framework : frameworks) {
+                List<AutoCloseable> resources = new ArrayList<>();
+                try {
+                    Map<String, Function<String, Object>> calls = createCalls(framework, trace, defaultEmbeddingModel,
+                            endpoint, resources);
+                    System.out.println(frameworkName(framework) + "...");
+                    List<ReplayResult> frameworkResults = replay(frameworkName(framework), trace, calls, speed, workers, warmup);
+                    frameworkResults.forEach(TraceReplay::print);
+                    results.addAll(frameworkResults);
+                } finally {
+                    for (AutoCloseable resource : resources) {
+                        resource.close();
+                    }
+                }
+            }
+        } finally {
+            endpoint.stop();
+        }
+
+        writeCsv(results, "replay_results.csv");
+        BenchmarkVisualizer.createReplayChart(results);
+    }
+
+    static List<TraceRequest> readTrace(Path file, String defaultModel, String defaultEmbeddingModel) throws IOException {
+        record Line(long epochNanos, String type, String model, String prompt) {
+        }
+        List<Line> lines = new ArrayList<>();
+        for (String text : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (text.isBlank()) continue;
+            JsonNode node = JSON.readTree(text);
+            JsonNode timestamp = node.path("timestamp");
+            long epochNanos;
+            if (timestamp.isNumber()) {
+                epochNanos = timestamp.asLong() * 1_000_000L;
+            } else if (timestamp.isTextual()) {
+                Instant instant = Instant.parse(timestamp.asText());
+                epochNanos = instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+            } else {
+                throw new IllegalArgumentException("No timestamp in trace line: " + text);
+            }
+            String type = node.path("type").asText("chat");
+            String model = node.hasNonNull("model") ? node.get("model").asText()
+                    : "embed".equals(type) ? defaultEmbeddingModel : defaultModel;
+            lines.add(new Line(epochNanos, type, model, node.path("prompt").asText()));
+        }
+        lines.sort(Comparator.comparingLong(Line::epochNanos));
+
+        List<TraceRequest> trace = new ArrayList<>();
+        for (Line line : lines) {
+            trace.add(new TraceRequest(line.epochNanos() - lines.get(0).epochNanos(), line.type(), line.model(), line.prompt()));
+        }
+        return trace;
+    }
+
+    private static String frameworkName(String framework) {
+        return switch (framework) {
+            case "langchain4j" -> "LangChain4j";
+            case "springai" -> "Spring AI";
+            default -> throw new IllegalArgumentException("Unknown framework: " + framework);
+        };
+    }
+
+    /**
+     * One shared client per type and model in the trace, keyed like {@link #key(TraceRequest)}. The teardown of every
+     * benchmark created for them is added to {@code resources}.
+     */
+    static Map<String, Function<String, Object>> createCalls(String framework, List<TraceRequest> trace,
+                                                            String embeddingModel, OllamaEndpoint endpoint,
+                                                            List<AutoCloseable> resources) {
+        boolean langChain4j = "langchain4j".equals(framework);
+        Map<String, Function<String, Object>> calls = new LinkedHashMap<>();
+        for (TraceRequest request : trace) {
+            String model = request.model();
+            if (calls.containsKey(key(request))) continue;
+            Function<String, Object> call = switch (request.type()) {
+                case "chat" -> {
+                    if (langChain4j) {
+                        LangChain4jChatBenchmark chat = new LangChain4jChatBenchmark();
+                        chat.modelName = model;
+                        chat.setupModel(endpoint);
+                        yield prompt -> chat.chat(prompt, model);
+                    }
+                    SpringAiChatBenchmark chat = new SpringAiChatBenchmark();
+                    chat.modelName = model;
+                    chat.setupModel(endpoint);
+                    yield prompt -> chat.chat(prompt, model);
+                }
+                case "embed" -> {
+                    if (langChain4j) {
+                        LangChain4jEmbeddingBenchmark embed = new LangChain4jEmbeddingBenchmark();
+                        embed.modelName = model;
+                        embed.setupModel(endpoint);
+                        resources.add(embed::closeGateway);
+                        yield text -> embed.embed(text, model);
+                    }
+                    SpringAiEmbeddingBenchmark embed = new SpringAiEmbeddingBenchmark();
+                    embed.modelName = model;
+                    embed.setupModel(endpoint);
+                    resources.add(embed::closeGateway);
+                    yield text -> embed.embed(text, model);
+                }
+                case "rag" -> {
+                    if (langChain4j) {
+                        LangChain4jRagBenchmark rag = new LangChain4jRagBenchmark();
+                        rag.modelName = model;
+                        rag.embeddingModelName = embeddingModel;
+                        rag.setup(endpoint);
+                        resources.add(rag::closeResources);
+                        yield prompt -> rag.rag(prompt, model);
+                    }
+                    SpringAiRagBenchmark rag = new SpringAiRagBenchmark();
+                    rag.modelName = model;
+                    rag.embeddingModelName = embeddingModel;
+                    rag.setup(endpoint);
+                    resources.add(rag::closeResources);
+                    yield prompt -> rag.rag(prompt, model);
+                }
+                default -> throw new IllegalArgumentException("Unknown request type: " + request.type());
+            };
+            calls.put(key(request), call);
+        }
+        return calls;
+    }
+
+    private static String key(TraceRequest request) {
+        return request.type() + " " + request.model();
+    }
+
+    static List<ReplayResult> replay(String framework, List<TraceRequest> trace, Map<String, Function<String, Object>> calls,
+                                     double speed, int workers, Duration warmup) {
+        Map<String, Recorder[]> recorders = new LinkedHashMap<>();
+        Map<String, AtomicLong> errors = new LinkedHashMap<>();
+        for (String key : calls.keySet()) {
+            recorders.put(key, new Recorder[]{new Recorder(3), new Recorder(3), new Recorder(3)});
+            errors.put(key, new AtomicLong());
+        }
+        Semaphore permits = workers > 0 ? new Semaphore(workers) : null;
+
+        long origin = System.nanoTime() + START_DELAY_NANOS;
+        long measureFrom = origin + warmup.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (TraceRequest request : trace) {
+                long intendedStart = origin + (long) (request.offsetNanos() / speed);
+                long wait;
+                while ((wait = intendedStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                Function<String, Object> call = calls.get(key(request));
+                Recorder[] recorder = recorders.get(key(request));
+                AtomicLong failures = errors.get(key(request));
+                executor.submit(() -> {
+                    if (permits != null) permits.acquireUninterruptibly();
+                    long started = System.nanoTime();
+                    boolean failed = false;
+                    try {
+                        call.apply(request.prompt());
+                    } catch (RuntimeException e) {
+                        failed = true;
+                    } finally {
+                        if (permits != null) permits.release();
+                    }
+                    long end = System.nanoTime();
+                    if (intendedStart < measureFrom) return;
+                    if (failed) {
+                        failures.incrementAndGet();
+                        return;
+                    }
+                    // Measured from the intended start, so requests delayed by a backlog count in full
+                    recorder[0].recordValue(end - intendedStart);
+                    recorder[1].recordValue(Math.max(0, started - intendedStart));
+                    recorder[2].recordValue(end - started);
+                });
+            }
+        } // close() waits for the in-flight requests
+        double seconds = (System.nanoTime() - measureFrom) / 1e9;
+
+        List<ReplayResult> results = new ArrayList<>();
+        recorders.forEach((key, recorder) -> {
+            Histogram responseTimes = recorder[0].getIntervalHistogram();
+            String[] typeAndModel = key.split(" ", 2);
+            results.add(new ReplayResult(framework, typeAndModel[0], typeAndModel[1], responseTimes.getTotalCount(),
+                    errors.get(key).get(), seconds, responseTimes, recorder[1].getIntervalHistogram(), recorder[2].getIntervalHistogram()));
+        });
+        return results;
+    }
+
+    private static void print(ReplayResult result) {
+        System.out.printf(Locale.ROOT, "   %s %s: %,d requests, %d errors, %.1f req/s%n",
+                result.type(), result.model(), result.requests(), result.errors(), result.throughput());
+        printPercentiles("response", result.responseTimes());
+        printPercentiles("queueing", result.queueDelays());
+        printPercentiles("service", result.serviceTimes());
+    }
+
+    private static void printPercentiles(String label, Histogram histogram) {
+        System.out.printf(Locale.ROOT, "      %-8s p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n", label,
+                ReplayResult.millis(histogram, 50), ReplayResult.millis(histogram, 90), ReplayResult.millis(histogram, 99),
+                ReplayResult.millis(histogram, 99.9), histogram.getMaxValue() / 1_000_000.0);
+    }
+
+    static void writeCsv(List<ReplayResult> results, String fileName) {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            writer.println("framework,type,model,requests,errors,throughput,metric,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+            for (ReplayResult r : results) {
+                Map<String, Histogram> metrics = Map.of("response", r.responseTimes(), "queueing", r.queueDelays(), "service", r.serviceTimes());
+                for (String metric : List.of("response", "queueing", "service")) {
+                    Histogram histogram = metrics.get(metric);
+                    writer.printf(Locale.ROOT, "%s,%s,%s,%d,%d,%.3f,%s,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                            r.framework(), r.type(), r.model(), r.requests(), r.errors(), r.throughput(), metric,
+                            ReplayResult.millis(histogram, 50), ReplayResult.millis(histogram, 90),
+                            ReplayResult.millis(histogram, 99), ReplayResult.millis(histogram, 99.9),
+                            histogram.getMaxValue() / 1_000_000.0);
+                }
+            }
+            System.out.println("Replay results saved as: " + fileName);
+        } catch (IOException e) {
+            System.err.println("Error saving replay results: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.util.List;
+
+/**
+ * Vector storage + nearest-neighbour search behind the project-provided stores. Vectors are addressed by
+ * the ordinal returned from {@link #add(float[])}; ids, text and metadata live in the framework adapters
+ * ({@link VectorIndexEmbeddingStore} for LangChain4j, {@link VectorIndexVectorStore} for Spring AI).
+ * Scores are cosine similarities.
+ */
+public interface VectorIndex extends AutoCloseable {
+
+    record Hit(int ordinal, float score) {
+    }
+
+    int dimensions();
+
+    /** Number of live (not removed) vectors. */
+    int size();
+
+    int add(float[] vector);
+
+    void remove(int ordinal);
+
+    /** The stored vector for an ordinal (normalized to unit length). */
+    float[] vector(int ordinal);
+
+    /** Returns at most {@code k} hits with a score of at least {@code minScore}, best first. */
+    List<Hit> search(float[] query, int k, double minScore);
+
+    @Override
+    default void close() {
+    }
+}
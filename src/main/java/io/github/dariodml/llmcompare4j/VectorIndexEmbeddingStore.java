@@ -0,0 +1,147 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * LangChain4j {@link EmbeddingStore} on top of a project {@link VectorIndex}, so the same index can be
+ * compared against InMemoryEmbeddingStore in LangChain4jRagBenchmark. Metadata filters are not supported.
+ * Closing the store closes the index, which frees its off-heap memory and deletes any file behind it.
+ */
+public class VectorIndexEmbeddingStore implements EmbeddingStore<TextSegment>, AutoCloseable {
+
+    private final IntFunction<VectorIndex> indexFactory;
+    private final List<String> ids = new ArrayList<>();
+    private final List<TextSegment> segments = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private VectorIndex index;
+
+    /** @param indexFactory creates the index once the vector size is known from the first embedding */
+    public VectorIndexEmbeddingStore(IntFunction<VectorIndex> indexFactory) {
+        this.indexFactory = indexFactory;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding, null);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        add(id, embedding, null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding, textSegment);
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> added = new ArrayList<>(embeddings.size());
+        for (Embedding embedding : embeddings) {
+            added.add(add(embedding));
+        }
+        return added;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        if (embeddings.size() != textSegments.size()) {
+            throw new IllegalArgumentException("The number of embeddings and text segments must be equal");
+        }
+        List<String> added = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            added.add(add(embeddings.get(i), textSegments.get(i)));
+        }
+        return added;
+    }
+
+    private synchronized void add(String id, Embedding embedding, TextSegment textSegment) {
+        if (index == null) {
+            index = indexFactory.apply(embedding.dimension());
+        }
+        Integer previous = ordinals.remove(id);
+        if (previous != null) {
+            index.remove(previous);
+        }
+        int ordinal = index.add(embedding.vector());
+        // Ordinals are dense, so the parallel lists line up with the index
+        ids.add(id);
+        segments.add(textSegment);
+        ordinals.put(id, ordinal);
+    }
+
+    @Override
+    public void remove(String id) {
+        removeAll(List.of(id));
+    }
+
+    @Override
+    public synchronized void removeAll(Collection<String> idsToRemove) {
+        for (String id : idsToRemove) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                index.remove(ordinal);
+                segments.set(ordinal, null);
+            }
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        if (request.filter() != null) {
+            throw new UnsupportedOperationException("Metadata filters are not supported by " + getClass().getSimpleName());
+        }
+        VectorIndex current;
+        synchronized (this) {
+            current = index;
+        }
+        if (current == null) return new EmbeddingSearchResult<>(List.of());
+
+        // LangChain4j relevance scores are cosine similarity mapped from [-1, 1] to [0, 1]
+        double minCosine = 2 * request.minScore() - 1;
+        List<VectorIndex.Hit> hits = current.search(request.queryEmbedding().vector(), request.maxResults(), minCosine);
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(hits.size());
+        synchronized (this) {
+            for (VectorIndex.Hit hit : hits) {
+                matches.add(new EmbeddingMatch<>(
+                        RelevanceScore.fromCosineSimilarity(hit.score()),
+                        ids.get(hit.ordinal()),
+                        Embedding.from(current.vector(hit.ordinal())),
+                        segments.get(hit.ordinal())));
+            }
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    /** The underlying index, or null before the first embedding was added. */
+    public synchronized VectorIndex index() {
+        return index;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (index != null) {
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.dariodml.llmcompare4j;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Spring AI {@link VectorStore} on top of a project {@link VectorIndex}, so the same index can be compared
+ * against SimpleVectorStore in SpringAiRagBenchmark. Filter expressions are not supported. Closing the store
+ * closes the index.
+ */
+public class VectorIndexVectorStore implements VectorStore, AutoCloseable {
+
+    // Documents are embedded in batches instead of one request per document like SimpleVectorStore
+    private static final int EMBEDDING_BATCH_SIZE = 64;
+
+    private final EmbeddingModel embeddingModel;
+    private final IntFunction<VectorIndex> indexFactory;
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private VectorIndex index;
+
+    /** @param indexFactory creates the index once the vector size is known from the first embedding */
+    public VectorIndexVectorStore(EmbeddingModel embeddingModel, IntFunction<VectorIndex> indexFactory) {
+        this.embeddingModel = embeddingModel;
+        this.indexFactory = indexFactory;
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public void add(List<Document> documentsToAdd) {
+        for (int from = 0; from < documentsToAdd.size(); from += EMBEDDING_BATCH_SIZE) {
+            List<Document> batch = documentsToAdd.subList(from, Math.min(from + EMBEDDING_BATCH_SIZE, documentsToAdd.size()));
+            List<float[]> embeddings = embeddingModel.embed(batch.stream().map(Document::getText).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                add(batch.get(i), embeddings.get(i));
+            }
+        }
+    }
+
+    /** Adds a document with an embedding computed elsewhere (e.g. a snapshot or a shared batch). */
+    public synchronized void add(Document document, float[] embedding) {
+        if (index == null) {
+            index = indexFactory.apply(embedding.length);
+        }
+        Integer previous = ordinals.remove(document.getId());
+        if (previous != null) {
+            index.remove(previous);
+        }
+        int ordinal = index.add(embedding);
+        documents.add(document);
+        ordinals.put(document.getId(), ordinal);
+    }
+
+    @Override
+    public synchronized void delete(List<String> idList) {
+        for (String id : idList) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                index.remove(ordinal);
+                documents.set(ordinal, null);
+            }
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        throw new UnsupportedOperationException("Filter expressions are not supported by " + getName());
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (request.hasFilterExpression()) {
+            throw new UnsupportedOperationException("Filter expressions are not supported by " + getName());
+        }
+        VectorIndex current;
+        synchronized (this) {
+            current = index;
+        }
+        if (current == null) return List.of();
+
+        float[] query = embeddingModel.embed(request.getQuery());
+        List<VectorIndex.Hit> hits = current.search(query, request.getTopK(), request.getSimilarityThreshold());
+
+        List<Document> results = new ArrayList<>(hits.size());
+        synchronized (this) {
+            for (VectorIndex.Hit hit : hits) {
+                Document document = documents.get(hit.ordinal());
+                results.add(document.mutate().score((double) hit.score()).build());
+            }
+        }
+        return results;
+    }
+
+    /** The underlying index, or null before the first document was added. */
+    public synchronized VectorIndex index() {
+        return index;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (index != null) {
+            index.close();
+        }
+    }
+}
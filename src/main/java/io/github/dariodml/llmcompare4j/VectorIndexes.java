@@ -0,0 +1,62 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Maps the {@code storeType} benchmark parameter to a {@link VectorIndex} implementation.
+ * "inmemory" (the framework's built-in store) and "snapshot" ({@link VectorSnapshot}) are handled by the
+ * benchmarks themselves.
+ */
+public final class VectorIndexes {
+
+    public static final String FRAMEWORK_DEFAULT = "inmemory";
+    public static final String SNAPSHOT = "snapshot";
+
+    private VectorIndexes() {
+    }
+
+    public static IntFunction<VectorIndex> factory(String storeType) {
+        return switch (storeType) {
+            case "offheap" -> OffHeapVectorIndex::new;
+            case "hnsw" -> hnsw(16, 100, 64);
+            case "int8", "binary" -> {
+                QuantizedVectorIndex.Quantization quantization = quantization(storeType);
+                yield quantized(quantization, defaultRescoreFactor(quantization), false);
+            }
+            default -> throw new IllegalArgumentException("Unknown store type: " + storeType);
+        };
+    }
+
+    public static IntFunction<VectorIndex> hnsw(int m, int efConstruction, int efSearch) {
+        return dimensions -> new HnswVectorIndex(dimensions, m, efConstruction, efSearch);
+    }
+
+    /** The quantization of the "int8" and "binary" store types. */
+    public static QuantizedVectorIndex.Quantization quantization(String storeType) {
+        return QuantizedVectorIndex.Quantization.valueOf(storeType.toUpperCase());
+    }
+
+    /** Candidates per result that keep recall@10 near exact search: binary codes rank far more coarsely than int8. */
+    public static int defaultRescoreFactor(QuantizedVectorIndex.Quantization quantization) {
+        return quantization == QuantizedVectorIndex.Quantization.INT8 ? 4 : 10;
+    }
+
+    /** @param onDisk keep the full-precision vectors in a memory-mapped file under target/vector-store instead of off-heap */
+    public static IntFunction<VectorIndex> quantized(QuantizedVectorIndex.Quantization quantization, int rescoreFactor, boolean onDisk) {
+        return dimensions -> new QuantizedVectorIndex(dimensions, quantization, rescoreFactor, onDisk ? vectorFile() : null);
+    }
+
+    private static Path vectorFile() {
+        Path directory = WorkDirectory.resolve("vector-store");
+        try {
+            return Files.createDirectories(directory).resolve(UUID.randomUUID() + ".f32");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create " + directory, e);
+        }
+    }
+}
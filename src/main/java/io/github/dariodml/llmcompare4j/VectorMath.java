@@ -0,0 +1,57 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Dot products for the vector stores. Uses the incubating Vector API when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and a scalar loop otherwise.
+ */
+final class VectorMath {
+
+    static final boolean SIMD = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private VectorMath() {
+    }
+
+    /** Dot product of {@code query} with the vector stored at {@code offset} (bytes) in {@code segment}. */
+    static float dot(float[] query, MemorySegment segment, long offset) {
+        if (SIMD) return SimdVectorMath.dot(query, segment, offset);
+        float sum = 0f;
+        for (int i = 0; i < query.length; i++) {
+            sum += query[i] * segment.get(ValueLayout.JAVA_FLOAT_UNALIGNED, offset + (long) i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    static float dot(float[] a, float[] b) {
+        if (SIMD) return SimdVectorMath.dot(a, b);
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /** Dot product of the int8 codes {@code query} and the codes at {@code offset} in {@code codes}. */
+    static int dot(byte[] query, byte[] codes, int offset) {
+        if (SIMD) return SimdVectorMath.dot(query, codes, offset);
+        int sum = 0;
+        for (int i = 0; i < query.length; i++) {
+            sum += query[i] * codes[offset + i];
+        }
+        return sum;
+    }
+
+    /** Returns a unit-length copy, so cosine similarity becomes a plain dot product. */
+    static float[] normalize(float[] vector) {
+        float[] copy = vector.clone();
+        double norm = Math.sqrt(dot(copy, copy));
+        if (norm == 0) return copy;
+        float inverse = (float) (1.0 / norm);
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] *= inverse;
+        }
+        return copy;
+    }
+}
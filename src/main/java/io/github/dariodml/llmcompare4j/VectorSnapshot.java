@@ -0,0 +1,287 @@
+package io.github.dariodml.llmcompare4j;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only vector store file that is opened with {@link FileChannel#map} instead of being deserialized: opening
+ * costs the same for 1k and 1M entries, and pages are only read from disk when a search or hit touches them.
+ * {@link SnapshotEmbeddingStore} (LangChain4j) and {@link SnapshotVectorStore} (Spring AI) put it behind the
+ * frameworks' store interfaces.
+ *
+ * <p>Layout, in the native byte order of the machine that wrote it:
+ * <pre>
+ * header    64 bytes: magic, version, dimensions, count, byte order mark, section offsets
+ * vectors   count * dimensions floats, unit length, so the cosine is one {@link VectorMath} dot product
+ * entries   count * 24 bytes: offset into strings (long), id, text and metadata length in bytes (3 ints), padding
+ * strings   per entry the UTF-8 id, text and metadata (JSON), decoded only for the hits of a search
+ * </pre>
+ */
+public final class VectorSnapshot implements AutoCloseable {
+
+    private static final long MAGIC = 0x50414e5334434c4cL; // "LLC4SNAP" when read as a little-endian long
+    private static final int VERSION = 1;
+    private static final int BYTE_ORDER_MARK = 0x01020304;
+    private static final int HEADER_BYTES = 64;
+    private static final int ENTRY_BYTES = 24;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+
+    private final Arena arena;
+    private final MemorySegment file;
+    private final int dimensions;
+    private final int count;
+    private final long vectorBytes;
+    private final long vectorsOffset;
+    private final long entriesOffset;
+    private final long stringsOffset;
+
+    private VectorSnapshot(Arena arena, MemorySegment file) {
+        this.arena = arena;
+        this.file = file;
+        if (file.byteSize() < HEADER_BYTES || file.get(LONG, 0) != MAGIC) {
+            throw new IllegalArgumentException("Not a vector snapshot");
+        }
+        if (file.get(INT, 8) != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + file.get(INT, 8));
+        }
+        if (file.get(INT, 20) != BYTE_ORDER_MARK) {
+            throw new IllegalArgumentException("Snapshot was written on a machine with a different byte order");
+        }
+        dimensions = file.get(INT, 12);
+        count = file.get(INT, 16);
+        vectorBytes = (long) dimensions * Float.BYTES;
+        vectorsOffset = file.get(LONG, 24);
+        entriesOffset = file.get(LONG, 32);
+        stringsOffset = file.get(LONG, 40);
+    }
+
+    /** Maps the snapshot file; nothing is read until the first search. */
+    public static VectorSnapshot open(Path path) {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new VectorSnapshot(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        } catch (IOException e) {
+            arena.close();
+            throw new UncheckedIOException("Could not open snapshot " + path, e);
+        } catch (RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /** Starts a new snapshot; it replaces {@code path} only when the writer is closed, never when it is aborted. */
+    public static Writer create(Path path, int dimensions) {
+        return new Writer(path, dimensions);
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Brute-force scan of the mapped vectors; returns at most {@code k} hits scoring at least {@code minScore}. */
+    public List<VectorIndex.Hit> search(float[] query, int k, double minScore) {
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + query.length);
+        }
+        float[] normalized = VectorMath.normalize(query);
+        TopK top = new TopK(k);
+        long offset = vectorsOffset;
+        for (int ordinal = 0; ordinal < count; ordinal++, offset += vectorBytes) {
+            float score = VectorMath.dot(normalized, file, offset);
+            if (score >= minScore && score > top.threshold()) {
+                top.offer(ordinal, score);
+            }
+        }
+        return top.toHits();
+    }
+
+    public float[] vector(int ordinal) {
+        return file.asSlice(vectorsOffset + ordinal * vectorBytes, vectorBytes).toArray(ValueLayout.JAVA_FLOAT);
+    }
+
+    public String id(int ordinal) {
+        long entry = entry(ordinal);
+        return string(file.get(LONG, entry), file.get(INT, entry + 8));
+    }
+
+    public String text(int ordinal) {
+        long entry = entry(ordinal);
+        return string(file.get(LONG, entry) + file.get(INT, entry + 8), file.get(INT, entry + 12));
+    }
+
+    public Map<String, Object> metadata(int ordinal) {
+        long entry = entry(ordinal);
+        int length = file.get(INT, entry + 16);
+        if (length == 0) return Map.of();
+        long offset = file.get(LONG, entry) + file.get(INT, entry + 8) + file.get(INT, entry + 12);
+        try {
+            return MAPPER.readValue(bytes(offset, length), new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt metadata for entry " + ordinal, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private long entry(int ordinal) {
+        if (ordinal < 0 || ordinal >= count) throw new IndexOutOfBoundsException(ordinal);
+        return entriesOffset + (long) ordinal * ENTRY_BYTES;
+    }
+
+    private String string(long offset, int length) {
+        return new String(bytes(offset, length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] bytes(long offset, int length) {
+        return file.asSlice(stringsOffset + offset, length).toArray(ValueLayout.JAVA_BYTE);
+    }
+
+    /**
+     * Streams entries into a snapshot: vectors go straight into the file, the strings into a temporary file, so
+     * writing needs no more heap than one entry. Closing appends the entry table and strings and moves the
+     * finished file into place; {@link #abort()} deletes the temporary files instead, so a failed write never
+     * publishes a truncated snapshot.
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private final Path path;
+        private final Path partial;
+        private final Path strings;
+        private final int dimensions;
+        private final FileChannel channel;
+        private final OutputStream stringsOut;
+        private final ByteBuffer vector;
+        private ByteBuffer entries = ByteBuffer.allocate(1024 * ENTRY_BYTES).order(ByteOrder.nativeOrder());
+        private long stringBytes;
+        private int count;
+
+        private Writer(Path path, int dimensions) {
+            this.path = path;
+            this.partial = path.resolveSibling(path.getFileName() + ".partial");
+            this.strings = path.resolveSibling(path.getFileName() + ".strings");
+            this.dimensions = dimensions;
+            this.vector = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.nativeOrder());
+            try {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE);
+                channel.position(HEADER_BYTES);
+                stringsOut = new BufferedOutputStream(Files.newOutputStream(strings));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create snapshot " + path, e);
+            }
+        }
+
+        public void add(String id, float[] embedding, String text, Map<String, ?> metadata) {
+            if (embedding.length != dimensions) {
+                throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + embedding.length);
+            }
+            try {
+                vector.clear();
+                vector.asFloatBuffer().put(VectorMath.normalize(embedding));
+                writeFully(vector);
+
+                byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+                byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+                byte[] metadataBytes = metadata == null || metadata.isEmpty() ? new byte[0] : MAPPER.writeValueAsBytes(metadata);
+                stringsOut.write(idBytes);
+                stringsOut.write(textBytes);
+                stringsOut.write(metadataBytes);
+
+                if (entries.remaining() < ENTRY_BYTES) {
+                    entries = ByteBuffer.allocate(entries.capacity() * 2).order(ByteOrder.nativeOrder()).put(entries.flip());
+                }
+                entries.putLong(stringBytes).putInt(idBytes.length).putInt(textBytes.length).putInt(metadataBytes.length).putInt(0);
+                stringBytes += idBytes.length + textBytes.length + metadataBytes.length;
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write snapshot " + path, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                stringsOut.close();
+                long entriesOffset = HEADER_BYTES + (long) count * dimensions * Float.BYTES;
+                writeFully(entries.flip());
+                long stringsOffset = entriesOffset + (long) count * ENTRY_BYTES;
+                try (FileChannel in = FileChannel.open(strings, StandardOpenOption.READ)) {
+                    long copied = 0;
+                    while (copied < stringBytes) {
+                        copied += in.transferTo(copied, stringBytes - copied, channel);
+                    }
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+                header.putLong(MAGIC).putInt(VERSION).putInt(dimensions).putInt(count).putInt(BYTE_ORDER_MARK)
+                        .putLong(HEADER_BYTES).putLong(entriesOffset).putLong(stringsOffset).putLong(stringsOffset + stringBytes);
+                header.clear();
+                channel.position(0);
+                writeFully(header);
+                channel.force(true);
+                channel.close();
+                Files.deleteIfExists(strings);
+                Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                abort();
+                throw new UncheckedIOException("Could not finish snapshot " + path, e);
+            }
+        }
+
+        /** Discards everything written so far; {@code path} is left as it was. */
+        public void abort() {
+            closeQuietly(stringsOut);
+            closeQuietly(channel);
+            try {
+                Files.deleteIfExists(strings);
+                Files.deleteIfExists(partial);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete the partial snapshot " + partial, e);
+            }
+        }
+
+        private static void closeQuietly(AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+                // Only called before the file is deleted
+            }
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
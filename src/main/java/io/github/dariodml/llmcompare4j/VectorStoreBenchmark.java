@@ -0,0 +1,166 @@
+package io.github.dariodml.llmcompare4j;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Similarity search alone, without Ollama: the built-in in-memory stores of both frameworks against the
+ * project's off-heap SIMD store, filled with seeded random vectors. The embedding model is a lookup table,
+ * so only the store itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, warmups = 0, jvmArgsAppend = {"-Xmx8g", "--add-modules=jdk.incubator.vector"})
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class VectorStoreBenchmark {
+
+    @Param({"langchain4j-inmemory", "springai-simple", "langchain4j-offheap", "springai-offheap"})
+    public String store;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"384", "1024"})
+    public int dimensions;
+
+    @Param({"10"})
+    public int topK;
+
+    private static final int QUERIES = 64;
+
+    private float[][] queries;
+    private IntFunction<List<?>> search;
+    // The project stores hold off-heap memory until closed
+    private AutoCloseable closeable;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, float[]> vectors = new HashMap<>(size + QUERIES);
+        for (int i = 0; i < size; i++) {
+            vectors.put("chunk " + i, randomVector(random));
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = randomVector(random);
+            vectors.put("query " + i, queries[i]);
+        }
+
+        switch (store) {
+            case "langchain4j-inmemory" -> search = fill(new InMemoryEmbeddingStore<>(), vectors);
+            case "langchain4j-offheap" -> {
+                VectorIndexEmbeddingStore embeddingStore = new VectorIndexEmbeddingStore(VectorIndexes.factory("offheap"));
+                closeable = embeddingStore;
+                search = fill(embeddingStore, vectors);
+            }
+            case "springai-simple" -> search = fill(SimpleVectorStore.builder(new LookupEmbeddingModel(vectors)).build(), vectors);
+            case "springai-offheap" -> {
+                LookupEmbeddingModel embeddingModel = new LookupEmbeddingModel(vectors);
+                VectorIndexVectorStore vectorStore = new VectorIndexVectorStore(embeddingModel, VectorIndexes.factory("offheap"));
+                closeable = vectorStore;
+                search = fill(vectorStore, vectors);
+            }
+            default -> throw new IllegalArgumentException("Unknown store: " + store);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeStore() throws Exception {
+        if (closeable != null) {
+            closeable.close();
+        }
+    }
+
+    @Benchmark
+    public List<?> benchmarkSearch() {
+        next = (next + 1) % QUERIES;
+        return search.apply(next);
+    }
+
+    private IntFunction<List<?>> fill(EmbeddingStore<TextSegment> embeddingStore, Map<String, float[]> vectors) {
+        List<dev.langchain4j.data.embedding.Embedding> embeddings = new ArrayList<>(size);
+        List<TextSegment> segments = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String text = "chunk " + i;
+            embeddings.add(dev.langchain4j.data.embedding.Embedding.from(vectors.get(text)));
+            segments.add(TextSegment.from(text));
+        }
+        embeddingStore.addAll(embeddings, segments);
+
+        return query -> embeddingStore.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(dev.langchain4j.data.embedding.Embedding.from(queries[query]))
+                .maxResults(topK)
+                .build()).matches();
+    }
+
+    private IntFunction<List<?>> fill(VectorStore vectorStore, Map<String, float[]> vectors) {
+        List<Document> documents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            documents.add(new Document("chunk " + i));
+        }
+        vectorStore.add(documents);
+
+        return query -> vectorStore.similaritySearch(SearchRequest.builder()
+                .query("query " + query)
+                .topK(topK)
+                .build());
+    }
+
+    private float[] randomVector(SplittableRandom random) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) (random.nextDouble() * 2 - 1);
+        }
+        return vector;
+    }
+
+    /** Spring AI embedding model that returns precomputed vectors instead of calling a server. */
+    static class LookupEmbeddingModel implements EmbeddingModel {
+
+        private final Map<String, float[]> vectors;
+
+        LookupEmbeddingModel(Map<String, float[]> vectors) {
+            this.vectors = vectors;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(vectors.get(text), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vectors.get(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return vectors.values().iterator().next().length;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.nio.file.Path;
+
+/**
+ * Where the benchmarks keep the files they generate and reuse across runs: snapshots, the disk embedding cache,
+ * ingestion corpora and disk-backed vectors. That is {@code target}, or the directory in the {@value #PROPERTY}
+ * system property, which {@link ParallelRunner} sets to a directory per slot.
+ */
+final class WorkDirectory {
+
+    // Set per fork by ParallelRunner so concurrent forks never write the same file; not a @Param so results stay comparable
+    static final String PROPERTY = "llmcompare4j.work.dir";
+
+    private WorkDirectory() {
+    }
+
+    static Path resolve(String first, String... more) {
+        return Path.of(System.getProperty(PROPERTY, "target")).resolve(Path.of(first, more));
+    }
+}
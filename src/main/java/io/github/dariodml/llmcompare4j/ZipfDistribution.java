@@ -0,0 +1,32 @@
+package io.github.dariodml.llmcompare4j;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded Zipf sampler over ranks 0..n-1: rank k is drawn with probability proportional to 1 / (k + 1)^exponent,
+ * the typical shape of real prompt traffic where a few questions make up most of the requests.
+ */
+final class ZipfDistribution {
+
+    private final double[] cumulative;
+    private final SplittableRandom random;
+
+    ZipfDistribution(int n, double exponent, long seed) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+        random = new SplittableRandom(seed);
+    }
+
+    int next() {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}